@@ -16,11 +16,18 @@ import javax.sql.DataSource;
 public class DataSourceConfig
 {
     /**
-     * The property from application properties. Defaults to H2
+     * The property from application properties. Defaults to H2, in memory.
+     * H2FILE keeps the H2 database in a file, so it outlives a restart.
      */
     @Value("${local.run.db:h2}")
     private String dbValue;
 
+    /**
+     * Where the H2FILE database is kept, without the .mv.db extension
+     */
+    @Value("${citrics.db.h2-file:./data/citrics}")
+    private String h2File;
+
     /**
      * A config var from Heroku giving the url for access to POSTGRESQL. Default to empty string
      */
@@ -45,7 +52,9 @@ public class DataSourceConfig
         } else
         {
             // Assume H2
-            String myURLString = "jdbc:h2:mem:testdb";
+            String myURLString = dbValue.equalsIgnoreCase("H2FILE")
+                ? "jdbc:h2:file:" + h2File
+                : "jdbc:h2:mem:testdb";
             String myDriverClass = "org.h2.Driver";
             String myDBUser = "sa";
             String myDBPassword = "";
@@ -29,7 +29,9 @@ public class OktaAuthSecurityConfig extends WebSecurityConfigurerAdapter
                 "/v2/api-docs",
                 //this /cities  isnt doing anything for some reason. I added /cities to two places because of a reddit thread I found that has a similar issues
                     // not sure why it works, but it does.
-                "/webjars/**","/cities/**")
+                "/webjars/**","/cities/**",
+                // only the readiness status, for the load balancer; the other health groups need a login
+                "/actuator/health/readiness")
             .permitAll()
             .antMatchers(HttpMethod.POST,
                 "/users/**")
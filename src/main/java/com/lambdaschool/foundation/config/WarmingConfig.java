@@ -0,0 +1,59 @@
+package com.lambdaschool.foundation.config;
+
+import com.lambdaschool.foundation.exceptions.DataUnavailableException;
+import com.lambdaschool.foundation.exceptions.DataWarmingException;
+import com.lambdaschool.foundation.ingestion.IngestionStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Answers requests for city data with 503 Warming Up while the first ingestion is still loading it,
+ * see IngestionStatus. Once there is data to serve, requests go through as usual. If the first ingestion failed
+ * with nothing to serve, they are answered 503 Data Unavailable without a Retry-After, as asking again will not help.
+ */
+@Configuration
+public class WarmingConfig
+    implements WebMvcConfigurer
+{
+    @Autowired
+    private IngestionStatus ingestionStatus;
+
+    /**
+     * Seconds a warming response tells the client to wait before asking again
+     */
+    @Value("${citrics.ingest.warming-retry-after-seconds:10}")
+    private long retryAfterSeconds;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry)
+    {
+        registry.addInterceptor(new HandlerInterceptor()
+        {
+            @Override
+            public boolean preHandle(
+                HttpServletRequest request,
+                HttpServletResponse response,
+                Object handler)
+            {
+                if (ingestionStatus.isServing())
+                {
+                    return true;
+                }
+                if (ingestionStatus.getState() == IngestionStatus.State.FAILED)
+                {
+                    throw new DataUnavailableException("City data could not be loaded. It is unavailable until it is loaded again.");
+                }
+                throw new DataWarmingException("City data is still loading, started " +
+                    ingestionStatus.getElapsedMillis() / 1000 + " s ago. Please try again shortly.", retryAfterSeconds);
+            }
+        })
+            .addPathPatterns("/cities/**");
+    }
+}
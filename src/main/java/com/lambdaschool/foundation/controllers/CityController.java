@@ -11,6 +11,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 //import com.lambdaschool.foundation.models.CityIdName;
 
@@ -52,7 +53,7 @@ public class CityController
        produces = "application/json")
     public ResponseEntity<?> listAllCitiesLong()
     {
-        List<City> cities = cityService.findAll();
+        List<City> cities = cityService.findAllWithOccupations();
         return new ResponseEntity<>(cities, HttpStatus.OK);
     }
 
@@ -68,6 +69,37 @@ public class CityController
         return new ResponseEntity<>(c, HttpStatus.OK);
     }
 
+    /**
+     * /city/{cityid}/ranks endpoint
+     * @param id cityid
+     * @return percentile rank, 0 to 100, of the city for rent, wages and walkscore
+     */
+    @GetMapping(value = "/city/{id}/ranks", produces = "application/json")
+    public ResponseEntity<?> getCityRanks(@PathVariable Long id)
+    {
+        Map<String, Double> ranks = cityService.findPercentileRanks(id);
+        return new ResponseEntity<>(ranks, HttpStatus.OK);
+    }
+
+    /**
+     * /{cityid}/history endpoint
+     * @param id     cityid
+     * @param metric population, income, household_income, housing, covid, precipitation or temperature
+     * @param from   first year, inclusive, the oldest if left out
+     * @param to     last year, inclusive, the latest if left out
+     * @return the values of the series in those years, oldest first
+     */
+    @GetMapping(value = "/{id}/history", produces = "application/json")
+    public ResponseEntity<?> getCityHistory(
+        @PathVariable Long id,
+        @RequestParam String metric,
+        @RequestParam(required = false) Integer from,
+        @RequestParam(required = false) Integer to)
+    {
+        List<HistoryPoint> history = cityService.findHistory(id, metric, from, to);
+        return new ResponseEntity<>(history, HttpStatus.OK);
+    }
+
     /**
      * /avg endpoint
      * @return City with average fields of all cities
@@ -80,119 +112,55 @@ public class CityController
         return new ResponseEntity<>(c,HttpStatus.OK);
     }
 
+    /**
+     * /avg/history endpoint
+     * @param metric population, income, household_income, housing, covid, precipitation or temperature
+     * @param state  state code to average the cities of one state, every city if left out
+     * @param from   first year, inclusive, the oldest if left out
+     * @param to     last year, inclusive, the latest if left out
+     * @return the average of the series in each period of those years, oldest first
+     */
+    @GetMapping(value = "/avg/history", produces = "application/json")
+    public ResponseEntity<?> getAverageHistory(
+        @RequestParam String metric,
+        @RequestParam(required = false) String state,
+        @RequestParam(required = false) Integer from,
+        @RequestParam(required = false) Integer to)
+    {
+        List<HistoryPoint> history = cityService.findAverageHistory(metric, state, from, to);
+        return new ResponseEntity<>(history, HttpStatus.OK);
+    }
+
+    /**
+     * /aggregates endpoint
+     * @param groupBy state, climate_zone or simple_climate
+     * @return count, mean, min and max of every numeric field for each group of cities,
+     * with p10, median and p90 for rent, wages and walkscore
+     */
+    @GetMapping(value = "/aggregates", produces = "application/json")
+    public ResponseEntity<?> getAggregates(@RequestParam(defaultValue = "state") String groupBy)
+    {
+        List<CityAggregate> aggregates = cityService.findAggregates(groupBy);
+        return new ResponseEntity<>(aggregates, HttpStatus.OK);
+    }
+
+    /**
+     * /avg/stats endpoint
+     * @return count, mean, min and max of every numeric field over all cities,
+     * with p10, median and p90 for rent, wages and walkscore
+     */
+    @GetMapping(value = "/avg/stats", produces = "application/json")
+    public ResponseEntity<?> getAverageStats()
+    {
+        CityAggregate stats = cityService.findAverageStats();
+        return new ResponseEntity<>(stats, HttpStatus.OK);
+    }
+
     @GetMapping(value = "/filter", produces = "application/json")
     public ResponseEntity<?> getFilteredCities(
             @RequestBody CityFilter cityFilter
             ){
-        List<City> cities = cityService.findAll();
-        MinMaxInt popMinMax = cityFilter.getPopulation();
-        if (popMinMax != null){
-            for (int i = 0; i < cities.size(); i++){
-                if (popMinMax.getMin() > cities.get(i).getPopulation()){
-                    cities.remove(i);
-                    i--;
-                } else if (popMinMax.getMax() < cities.get(i).getPopulation()){
-                    cities.remove(i);
-                    i--;
-                }
-            }
-        }
-        MinMaxInt studioMinMax = cityFilter.getStudio();
-        if (studioMinMax != null){
-            for (int i = 0; i < cities.size(); i++){
-                if (studioMinMax.getMin() > cities.get(i).getStudio()){
-                    cities.remove(i);
-                    i--;
-                } else if (studioMinMax.getMax() < cities.get(i).getStudio()){
-                    cities.remove(i);
-                    i--;
-                }
-            }
-        }
-        MinMaxInt onebrMinMax = cityFilter.getOnebr();
-        if (onebrMinMax != null){
-            for (int i = 0; i < cities.size(); i++){
-                if (onebrMinMax.getMin() > cities.get(i).getOnebr()){
-                    cities.remove(i);
-                    i--;
-                } else if (onebrMinMax.getMax() < cities.get(i).getOnebr()){
-                    cities.remove(i);
-                    i--;
-                }
-            }
-        }
-        MinMaxInt twobrMinMax = cityFilter.getTwobr();
-        if (twobrMinMax != null){
-            for (int i = 0; i < cities.size(); i++){
-                if (twobrMinMax.getMin() > cities.get(i).getTwobr()){
-                    cities.remove(i);
-                    i--;
-                } else if (twobrMinMax.getMax() < cities.get(i).getTwobr()){
-                    cities.remove(i);
-                    i--;
-                }
-            }
-        }
-        MinMaxInt threebrMinMax = cityFilter.getThreebr();
-        if (threebrMinMax != null){
-            for (int i = 0; i < cities.size(); i++){
-                if (threebrMinMax.getMin() > cities.get(i).getThreebr()){
-                    cities.remove(i);
-                    i--;
-                } else if (threebrMinMax.getMax() < cities.get(i).getThreebr()){
-                    cities.remove(i);
-                    i--;
-                }
-            }
-        }
-        MinMaxInt fourbrMinMax = cityFilter.getFourbr();
-        if (fourbrMinMax != null){
-            for (int i = 0; i < cities.size(); i++){
-                if (fourbrMinMax.getMin() > cities.get(i).getFourbr()){
-                    cities.remove(i);
-                    i--;
-                } else if (fourbrMinMax.getMax() < cities.get(i).getFourbr()){
-                    cities.remove(i);
-                    i--;
-                }
-            }
-        }
-        MinMaxDbl hourlyMinMax = cityFilter.getHourly_wage();
-        if (hourlyMinMax != null){
-            for (int i = 0; i < cities.size(); i++){
-                if (hourlyMinMax.getMin() > cities.get(i).getHourly_wage()){
-                    cities.remove(i);
-                    i--;
-                } else if (hourlyMinMax.getMax() < cities.get(i).getHourly_wage()){
-                    cities.remove(i);
-                    i--;
-                }
-            }
-        }
-        MinMaxInt annualMinMax = cityFilter.getAnnual_wage();
-        if (annualMinMax != null){
-            for (int i = 0; i < cities.size(); i++){
-                if (annualMinMax.getMin() > cities.get(i).getAnnual_wage()){
-                    cities.remove(i);
-                    i--;
-                } else if (annualMinMax.getMax() < cities.get(i).getAnnual_wage()){
-                    cities.remove(i);
-                    i--;
-                }
-            }
-        }
-        MinMaxDbl walkMinMax = cityFilter.getWalkscore();
-        if (walkMinMax != null) {
-            for (int i = 0; i < cities.size(); i++) {
-                if (walkMinMax.getMin() > cities.get(i).getWalkscore()) {
-                    cities.remove(i);
-                    i--;
-                } else if (walkMinMax.getMax() < cities.get(i).getWalkscore()) {
-                    cities.remove(i);
-                    i--;
-                }
-            }
-        }
+        List<City> cities = cityService.findFiltered(cityFilter);
         List<String> cityNames = cityNamesFromCities(cities);
         return new ResponseEntity<>(cityNames, HttpStatus.OK);
     }
@@ -201,7 +169,8 @@ public class CityController
     public ResponseEntity<?> compareCities(@RequestBody List<String> cityNames){
         List<City> rtn = new ArrayList<>();
         for (String s : cityNames){
-            City city = cityService.findByName(s);
+            // unknown names are skipped without a database lookup
+            City city = cityService.findByNameOrNull(s);
             if (city != null){
                 rtn.add(city);
             }
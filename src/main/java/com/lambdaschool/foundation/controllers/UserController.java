@@ -1,7 +1,9 @@
 package com.lambdaschool.foundation.controllers;
 
+import com.lambdaschool.foundation.exceptions.ResourceNotFoundException;
 import com.lambdaschool.foundation.models.User;
 import com.lambdaschool.foundation.models.UserCities;
+import com.lambdaschool.foundation.services.CityService;
 import com.lambdaschool.foundation.services.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
@@ -29,6 +31,12 @@ public class UserController
     @Autowired
     private UserService userService;
 
+    /**
+     * Using the City service to reject unknown city names
+     */
+    @Autowired
+    private CityService cityService;
+
     /**
      * Returns a single user based off a user id number
      * <br>Example: http://localhost:2019/users/user/7
@@ -90,14 +98,16 @@ public class UserController
         @PathVariable
             long userid
     ){
+        if (!cityService.isKnownName(cityName)){
+            // no city by that name, rejected before loading the user
+            throw new ResourceNotFoundException("City name " + cityName + " not found!");
+        }
         User u = userService.findUserById(userid);
         List<UserCities> favs = u.getFavcities();
         for (int i = 0; i < favs.size(); i++){
-            if (favs.get(i).getCity().getName() == cityName){
+            if (favs.get(i).getCity().getName().equals(cityName)){
                 // found city in user's favorites
-                favs.remove(i);
-                u.setFavcities(favs);
-                userService.save(u);
+                userService.removeFav(cityName, u);
                 return new ResponseEntity<>(HttpStatus.OK);
             }
         }
@@ -0,0 +1,14 @@
+package com.lambdaschool.foundation.exceptions;
+
+/**
+ * A custom exception to be used when city data is asked for but the first ingestion failed without loading any,
+ * so asking again will not help until the data is loaded
+ */
+public class DataUnavailableException
+    extends RuntimeException
+{
+    public DataUnavailableException(String message)
+    {
+        super(message);
+    }
+}
@@ -0,0 +1,26 @@
+package com.lambdaschool.foundation.exceptions;
+
+/**
+ * A custom exception to be used when city data is asked for before the first ingestion has loaded any
+ */
+public class DataWarmingException
+    extends RuntimeException
+{
+    private final long retryAfterSeconds;
+
+    public DataWarmingException(
+        String message,
+        long retryAfterSeconds)
+    {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return how long the client should wait before asking again
+     */
+    public long getRetryAfterSeconds()
+    {
+        return retryAfterSeconds;
+    }
+}
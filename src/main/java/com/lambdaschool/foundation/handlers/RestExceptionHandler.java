@@ -1,5 +1,7 @@
 package com.lambdaschool.foundation.handlers;
 
+import com.lambdaschool.foundation.exceptions.DataUnavailableException;
+import com.lambdaschool.foundation.exceptions.DataWarmingException;
 import com.lambdaschool.foundation.exceptions.ResourceFoundException;
 import com.lambdaschool.foundation.exceptions.ResourceNotFoundException;
 import com.lambdaschool.foundation.models.ErrorDetail;
@@ -104,6 +106,54 @@ public class RestExceptionHandler
             HttpStatus.BAD_REQUEST);
     }
 
+    /**
+     * Our custom handling of DataWarmingExceptions. This gets thrown while the city data is still loading.
+     *
+     * @param dwe All the information about the exception that is thrown.
+     * @return The error details for displaying to the client plus the status Service Unavailable and when to retry.
+     */
+    @ExceptionHandler(DataWarmingException.class)
+    public ResponseEntity<?> handleDataWarmingException(DataWarmingException dwe)
+    {
+        ErrorDetail errorDetail = new ErrorDetail();
+        errorDetail.setTimestamp(new Date());
+        errorDetail.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        errorDetail.setTitle("Warming Up");
+        errorDetail.setDetail(dwe.getMessage());
+        errorDetail.setDeveloperMessage(dwe.getClass()
+            .getName());
+        errorDetail.setErrors(helperFunctions.getConstraintViolation(dwe));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, Long.toString(dwe.getRetryAfterSeconds()));
+        return new ResponseEntity<>(errorDetail,
+            headers,
+            HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * Our custom handling of DataUnavailableExceptions. This gets thrown when loading the city data failed.
+     *
+     * @param due All the information about the exception that is thrown.
+     * @return The error details for displaying to the client plus the status Service Unavailable, without a time to retry.
+     */
+    @ExceptionHandler(DataUnavailableException.class)
+    public ResponseEntity<?> handleDataUnavailableException(DataUnavailableException due)
+    {
+        ErrorDetail errorDetail = new ErrorDetail();
+        errorDetail.setTimestamp(new Date());
+        errorDetail.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        errorDetail.setTitle("Data Unavailable");
+        errorDetail.setDetail(due.getMessage());
+        errorDetail.setDeveloperMessage(due.getClass()
+            .getName());
+        errorDetail.setErrors(helperFunctions.getConstraintViolation(due));
+
+        return new ResponseEntity<>(errorDetail,
+            null,
+            HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     /**
      * All other exceptions not handled elsewhere are handled by this method.
      *
@@ -0,0 +1,222 @@
+package com.lambdaschool.foundation.ingestion;
+
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.CityOccs;
+import com.lambdaschool.foundation.exceptions.ResourceNotFoundException;
+import com.lambdaschool.foundation.models.Occupation;
+import com.lambdaschool.foundation.repository.CityRepository;
+import com.lambdaschool.foundation.services.CityService;
+import com.lambdaschool.foundation.services.OccupationDictionary;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saves ingested cities together with their occupations, one at a time through CityService or in bulk.
+ * <p>
+ * The bulk path persists the cities directly. City ids come from a pooled sequence and CityOccs have no generated
+ * id, so with hibernate.jdbc.batch_size and hibernate.order_inserts Hibernate sends the inserts in JDBC batches,
+ * a table at a time. The persistence context is flushed and cleared every citrics.ingest.flush-every cities so it
+ * does not grow with the load, and the second-level cache is left alone until the cities are read.
+ * <p>
+ * A city that is already saved is updated in place, touching only the jobs whose content hash changed.
+ */
+@Component
+public class CityLoader
+{
+    @Autowired
+    private CityService cityService;
+
+    @Autowired
+    private CityRepository cityRepository;
+
+    @Autowired
+    private OccupationDictionary occupationDictionary;
+
+    @Autowired
+    private IngestCheckpoints ingestCheckpoints;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${citrics.ingest.flush-every:500}")
+    private int flushEvery;
+
+    /**
+     * Points every job of the city at the shared Occupation of its title, then saves the city and its jobs
+     * in one transaction. The interned occupations were saved in other transactions, so the jobs get a reference
+     * to them in this one, which costs no query.
+     *
+     * @param city a city built by DsTransform
+     * @return the saved city
+     */
+    @Transactional
+    public City load(City city)
+    {
+        internOccupations(city);
+        return cityService.save(city);
+    }
+
+    /**
+     * Inserts new cities and their occupations in one transaction, in JDBC batches
+     *
+     * @param cities cities built by DsTransform, none of them saved before
+     * @return number of cities inserted
+     */
+    @Transactional
+    public int loadAll(List<City> cities)
+    {
+        return loadAll(cities, null, Collections.emptyList());
+    }
+
+    /**
+     * Inserts new cities and their occupations in one transaction, in JDBC batches,
+     * and records the keys they came from as done in the same transaction
+     *
+     * @param cities cities built by DsTransform, none of them saved before
+     * @param source the source of the cities for IngestCheckpoints, null to record nothing
+     * @param keys   every key of the source the cities came from
+     * @return number of cities inserted
+     */
+    @Transactional
+    public int loadAll(
+        List<City> cities,
+        String source,
+        Collection<String> keys)
+    {
+        entityManager.unwrap(Session.class)
+            .setCacheMode(CacheMode.IGNORE);
+
+        int count = 0;
+        for (City city : cities)
+        {
+            // references from before the last clear are detached, so each city gets its own
+            internOccupations(city);
+            entityManager.persist(city);
+            if (++count % flushEvery == 0)
+            {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        if (source != null)
+        {
+            ingestCheckpoints.record(source, keys);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        cityService.inserted(cities);
+        return count;
+    }
+
+    /**
+     * Brings a saved city up to date with fresh data from the source, in one transaction.
+     * The fields of the city are copied only if its content hash changed, and so are the facts of each job.
+     * Jobs the city did not have are added, jobs missing from the fresh data are kept.
+     *
+     * @param cityid the saved city
+     * @param fresh  the same city built by DsTransform, not saved
+     * @return how many of the jobs were inserted, updated and left unchanged
+     */
+    @Transactional
+    public RefreshReport update(
+        long cityid,
+        City fresh)
+    {
+        City city = cityRepository.findById(cityid)
+            .orElseThrow(() -> new ResourceNotFoundException("City id " + cityid + " not found!"));
+        if (city.getContentHash() != fresh.getContentHash())
+        {
+            copyFields(fresh, city);
+        }
+
+        Map<String, CityOccs> saved = new HashMap<>();
+        for (CityOccs co : city.getOccupations())
+        {
+            saved.put(co.getOccupation()
+                .getOcc_title(), co);
+        }
+
+        RefreshReport jobs = new RefreshReport();
+        for (CityOccs job : fresh.getOccupations())
+        {
+            CityOccs co = saved.get(job.getOccupation()
+                .getOcc_title());
+            if (co == null)
+            {
+                job.setCity(city);
+                job.setOccupation(reference(job.getOccupation()));
+                city.getOccupations()
+                    .add(job);
+                jobs.jobInserted();
+            } else if (co.getContentHash() != job.getContentHash())
+            {
+                co.setHourly_wage(job.getHourly_wage());
+                co.setAnnual_wage(job.getAnnual_wage());
+                co.setJobs_1000(job.getJobs_1000());
+                co.setLoc_quotient(job.getLoc_quotient());
+                co.setContentHash(job.getContentHash());
+                jobs.jobUpdated();
+            } else
+            {
+                jobs.jobUnchanged();
+            }
+        }
+
+        // through the service, so the caches and the derived data see the change
+        cityService.save(city);
+        return jobs;
+    }
+
+    private static void copyFields(
+        City from,
+        City to)
+    {
+        to.setState(from.getState());
+        to.setStudio(from.getStudio());
+        to.setOnebr(from.getOnebr());
+        to.setTwobr(from.getTwobr());
+        to.setThreebr(from.getThreebr());
+        to.setFourbr(from.getFourbr());
+        to.setOcc_title(from.getOcc_title());
+        to.setHourly_wage(from.getHourly_wage());
+        to.setAnnual_wage(from.getAnnual_wage());
+        to.setClimate_zone(from.getClimate_zone());
+        to.setSimple_climate(from.getSimple_climate());
+        to.setWalkscore(from.getWalkscore());
+        to.setPopulation(from.getPopulation());
+        to.setContentHash(from.getContentHash());
+    }
+
+    private void internOccupations(City city)
+    {
+        for (CityOccs co : city.getOccupations())
+        {
+            co.setOccupation(reference(co.getOccupation()));
+        }
+    }
+
+    private Occupation reference(Occupation occupation)
+    {
+        long occid = occupation.getOccid();
+        if (occid == 0)
+        {
+            occid = occupationDictionary.intern(occupation.getOcc_title())
+                .getOccid();
+        }
+        // else a reference from an earlier try, whose title can not be read outside its transaction
+        return entityManager.getReference(Occupation.class, occid);
+    }
+}
@@ -0,0 +1,94 @@
+package com.lambdaschool.foundation.ingestion;
+
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.CityOccs;
+
+/**
+ * 64 bit FNV-1a hashes of the fields of a city, and of a job in a city, that come from the DS API.
+ * <p>
+ * Equal data always hashes the same, across restarts and machines, so a hash stored with a row tells whether
+ * the DS data behind it changed. Each field is followed by a separator, so moving characters from one field
+ * to the next changes the hash.
+ */
+public final class ContentHash
+{
+    private static final long OFFSET = 0xcbf29ce484222325L;
+
+    private static final long PRIME = 0x100000001b3L;
+
+    private long hash = OFFSET;
+
+    private ContentHash()
+    {
+    }
+
+    /**
+     * @return hash of the DS fields of city, its id and occupations left out
+     */
+    public static long of(City city)
+    {
+        return new ContentHash().add(city.getName())
+            .add(city.getState())
+            .add(city.getStudio())
+            .add(city.getOnebr())
+            .add(city.getTwobr())
+            .add(city.getThreebr())
+            .add(city.getFourbr())
+            .add(city.getOcc_title())
+            .add(city.getHourly_wage())
+            .add(city.getAnnual_wage())
+            .add(city.getClimate_zone())
+            .add(city.getSimple_climate())
+            .add(city.getWalkscore())
+            .add(city.getPopulation()).hash;
+    }
+
+    /**
+     * @return hash of the occupation title and the facts of job, its city left out
+     */
+    public static long of(CityOccs job)
+    {
+        return new ContentHash().add(job.getOccupation() == null ? null : job.getOccupation()
+            .getOcc_title())
+            .add(job.getHourly_wage())
+            .add(job.getAnnual_wage())
+            .add(job.getJobs_1000())
+            .add(job.getLoc_quotient()).hash;
+    }
+
+    private ContentHash add(String value)
+    {
+        if (value == null)
+        {
+            return addByte(0xff);
+        }
+        for (int i = 0; i < value.length(); i++)
+        {
+            char ch = value.charAt(i);
+            addByte(ch >>> 8);
+            addByte(ch);
+        }
+        return addByte(0);
+    }
+
+    private ContentHash add(long value)
+    {
+        for (int shift = 56; shift >= 0; shift -= 8)
+        {
+            addByte((int) (value >>> shift));
+        }
+        return addByte(0);
+    }
+
+    private ContentHash add(double value)
+    {
+        return add(Double.doubleToLongBits(value));
+    }
+
+    private ContentHash addByte(int b)
+    {
+        hash ^= b & 0xff;
+        hash *= PRIME;
+        return this;
+    }
+}
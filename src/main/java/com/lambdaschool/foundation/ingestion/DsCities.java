@@ -0,0 +1,44 @@
+package com.lambdaschool.foundation.ingestion;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The cities loaded from the DS API
+ */
+public final class DsCities
+{
+    /**
+     * SeedData once made a total of 889 API calls to get data for City and Occupation tables.
+     * These are only the cities that actually returned results (133 of them), as the DS API names them:
+     * the city, url encoded, an underscore and the state.
+     */
+    public static final List<String> KEYS = Collections.unmodifiableList(Arrays.asList(
+        "New%20York_NY", "Los%20Angeles_CA", "Chicago_IL", "Houston_TX", "Philadelphia_PA", "Phoenix_AZ",
+        "San%20Antonio_TX", "San%20Diego_CA", "Dallas_TX", "San%20Jose_CA", "Indianapolis_IN", "Jacksonville_FL",
+        "San%20Francisco_CA", "Austin_TX", "Charlotte_NC", "Detroit_MI", "EL%20Paso_TX", "Memphis_TN",
+        "Baltimore_MD", "Boston_MA", "Washington_DC", "Denver_CO", "Milwaukee_WI", "Portland_OR", "Las%20Vegas_NV",
+        "Oklahoma%20City_OK", "Albuquerque_NM", "Fresno_CA", "Sacramento_CA", "Kansas%20City_MO",
+        "Virginia%20Beach_VA", "Atlanta_GA", "Colorado%20Springs_CO", "Omaha_NE", "Raleigh_NC", "Miami_FL",
+        "Cleveland_OH", "Tulsa_OK", "Minneapolis_MN", "Wichita_KS", "Bakersfield_CA", "New%20Orleans_LA", "Tampa_FL",
+        "Pittsburgh_PA", "Corpus%20Christi_TX", "Riverside_CA", "Cincinnati_OH", "Stockton_CA", "Toledo_OH",
+        "Greensboro_NC", "Buffalo_NY", "Lincoln_NE", "Fort%20Wayne_IN", "Orlando_FL", "Laredo_TX", "Madison_WI",
+        "Lubbock_TX", "Baton%20Rouge_LA", "Reno_NV", "Birmingham_AL", "Rochester_NY", "Spokane_WA", "Montgomery_AL",
+        "Richmond_VA", "Des%20Moines_IA", "Fayetteville_NC", "Shreveport_LA", "Mobile_AL", "Amarillo_TX",
+        "Grand%20Rapids_MI", "Salt%20Lake%20City_UT", "Worcester_MA", "Huntsville_AL", "Knoxville_TN",
+        "Providence_RI", "Jackson_MS", "Chattanooga_TN", "Port%20St.%20Lucie_FL", "Eugene_OR", "Cape%20Coral_FL",
+        "Salinas_CA", "Fort%20Collins_CO", "Dayton_OH", "Clarksville_TN", "New%20Haven_CT", "Columbia_SC",
+        "Killeen_TX", "Topeka_KS", "Cedar%20Rapids_IA", "Waco_TX", "Abilene_TX", "Lansing_MI", "Ann%20Arbor_MI",
+        "Manchester_NH", "Flint_MI", "Davenport_IA", "Las%20Cruces_NM", "Lakeland_FL", "Tyler_TX", "Lawton_OK",
+        "College%20Station_TX", "Yuma_AZ", "Lawrence_KS", "Fort%20Smith_AR", "Trenton_NJ", "Allen_TX",
+        "Kalamazoo_MI", "Muncie_IN", "Missoula_MT", "Warner%20Robins_GA", "Victoria_TX", "Santa%20Cruz_CA",
+        "Cheyenne_WY", "Bowling%20Green_KY", "Ocala_FL", "Carson%20City_NV", "Valdosta_GA", "Corvallis_OR",
+        "Grand%20Forks_ND", "Battle%20Creek_MI", "Manhattan_KS", "Saginaw_MI", "Harrisonburg_VA", "Olympia_WA",
+        "Hattiesburg_MS", "Sierra%20Vista_AZ", "Charlottesville_VA", "Muskegon_MI", "Texarkana_TX", "Dover_DE",
+        "Hinesville_GA", "Fairbanks_AK", "Naples_FL"));
+
+    private DsCities()
+    {
+    }
+}
@@ -0,0 +1,163 @@
+package com.lambdaschool.foundation.ingestion;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous client of the DS API.
+ * <p>
+ * At most citrics.ds.concurrency requests are in flight at once; callers asking for more wait for a slot,
+ * which keeps a large ingest from flooding the API. Every request times out after citrics.ds.timeout-ms.
+ * Timeouts, connection errors, 429 and 5xx responses are retried up to citrics.ds.retries times, waiting
+ * citrics.ds.retry-backoff-ms before the first retry and twice as long before each one after.
+ * Retries are counted in citrics.ds.retries. A 404 means the API does not have the resource; any other answer,
+ * or a body the parser can not read, fails the request without retrying, since asking again gets the same.
+ * <p>
+ * Each resource is one GET, sent over HTTP/1.1 so connections stay open between requests and are reused by the
+ * next ones instead of connecting again. The body is handed to the caller's BodyParser as a stream while it arrives,
+ * so a response is never held whole as a String.
+ */
+@Component
+public class DsClient
+{
+    private final HttpClient http;
+
+    private final String baseUrl;
+
+    private final Semaphore slots;
+
+    private final Duration timeout;
+
+    private final int retries;
+
+    private final long backoffMs;
+
+    private final Counter retried;
+
+    /**
+     * @param baseUrl     where the DS API is, without a trailing slash
+     * @param concurrency most requests in flight at once
+     * @param timeoutMs   longest wait for a response, connecting included
+     * @param retries     times a failed request is tried again
+     * @param backoffMs   wait before the first retry
+     */
+    public DsClient(
+        @Value("${citrics.ds.base-url:http://26-citrics-a-ds.eba-tjpigfip.us-east-1.elasticbeanstalk.com}")
+            String baseUrl,
+        @Value("${citrics.ds.concurrency:8}")
+            int concurrency,
+        @Value("${citrics.ds.timeout-ms:10000}")
+            long timeoutMs,
+        @Value("${citrics.ds.retries:2}")
+            int retries,
+        @Value("${citrics.ds.retry-backoff-ms:200}")
+            long backoffMs)
+    {
+        this.baseUrl = baseUrl;
+        this.slots = new Semaphore(concurrency);
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.retries = retries;
+        this.backoffMs = backoffMs;
+        http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(timeout)
+            .build();
+        retried = Counter.builder("citrics.ds.retries")
+            .description("DS API requests tried again after a failure")
+            .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Reads the body of a response
+     */
+    @FunctionalInterface
+    public interface BodyParser<T>
+    {
+        T parse(InputStream body) throws IOException;
+    }
+
+    /**
+     * Requests a resource of the DS API, waiting first if citrics.ds.concurrency requests are already in flight
+     *
+     * @param path   path of the resource, starting with a slash
+     * @param parser reads the body, on a thread of the client, while it arrives
+     * @return completes with what parser read, or with null if the API does not have the resource; fails with an
+     * IOException if the API answered with an error or a body parser could not read
+     */
+    public <T> CompletableFuture<T> get(
+        String path,
+        BodyParser<T> parser)
+    {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .timeout(timeout)
+            .GET()
+            .build();
+
+        slots.acquireUninterruptibly();
+        return send(request, parser, 0).whenComplete((body, error) -> slots.release());
+    }
+
+    private <T> CompletableFuture<T> send(
+        HttpRequest request,
+        BodyParser<T> parser,
+        int attempt)
+    {
+        return http.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+            .handle((response, error) ->
+            {
+                Throwable failure = error;
+                if (failure == null)
+                {
+                    int status = response.statusCode();
+                    try (InputStream body = response.body())
+                    {
+                        if (status == 200)
+                        {
+                            return CompletableFuture.completedFuture(parser.parse(body));
+                        }
+                        if (status == 404)
+                        {
+                            return CompletableFuture.<T>completedFuture(null);
+                        }
+                        failure = new IOException(request.uri() + " answered " + status);
+                        if (status != 429 && status < 500)
+                        {
+                            return CompletableFuture.<T>failedFuture(failure);
+                        }
+                    } catch (JsonProcessingException e)
+                    {
+                        // the body arrived but is not what the parser reads, and will not be the next time either
+                        return CompletableFuture.<T>failedFuture(e);
+                    } catch (IOException e)
+                    {
+                        // the connection broke while the body was read
+                        failure = e;
+                    }
+                }
+                if (attempt >= retries)
+                {
+                    return CompletableFuture.<T>failedFuture(failure);
+                }
+                retried.increment();
+                Executor later = CompletableFuture.delayedExecutor(backoffMs << attempt, TimeUnit.MILLISECONDS);
+                return CompletableFuture.runAsync(() -> { }, later)
+                    .thenCompose(ignored -> send(request, parser, attempt + 1));
+            })
+            .thenCompose(result -> result);
+    }
+}
@@ -0,0 +1,199 @@
+package com.lambdaschool.foundation.ingestion;
+
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.CityOccs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Loads cities from the DS API into the database.
+ * <p>
+ * Every city goes through four stages of an IngestPipeline, each with its own threads:
+ * fetch reads the raw static and bls_jobs responses through DsClient, parse reads them with DsPayload, normalize
+ * turns them into cities with DsTransform, and persist hands them to IngestBatch, which inserts the cities of
+ * citrics.ingest.batch-keys keys at a time. Persist has one thread, so the database sees one writer.
+ * The stages are connected by queues of citrics.ingest.pipeline.capacity cities, so when the database falls behind
+ * the fetchers wait rather than buffer responses. A city that fails is logged and counted, and does not stop the others.
+ * <p>
+ * Each batch is its own transaction and records its cities in IngestCheckpoints, so if a run stops part way
+ * the next one asks only for the cities not done yet. With citrics.ingest.resume=false every run starts over.
+ */
+@Component
+public class DsIngestion
+{
+    private static final Logger logger = LoggerFactory.getLogger(DsIngestion.class);
+
+    /**
+     * The source of the DS API in IngestCheckpoints
+     */
+    public static final String SOURCE = "ds";
+
+    @Autowired
+    private DsClient dsClient;
+
+    @Autowired
+    private CityLoader cityLoader;
+
+    @Autowired
+    private IngestCheckpoints ingestCheckpoints;
+
+    @Value("${citrics.ingest.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${citrics.ingest.batch-keys:25}")
+    private int batchKeys;
+
+    @Value("${citrics.ingest.resume:true}")
+    private boolean resume;
+
+    @Value("${citrics.ingest.pipeline.capacity:16}")
+    private int capacity;
+
+    @Value("${citrics.ingest.pipeline.fetch-threads:8}")
+    private int fetchThreads;
+
+    @Value("${citrics.ingest.pipeline.parse-threads:2}")
+    private int parseThreads;
+
+    @Value("${citrics.ingest.pipeline.normalize-threads:1}")
+    private int normalizeThreads;
+
+    /**
+     * @param cityKeys the cities to load, as the DS API names them: the city, url encoded, an underscore and the state
+     * @return what was loaded
+     */
+    public IngestReport ingest(List<String> cityKeys)
+    {
+        long start = System.currentTimeMillis();
+        Set<String> done = Collections.emptySet();
+        if (resume)
+        {
+            done = ingestCheckpoints.done(SOURCE);
+        } else
+        {
+            ingestCheckpoints.clear(SOURCE);
+        }
+
+        List<String> todo = new ArrayList<>();
+        for (String key : cityKeys)
+        {
+            if (!done.contains(key))
+            {
+                todo.add(key);
+            }
+        }
+
+        IngestBatch batch = new IngestBatch(cityLoader, batchSize, batchKeys, SOURCE);
+        List<KeyItem> items = new ArrayList<>(todo.size());
+        for (String key : todo)
+        {
+            items.add(new KeyItem(key));
+        }
+        IngestPipeline<KeyItem> pipeline = new IngestPipeline<KeyItem>(capacity)
+            .stage("fetch", fetchThreads, this::fetchBodies)
+            .stage("parse", parseThreads, DsIngestion::parse)
+            .stage("normalize", normalizeThreads, item -> item.cities = toCities(item.data, item.jobs))
+            .stage("persist", 1, item -> batch.add(item.key, item.cities));
+        try
+        {
+            pipeline.run(items, (item, error) ->
+            {
+                batch.failed();
+                logger.warn("Could not load city {}", item.key, error);
+            });
+            batch.persist();
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread()
+                .interrupt();
+            logger.warn("Ingest interrupted, the cities not saved yet are left for the next run");
+        }
+
+        return new IngestReport(cityKeys.size(), batch.getLoaded(), cityKeys.size() - todo.size(), batch.getFailed(),
+            System.currentTimeMillis() - start);
+    }
+
+    private void fetchBodies(KeyItem item)
+    {
+        CompletableFuture<byte[]> data = dsClient.get("/static/" + item.key, InputStream::readAllBytes);
+        CompletableFuture<byte[]> jobs = dsClient.get("/bls_jobs/" + item.key, InputStream::readAllBytes);
+        item.staticBody = data.join();
+        item.jobsBody = jobs.join();
+    }
+
+    private static void parse(KeyItem item) throws IOException
+    {
+        if (item.staticBody != null)
+        {
+            item.data = DsPayload.cities(new ByteArrayInputStream(item.staticBody));
+        }
+        if (item.jobsBody != null)
+        {
+            item.jobs = DsPayload.jobs(new ByteArrayInputStream(item.jobsBody));
+        }
+        // parsed, the raw responses are not needed any more
+        item.staticBody = null;
+        item.jobsBody = null;
+    }
+
+    /**
+     * Requests the static and bls_jobs resources of a city, waiting first if DsClient has no free slot
+     *
+     * @param key the city as the DS API names it
+     * @return completes with the cities of the key transformed by DsTransform, not saved, none if the DS API
+     * does not have it
+     */
+    public CompletableFuture<List<City>> fetch(String key)
+    {
+        CompletableFuture<List<City>> data = dsClient.get("/static/" + key, DsPayload::cities);
+        CompletableFuture<List<CityOccs>> jobs = dsClient.get("/bls_jobs/" + key, DsPayload::jobs);
+        return data.thenCombine(jobs, DsIngestion::toCities);
+    }
+
+    private static List<City> toCities(
+        List<City> data,
+        List<CityOccs> jobs)
+    {
+        if (data == null)
+        {
+            // the DS API has nothing for this city
+            return Collections.emptyList();
+        }
+        return DsTransform.toCities(data, jobs == null ? Collections.emptyList() : jobs);
+    }
+
+    /**
+     * One city key and what the stages of the pipeline made of it so far
+     */
+    private static final class KeyItem
+    {
+        private final String key;
+
+        private byte[] staticBody;
+
+        private byte[] jobsBody;
+
+        private List<City> data;
+
+        private List<CityOccs> jobs;
+
+        private List<City> cities;
+
+        private KeyItem(String key)
+        {
+            this.key = key;
+        }
+    }
+}
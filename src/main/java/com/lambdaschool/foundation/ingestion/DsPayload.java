@@ -0,0 +1,288 @@
+package com.lambdaschool.foundation.ingestion;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.CityOccs;
+import com.lambdaschool.foundation.models.Occupation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads DS responses straight into City and CityOccs values.
+ * <p>
+ * The DS API answers with a JSON string that itself holds a JSON array of objects. Its characters are parsed in
+ * place, from the buffer of the parser of the response, by a second streaming parser, and each object is bound
+ * field by field as its tokens go by. No String of the array or of an object is made, and no tree.
+ * A response that is the array itself, not encoded as a string, is read the same way.
+ * <p>
+ * The same objects, one per line (NDJSON), are the format of the files FileIngestion loads from.
+ * Objects of the bls_jobs resource name their city, so a line of jobs can be matched to the line of its city.
+ * <p>
+ * The parsers come from one ObjectMapper shared by every request, so its symbol tables and buffers are reused.
+ */
+public final class DsPayload
+{
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private DsPayload()
+    {
+    }
+
+    /**
+     * Binds one object, the parser is on its START_OBJECT and must be left on its END_OBJECT
+     */
+    @FunctionalInterface
+    private interface Binder<T>
+    {
+        T bind(JsonParser parser) throws IOException;
+    }
+
+    /**
+     * @param body a response of the static resource, closed once read
+     * @return the cities in it, without occupations
+     * @throws IOException if the response can not be read or is not valid JSON
+     */
+    public static List<City> cities(InputStream body) throws IOException
+    {
+        return read(body, DsPayload::city);
+    }
+
+    /**
+     * @param body a response of the bls_jobs resource, closed once read
+     * @return the jobs in it, each with an unsaved Occupation of its title, and an unsaved City holding the name
+     * and state of the city it is in if the object has them
+     * @throws IOException if the response can not be read or is not valid JSON
+     */
+    public static List<CityOccs> jobs(InputStream body) throws IOException
+    {
+        return read(body, DsPayload::job);
+    }
+
+    /**
+     * @param lines objects of the static resource, one per line, closed once read
+     * @return the cities, without occupations
+     * @throws IOException if the lines can not be read or are not valid JSON
+     */
+    public static List<City> cityLines(InputStream lines) throws IOException
+    {
+        return readLines(lines, DsPayload::city);
+    }
+
+    /**
+     * @param lines objects of the bls_jobs resource, one per line, closed once read
+     * @return the jobs, each with an unsaved Occupation of its title and an unsaved City holding only
+     * the name and state of the city it is in
+     * @throws IOException if the lines can not be read or are not valid JSON
+     */
+    public static List<CityOccs> jobLines(InputStream lines) throws IOException
+    {
+        return readLines(lines, DsPayload::job);
+    }
+
+    private static <T> List<T> readLines(
+        InputStream lines,
+        Binder<T> binder) throws IOException
+    {
+        List<T> values = new ArrayList<>();
+        try (JsonParser parser = mapper.getFactory()
+            .createParser(lines))
+        {
+            // a parser reads root values one after another, whatever whitespace is between them
+            JsonToken token;
+            while ((token = parser.nextToken()) != null)
+            {
+                if (token == JsonToken.START_OBJECT)
+                {
+                    values.add(binder.bind(parser));
+                } else
+                {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return values;
+    }
+
+    private static <T> List<T> read(
+        InputStream body,
+        Binder<T> binder) throws IOException
+    {
+        JsonFactory factory = mapper.getFactory();
+        try (JsonParser outer = factory.createParser(body))
+        {
+            JsonToken token = outer.nextToken();
+            if (token != JsonToken.VALUE_STRING)
+            {
+                return readArray(outer, token, binder);
+            }
+            try (JsonParser inner = factory.createParser(outer.getTextCharacters(), outer.getTextOffset(),
+                outer.getTextLength()))
+            {
+                return readArray(inner, inner.nextToken(), binder);
+            }
+        }
+    }
+
+    private static <T> List<T> readArray(
+        JsonParser parser,
+        JsonToken token,
+        Binder<T> binder) throws IOException
+    {
+        List<T> values = new ArrayList<>();
+        if (token == null)
+        {
+            // an empty response
+            return values;
+        }
+        if (token == JsonToken.START_OBJECT)
+        {
+            values.add(binder.bind(parser));
+            return values;
+        }
+        if (token != JsonToken.START_ARRAY)
+        {
+            throw new JsonParseException(parser, "Expected an array of objects but found " + token);
+        }
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY)
+        {
+            if (token == JsonToken.START_OBJECT)
+            {
+                values.add(binder.bind(parser));
+            } else
+            {
+                parser.skipChildren();
+            }
+        }
+        return values;
+    }
+
+    private static String text(JsonParser parser) throws IOException
+    {
+        return parser.currentToken() == JsonToken.VALUE_STRING ? parser.getText() : null;
+    }
+
+    private static City city(JsonParser parser) throws IOException
+    {
+        String name = null;
+        String state = null;
+        int studio = 0;
+        int onebr = 0;
+        int twobr = 0;
+        int threebr = 0;
+        int fourbr = 0;
+        String occTitle = null;
+        double hourlyWage = 0;
+        int annualWage = 0;
+        String climateZone = null;
+        String simpleClimate = null;
+        double walkscore = 0;
+        int population = 0;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME)
+        {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field)
+            {
+                case "city":
+                    name = text(parser);
+                    break;
+                case "state":
+                    state = text(parser);
+                    break;
+                case "studio":
+                    studio = parser.getValueAsInt();
+                    break;
+                case "onebr":
+                    onebr = parser.getValueAsInt();
+                    break;
+                case "twobr":
+                    twobr = parser.getValueAsInt();
+                    break;
+                case "threebr":
+                    threebr = parser.getValueAsInt();
+                    break;
+                case "fourbr":
+                    fourbr = parser.getValueAsInt();
+                    break;
+                case "occ_title":
+                    occTitle = text(parser);
+                    break;
+                case "hourly_wage":
+                    hourlyWage = parser.getValueAsDouble();
+                    break;
+                case "annual_wage":
+                    annualWage = parser.getValueAsInt();
+                    break;
+                case "climate_zone":
+                    climateZone = text(parser);
+                    break;
+                case "simple_climate":
+                    simpleClimate = text(parser);
+                    break;
+                case "walkscore":
+                    walkscore = parser.getValueAsDouble();
+                    break;
+                case "population":
+                    population = parser.getValueAsInt();
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return new City(name, state, studio, onebr, twobr, threebr, fourbr, occTitle, hourlyWage, annualWage,
+            climateZone, simpleClimate, walkscore, population);
+    }
+
+    private static CityOccs job(JsonParser parser) throws IOException
+    {
+        CityOccs job = new CityOccs();
+        String city = null;
+        String state = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME)
+        {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field)
+            {
+                case "city":
+                    city = text(parser);
+                    break;
+                case "state":
+                    state = text(parser);
+                    break;
+                case "occ_title":
+                    job.setOccupation(new Occupation(text(parser)));
+                    break;
+                case "hourly_wage":
+                    job.setHourly_wage(parser.getValueAsDouble());
+                    break;
+                case "annual_wage":
+                    job.setAnnual_wage(parser.getValueAsInt());
+                    break;
+                case "jobs_1000":
+                    job.setJobs_1000(parser.getValueAsDouble());
+                    break;
+                case "loc_quotient":
+                    job.setLoc_quotient(parser.getValueAsDouble());
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        if (city != null || state != null)
+        {
+            City in = new City(city);
+            in.setState(state);
+            job.setCity(in);
+        }
+        return job;
+    }
+}
@@ -0,0 +1,157 @@
+package com.lambdaschool.foundation.ingestion;
+
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.CityContentHash;
+import com.lambdaschool.foundation.models.CityOccs;
+import com.lambdaschool.foundation.models.JobContentHash;
+import com.lambdaschool.foundation.repository.CityOccsRepository;
+import com.lambdaschool.foundation.repository.CityRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Brings the saved cities up to date with the DS API without reloading them.
+ * <p>
+ * Every city and every job carries the content hash of the fields the DS API gives, see ContentHash.
+ * A refresh reads the stored hashes with two queries, fetches every city from the DS API the same way DsIngestion
+ * does, and compares. Cities that are new are inserted in batches, cities with a changed hash or a changed or new job
+ * are updated by CityLoader one transaction each, and the rest are not written at all. Nothing is deleted.
+ */
+@Component
+public class DsRefresh
+{
+    private static final Logger logger = LoggerFactory.getLogger(DsRefresh.class);
+
+    @Autowired
+    private DsIngestion dsIngestion;
+
+    @Autowired
+    private CityLoader cityLoader;
+
+    @Autowired
+    private CityRepository cityRepository;
+
+    @Autowired
+    private CityOccsRepository cityOccsRepository;
+
+    @Value("${citrics.ingest.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${citrics.ingest.batch-keys:25}")
+    private int batchKeys;
+
+    /**
+     * @param cityKeys the cities to refresh, as the DS API names them
+     * @return how many cities and jobs were inserted, updated and left unchanged
+     */
+    public RefreshReport refresh(List<String> cityKeys)
+    {
+        long start = System.currentTimeMillis();
+        RefreshReport report = new RefreshReport();
+
+        Map<String, CityContentHash> cityHashes = new HashMap<>();
+        for (CityContentHash hash : cityRepository.findAllContentHashes())
+        {
+            cityHashes.put(key(hash.getName(), hash.getState()), hash);
+        }
+        Map<Long, Map<String, Long>> jobHashes = new HashMap<>();
+        for (JobContentHash hash : cityOccsRepository.findAllContentHashes())
+        {
+            jobHashes.computeIfAbsent(hash.getCityid(), id -> new HashMap<>())
+                .put(hash.getTitle(), hash.getContentHash());
+        }
+
+        List<CompletableFuture<List<City>>> fetched = new ArrayList<>();
+        for (String key : cityKeys)
+        {
+            fetched.add(dsIngestion.fetch(key));
+        }
+
+        // new cities are refreshed, not ingested, so they leave no checkpoints
+        IngestBatch batch = new IngestBatch(cityLoader, batchSize, batchKeys, null);
+        for (int i = 0; i < cityKeys.size(); i++)
+        {
+            String key = cityKeys.get(i);
+            try
+            {
+                List<City> cities = fetched.get(i)
+                    .join();
+                List<City> inserted = new ArrayList<>();
+                for (City city : cities)
+                {
+                    CityContentHash stored = cityHashes.get(key(city.getName(), city.getState()));
+                    if (stored == null)
+                    {
+                        inserted.add(city);
+                    } else if (stored.getContentHash() == city.getContentHash() &&
+                        unchanged(city, jobHashes.getOrDefault(stored.getCityid(), Collections.emptyMap())))
+                    {
+                        report.cityUnchanged(city.getOccupations()
+                            .size());
+                    } else
+                    {
+                        report.cityUpdated(cityLoader.update(stored.getCityid(), city));
+                    }
+                }
+                if (!inserted.isEmpty())
+                {
+                    batch.add(key, inserted);
+                    for (City city : inserted)
+                    {
+                        report.cityInserted(city.getOccupations()
+                            .size());
+                    }
+                }
+            } catch (RuntimeException e)
+            {
+                report.failed();
+                logger.warn("Could not refresh city {}", key, e);
+            }
+        }
+        batch.persist();
+        for (int i = 0; i < batch.getFailed(); i++)
+        {
+            report.failed();
+        }
+
+        report.setMillis(System.currentTimeMillis() - start);
+        logger.info("Refreshed cities from the DS API: {}", report);
+        return report;
+    }
+
+    /**
+     * @return what tells a stored city apart from another of the same name, in another state
+     */
+    private static String key(
+        String name,
+        String state)
+    {
+        return name + "_" + state;
+    }
+
+    private static boolean unchanged(
+        City city,
+        Map<String, Long> stored)
+    {
+        for (CityOccs job : city.getOccupations())
+        {
+            Long hash = stored.get(job.getOccupation()
+                .getOcc_title());
+            if (hash == null || hash != job.getContentHash())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,32 @@
+package com.lambdaschool.foundation.ingestion;
+
+import com.lambdaschool.foundation.services.CitySnapshotFile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Refreshes every city from the DS API on a schedule, see DsRefresh.
+ * Runs citrics.ds.refresh.interval-ms after the previous run finished, then writes the CitySnapshotFile again.
+ * <p>
+ * Turned on with citrics.ds.refresh.enabled=true.
+ */
+@Component
+@ConditionalOnProperty(name = "citrics.ds.refresh.enabled", havingValue = "true")
+public class DsRefreshJob
+{
+    @Autowired
+    private DsRefresh dsRefresh;
+
+    @Autowired
+    private CitySnapshotFile citySnapshotFile;
+
+    @Scheduled(initialDelayString = "${citrics.ds.refresh.initial-delay-ms:3600000}",
+        fixedDelayString = "${citrics.ds.refresh.interval-ms:86400000}")
+    public void scheduledRefresh()
+    {
+        dsRefresh.refresh(DsCities.KEYS);
+        citySnapshotFile.save();
+    }
+}
@@ -0,0 +1,52 @@
+package com.lambdaschool.foundation.ingestion;
+
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.CityOccs;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Turns what DsPayload read from the DS static and bls_jobs resources into the cities to save
+ */
+public final class DsTransform
+{
+    private DsTransform()
+    {
+    }
+
+    /**
+     * Gives every city of one static response each job of the matching bls_jobs response.
+     * A city has one job per occupation title: jobs without a title, and any after the first with a title, are dropped.
+     *
+     * @param cities the cities of the static resource
+     * @param jobs   the jobs of the bls_jobs resource, with an unsaved Occupation of their title
+     * @return the cities, not saved yet, their occupations still to be interned by OccupationDictionary,
+     * with the ContentHash of each city and job set
+     */
+    public static List<City> toCities(
+        List<City> cities,
+        List<CityOccs> jobs)
+    {
+        for (City city : cities)
+        {
+            city.setContentHash(ContentHash.of(city));
+            Set<String> titles = new HashSet<>();
+            for (CityOccs job : jobs)
+            {
+                String title = job.getOccupation() == null ? null : job.getOccupation()
+                    .getOcc_title();
+                if (title != null && titles.add(title))
+                {
+                    CityOccs co = new CityOccs(city, job.getOccupation(), job.getHourly_wage(), job.getAnnual_wage(),
+                        job.getJobs_1000(), job.getLoc_quotient());
+                    co.setContentHash(ContentHash.of(co));
+                    city.getOccupations()
+                        .add(co);
+                }
+            }
+        }
+        return cities;
+    }
+}
@@ -0,0 +1,200 @@
+package com.lambdaschool.foundation.ingestion;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.CityOccs;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads cities from files instead of the DS API, for a startup that does not depend on the network
+ * and loads the same data every time.
+ * <p>
+ * The files hold the objects of the DS static and bls_jobs resources, one per line (NDJSON): one file of cities
+ * and one of the jobs of every city, matched to their city by name and state. They are read by DsPayload and
+ * transformed by DsTransform like DS responses are, then saved through IngestBatch.
+ * <p>
+ * Like DsIngestion, each batch records its cities in IngestCheckpoints and a run skips the cities already done,
+ * unless citrics.ingest.resume=false.
+ * <p>
+ * export writes the files from cities already loaded, so a DS ingest can be recorded once and replayed after.
+ */
+@Component
+public class FileIngestion
+{
+    /**
+     * The source of the files in IngestCheckpoints
+     */
+    public static final String SOURCE = "file";
+
+    @Autowired
+    private CityLoader cityLoader;
+
+    @Autowired
+    private IngestCheckpoints ingestCheckpoints;
+
+    @Value("${citrics.ingest.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${citrics.ingest.batch-keys:25}")
+    private int batchKeys;
+
+    @Value("${citrics.ingest.resume:true}")
+    private boolean resume;
+
+    /**
+     * @param citiesFile objects of the static resource, one per line
+     * @param jobsFile   objects of the bls_jobs resource, one per line, naming their city and state
+     * @return what was loaded
+     * @throws IOException if a file can not be read or is not valid JSON
+     */
+    public IngestReport ingest(
+        Path citiesFile,
+        Path jobsFile) throws IOException
+    {
+        long start = System.currentTimeMillis();
+
+        Map<String, List<CityOccs>> jobsByCity = new HashMap<>();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(jobsFile)))
+        {
+            for (CityOccs job : DsPayload.jobLines(in))
+            {
+                if (job.getCity() != null)
+                {
+                    jobsByCity.computeIfAbsent(key(job.getCity()), k -> new ArrayList<>())
+                        .add(job);
+                }
+            }
+        }
+
+        List<City> cities;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(citiesFile)))
+        {
+            cities = DsPayload.cityLines(in);
+        }
+
+        Set<String> done = Collections.emptySet();
+        if (resume)
+        {
+            done = ingestCheckpoints.done(SOURCE);
+        } else
+        {
+            ingestCheckpoints.clear(SOURCE);
+        }
+
+        IngestBatch batch = new IngestBatch(cityLoader, batchSize, batchKeys, SOURCE);
+        int skipped = 0;
+        for (City city : cities)
+        {
+            String key = key(city);
+            if (done.contains(key))
+            {
+                skipped++;
+                continue;
+            }
+            batch.add(key, DsTransform.toCities(Collections.singletonList(city),
+                jobsByCity.getOrDefault(key, Collections.emptyList())));
+        }
+        batch.persist();
+
+        return new IngestReport(cities.size(), batch.getLoaded(), skipped, batch.getFailed(),
+            System.currentTimeMillis() - start);
+    }
+
+    /**
+     * @return name and state, the way the DS API keys a city
+     */
+    private static String key(City city)
+    {
+        return city.getName() + "_" + city.getState();
+    }
+
+    /**
+     * Writes cities and their jobs in the format ingest reads
+     *
+     * @param cities     cities with their occupations loaded
+     * @param citiesFile where the cities go, replaced if it exists
+     * @param jobsFile   where the jobs go, replaced if it exists
+     * @throws IOException if a file can not be written
+     */
+    public static void export(
+        List<City> cities,
+        Path citiesFile,
+        Path jobsFile) throws IOException
+    {
+        JsonFactory factory = new JsonFactory();
+        try (OutputStream cityOut = new BufferedOutputStream(Files.newOutputStream(citiesFile));
+             OutputStream jobOut = new BufferedOutputStream(Files.newOutputStream(jobsFile));
+             JsonGenerator cityLines = factory.createGenerator(cityOut);
+             JsonGenerator jobLines = factory.createGenerator(jobOut))
+        {
+            cityLines.setRootValueSeparator(null);
+            jobLines.setRootValueSeparator(null);
+            for (City city : cities)
+            {
+                writeCity(cityLines, city);
+                cityLines.writeRaw('\n');
+                for (CityOccs job : city.getOccupations())
+                {
+                    writeJob(jobLines, city, job);
+                    jobLines.writeRaw('\n');
+                }
+            }
+        }
+    }
+
+    private static void writeCity(
+        JsonGenerator out,
+        City city) throws IOException
+    {
+        out.writeStartObject();
+        out.writeStringField("city", city.getName());
+        out.writeStringField("state", city.getState());
+        out.writeNumberField("studio", city.getStudio());
+        out.writeNumberField("onebr", city.getOnebr());
+        out.writeNumberField("twobr", city.getTwobr());
+        out.writeNumberField("threebr", city.getThreebr());
+        out.writeNumberField("fourbr", city.getFourbr());
+        out.writeStringField("occ_title", city.getOcc_title());
+        out.writeNumberField("hourly_wage", city.getHourly_wage());
+        out.writeNumberField("annual_wage", city.getAnnual_wage());
+        out.writeStringField("climate_zone", city.getClimate_zone());
+        out.writeStringField("simple_climate", city.getSimple_climate());
+        out.writeNumberField("walkscore", city.getWalkscore());
+        out.writeNumberField("population", city.getPopulation());
+        out.writeEndObject();
+    }
+
+    private static void writeJob(
+        JsonGenerator out,
+        City city,
+        CityOccs job) throws IOException
+    {
+        out.writeStartObject();
+        out.writeStringField("city", city.getName());
+        out.writeStringField("state", city.getState());
+        out.writeStringField("occ_title", job.getOccupation()
+            .getOcc_title());
+        out.writeNumberField("hourly_wage", job.getHourly_wage());
+        out.writeNumberField("annual_wage", job.getAnnual_wage());
+        out.writeNumberField("jobs_1000", job.getJobs_1000());
+        out.writeNumberField("loc_quotient", job.getLoc_quotient());
+        out.writeEndObject();
+    }
+}
@@ -0,0 +1,159 @@
+package com.lambdaschool.foundation.ingestion;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.HistoryMetric;
+import com.lambdaschool.foundation.services.CityHistory;
+import com.lambdaschool.foundation.services.CityService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Loads the historical series of the cities into CityHistory from a file.
+ * <p>
+ * The file holds one value per line (NDJSON), naming its city, metric and time:
+ * {"city":"Seattle","state":"WA","metric":"housing","year":2015,"month":3,"value":1850}.
+ * Month and day are left out for yearly values, day for monthly ones. Lines may come in any order.
+ * The city must have been loaded already, with that name and state; values of other cities, of unknown metrics,
+ * without a value or with a time that is not one are counted as skipped: a year from 1 to 9999, a month up to 12,
+ * a day up to 31 and only with a month.
+ */
+@Component
+public class HistoryIngestion
+{
+    private static final Logger logger = LoggerFactory.getLogger(HistoryIngestion.class);
+
+    private static final JsonFactory factory = new JsonFactory();
+
+    @Autowired
+    private CityService cityService;
+
+    @Autowired
+    private CityHistory cityHistory;
+
+    /**
+     * @param historyFile values of the historical series, one per line
+     * @return number of values loaded
+     * @throws IOException if the file can not be read or is not valid JSON
+     */
+    public int ingest(Path historyFile) throws IOException
+    {
+        long start = System.currentTimeMillis();
+        CityHistory.Builder builder = new CityHistory.Builder();
+        // the id of every city and state named in the file, null for those we do not have
+        Map<String, Long> cityids = new HashMap<>();
+        int skipped = 0;
+
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(historyFile));
+             JsonParser parser = factory.createParser(in))
+        {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null)
+            {
+                if (token != JsonToken.START_OBJECT)
+                {
+                    parser.skipChildren();
+                    continue;
+                }
+
+                String name = null;
+                String state = null;
+                HistoryMetric metric = null;
+                int year = 0;
+                int month = 0;
+                int day = 0;
+                Double value = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME)
+                {
+                    String field = parser.getCurrentName();
+                    parser.nextToken();
+                    switch (field)
+                    {
+                        case "city":
+                            name = parser.getValueAsString();
+                            break;
+                        case "state":
+                            state = parser.getValueAsString();
+                            break;
+                        case "metric":
+                            metric = HistoryMetric.fromField(parser.getValueAsString());
+                            break;
+                        case "year":
+                            year = parser.getValueAsInt();
+                            break;
+                        case "month":
+                            month = parser.getValueAsInt();
+                            break;
+                        case "day":
+                            day = parser.getValueAsInt();
+                            break;
+                        case "value":
+                            value = parser.currentToken() == JsonToken.VALUE_NULL ? null : parser.getValueAsDouble();
+                            break;
+                        default:
+                            parser.skipChildren();
+                    }
+                }
+
+                if (name == null || metric == null || value == null || !isTime(year, month, day))
+                {
+                    skipped++;
+                    continue;
+                }
+                String key = name + "_" + state;
+                if (!cityids.containsKey(key))
+                {
+                    cityids.put(key, cityid(name, state));
+                }
+                Long cityid = cityids.get(key);
+                if (cityid == null)
+                {
+                    skipped++;
+                    continue;
+                }
+                builder.add(cityid, metric, year, month, day, value);
+            }
+        }
+
+        cityHistory.load(builder);
+        logger.info("Loaded {} historical values of {} cities from {} in {} ms, skipped {}", builder.size(),
+            builder.cityCount(), historyFile, System.currentTimeMillis() - start, skipped);
+        return builder.size();
+    }
+
+    /**
+     * @return the id of the city of that name in that state, null if there is none
+     */
+    private Long cityid(
+        String name,
+        String state)
+    {
+        City city = cityService.findByNameOrNull(name);
+        return city == null || !Objects.equals(city.getState(), state) ? null : city.getCityid();
+    }
+
+    /**
+     * @return whether year, month and day make a period CityHistory can hold, month and day 0 when left out
+     */
+    private static boolean isTime(
+        int year,
+        int month,
+        int day)
+    {
+        return year >= 1 && year <= 9999 && month >= 0 && month <= 12 && day >= 0 && day <= 31 &&
+            (day == 0 || month > 0);
+    }
+}
@@ -0,0 +1,144 @@
+package com.lambdaschool.foundation.ingestion;
+
+import com.lambdaschool.foundation.models.City;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cities waiting to be inserted, gathered from any ingestion source.
+ * <p>
+ * Once batchSize cities, or the cities of batchKeys keys, are waiting they are inserted through CityLoader.loadAll,
+ * in one transaction and in JDBC batches. A DS API key has only a few cities, so it is usually batchKeys that commits
+ * a batch, and a run that stops part way loses at most the keys of one batch. If that fails they are saved again a key at a time, so only the keys whose cities can not be saved are lost.
+ * Cities are counted by the key their source knows them by, and with a source each key is recorded in
+ * IngestCheckpoints in the transaction that saves its cities.
+ * <p>
+ * Only used by one thread at a time, apart from failed.
+ */
+class IngestBatch
+{
+    private static final Logger logger = LoggerFactory.getLogger(IngestBatch.class);
+
+    private final CityLoader cityLoader;
+
+    private final int batchSize;
+
+    private final int batchKeys;
+
+    private final String source;
+
+    private final List<City> cities = new ArrayList<>();
+
+    private final Map<String, List<City>> byKey = new HashMap<>();
+
+    private int loaded;
+
+    private final AtomicInteger failed = new AtomicInteger();
+
+    /**
+     * @param batchSize cities inserted at most in one transaction
+     * @param batchKeys keys inserted at most in one transaction
+     * @param source    the source for IngestCheckpoints, null to record no checkpoints
+     */
+    IngestBatch(
+        CityLoader cityLoader,
+        int batchSize,
+        int batchKeys,
+        String source)
+    {
+        this.cityLoader = cityLoader;
+        this.batchSize = batchSize;
+        this.batchKeys = batchKeys;
+        this.source = source;
+    }
+
+    /**
+     * Adds the cities of one key, inserting the batch if it is full
+     */
+    void add(
+        String key,
+        List<City> keyCities)
+    {
+        cities.addAll(keyCities);
+        byKey.computeIfAbsent(key, k -> new ArrayList<>())
+            .addAll(keyCities);
+        if (cities.size() >= batchSize || byKey.size() >= batchKeys)
+        {
+            persist();
+        }
+    }
+
+    /**
+     * Counts a key whose cities could not be read
+     */
+    void failed()
+    {
+        failed.incrementAndGet();
+    }
+
+    /**
+     * Inserts the cities waiting
+     */
+    void persist()
+    {
+        if (byKey.isEmpty())
+        {
+            return;
+        }
+        try
+        {
+            loaded += cityLoader.loadAll(cities, source, byKey.keySet());
+        } catch (RuntimeException e)
+        {
+            logger.warn("Could not insert {} cities at once, saving them a key at a time", cities.size(), e);
+            for (Map.Entry<String, List<City>> key : byKey.entrySet())
+            {
+                persistOne(key.getKey(), key.getValue());
+            }
+        }
+        cities.clear();
+        byKey.clear();
+    }
+
+    private void persistOne(
+        String key,
+        List<City> keyCities)
+    {
+        try
+        {
+            for (City city : keyCities)
+            {
+                // ids given by the failed batch were rolled back
+                city.setCityid(0);
+            }
+            loaded += cityLoader.loadAll(keyCities, source, Collections.singletonList(key));
+        } catch (RuntimeException e)
+        {
+            failed.incrementAndGet();
+            logger.warn("Could not load city {}", key, e);
+        }
+    }
+
+    /**
+     * @return number of cities saved
+     */
+    int getLoaded()
+    {
+        return loaded;
+    }
+
+    /**
+     * @return number of keys with cities that could not be read or saved
+     */
+    int getFailed()
+    {
+        return failed.get();
+    }
+}
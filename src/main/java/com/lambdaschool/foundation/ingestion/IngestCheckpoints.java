@@ -0,0 +1,62 @@
+package com.lambdaschool.foundation.ingestion;
+
+import com.lambdaschool.foundation.models.IngestCheckpoint;
+import com.lambdaschool.foundation.repository.IngestCheckpointRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The city keys each ingestion source has finished loading, kept in the database so a run that stopped part way,
+ * or a restart after it, loads only the rest. A key is recorded in the transaction that inserts its cities,
+ * so it is done exactly when its cities are saved.
+ */
+@Component
+public class IngestCheckpoints
+{
+    @Autowired
+    private IngestCheckpointRepository checkpointrepo;
+
+    /**
+     * @param source ds or file
+     * @return the keys the source has finished
+     */
+    public Set<String> done(String source)
+    {
+        return new HashSet<>(checkpointrepo.findCitykeysBySource(source));
+    }
+
+    /**
+     * Records keys as finished, in the running transaction
+     *
+     * @param source ds or file
+     * @param keys   keys whose cities were saved in that transaction
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(
+        String source,
+        Collection<String> keys)
+    {
+        for (String key : keys)
+        {
+            checkpointrepo.save(new IngestCheckpoint(source, key));
+        }
+    }
+
+    /**
+     * Forgets every key of the source, so the next run loads them all again
+     *
+     * @param source ds or file
+     * @return the number of keys forgotten
+     */
+    @Transactional
+    public int clear(String source)
+    {
+        return checkpointrepo.deleteBySource(source);
+    }
+}
@@ -0,0 +1,373 @@
+package com.lambdaschool.foundation.ingestion;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs items through a chain of stages, each with its own threads, connected by bounded queues. What an item is
+ * is up to the stages: DsIngestion, for one, runs a city key through with what each stage made of it so far.
+ * <p>
+ * A stage takes an item from its queue, works on it and puts it on the queue of the next stage, waiting while that
+ * queue is full. So when a stage falls behind, the stages before it wait instead of piling items up in memory:
+ * a slow database holds up the fetchers, and at most capacity items wait in front of each stage.
+ * An item whose work throws an Exception is handed to onFailure and goes no further. Anything else that stops a
+ * stage thread, an Error, an exception from onFailure or an interrupt, stops the whole run: every stage thread is
+ * interrupted and run throws it.
+ * <p>
+ * Per stage, the time spent working on each item is published as citrics.ingest.stage.duration, the time spent
+ * waiting on a full queue as citrics.ingest.stage.blocked, and the items waiting in front of it as
+ * citrics.ingest.stage.queue, all tagged with the stage name. Run logs the same per stage when it is done.
+ *
+ * @param <T> the items, worked on in place by the stages
+ */
+class IngestPipeline<T>
+{
+    private static final Logger logger = LoggerFactory.getLogger(IngestPipeline.class);
+
+    /**
+     * Queue depth gauges by stage name, registered once and shared by every run
+     */
+    private static final Map<String, AtomicInteger> depths = new ConcurrentHashMap<>();
+
+    /**
+     * Tells a stage thread that nothing more is coming
+     */
+    private static final Object END = new Object();
+
+    /**
+     * What one stage does to an item
+     */
+    interface Work<T>
+    {
+        void run(T item) throws Exception;
+    }
+
+    /**
+     * What happens to an item that failed
+     */
+    interface Failure<T>
+    {
+        void failed(
+            T item,
+            Exception error);
+    }
+
+    private final int capacity;
+
+    private final List<Stage> stages = new ArrayList<>();
+
+    /**
+     * What stopped the running run, null while nothing did
+     */
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * Counted down once the last stage is done, or as soon as the run failed
+     */
+    private volatile CountDownLatch stopped;
+
+    /**
+     * The thread in run, interrupted when the run fails so it does not wait on a stage that stopped
+     */
+    private volatile Thread runner;
+
+    /**
+     * @param capacity most items waiting in front of each stage
+     */
+    IngestPipeline(int capacity)
+    {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds a stage after the ones added so far
+     *
+     * @param name    names the threads and tags the metrics of the stage
+     * @param threads threads working on items of the stage at once
+     * @param work    what the stage does to each item
+     * @return this pipeline
+     */
+    IngestPipeline<T> stage(
+        String name,
+        int threads,
+        Work<T> work)
+    {
+        stages.add(new Stage(name, Math.max(1, threads), new ArrayBlockingQueue<>(capacity), work));
+        return this;
+    }
+
+    /**
+     * Runs every item through every stage, returning once the last stage is done with all of them
+     *
+     * @param items     put in front of the first stage in order
+     * @param onFailure called with every item whose work threw, from the thread of the stage it failed in
+     * @throws InterruptedException if interrupted while waiting on the stages
+     * @throws IllegalStateException if a stage thread stopped part way, with what stopped it as the cause,
+     *                               or that Error or RuntimeException itself
+     */
+    void run(
+        List<T> items,
+        Failure<T> onFailure) throws InterruptedException
+    {
+        failure.set(null);
+        stopped = new CountDownLatch(1);
+        runner = Thread.currentThread();
+        List<Thread> threads = new ArrayList<>();
+        for (int s = 0; s < stages.size(); s++)
+        {
+            Stage stage = stages.get(s);
+            Stage next = s + 1 < stages.size() ? stages.get(s + 1) : null;
+            stage.reset();
+            for (int t = 0; t < stage.threads; t++)
+            {
+                Thread thread = new Thread(() -> stage.work(next, onFailure), "ingest-" + stage.name + "-" + t);
+                thread.setDaemon(true);
+                threads.add(thread);
+                thread.start();
+            }
+        }
+
+        try
+        {
+            Stage first = stages.get(0);
+            for (T item : items)
+            {
+                first.put(item);
+            }
+            first.finish();
+            stopped.await();
+        } catch (InterruptedException e)
+        {
+            if (failure.get() == null)
+            {
+                throw e;
+            }
+        } finally
+        {
+            runner = null;
+            for (Thread thread : threads)
+            {
+                thread.interrupt();
+            }
+        }
+
+        Throwable failed = failure.get();
+        if (failed != null)
+        {
+            // the interrupt that woke this thread up
+            Thread.interrupted();
+            if (failed instanceof Error)
+            {
+                throw (Error) failed;
+            }
+            if (failed instanceof RuntimeException)
+            {
+                throw (RuntimeException) failed;
+            }
+            throw new IllegalStateException("Ingest stopped part way", failed);
+        }
+
+        for (Stage stage : stages)
+        {
+            logger.info("Ingest stage {}: {} items in {} threads, {} ms working, {} ms waiting on the next stage",
+                stage.name, stage.items.get(), stage.threads, TimeUnit.NANOSECONDS.toMillis(stage.busyNanos.get()),
+                TimeUnit.NANOSECONDS.toMillis(stage.blockedNanos.get()));
+        }
+    }
+
+    /**
+     * Stops the run, unless something stopped it already
+     */
+    private void fail(Throwable error)
+    {
+        if (failure.compareAndSet(null, error))
+        {
+            stopped.countDown();
+            Thread waiting = runner;
+            if (waiting != null)
+            {
+                waiting.interrupt();
+            }
+        }
+    }
+
+    private final class Stage
+    {
+        private final String name;
+
+        private final int threads;
+
+        /**
+         * Items of type T, and END
+         */
+        private final BlockingQueue<Object> queue;
+
+        private final Work<T> work;
+
+        private final AtomicInteger depth;
+
+        private final Timer duration;
+
+        private final Timer blocked;
+
+        private final AtomicLong items = new AtomicLong();
+
+        private final AtomicLong busyNanos = new AtomicLong();
+
+        private final AtomicLong blockedNanos = new AtomicLong();
+
+        private final AtomicInteger running = new AtomicInteger();
+
+        private Stage(
+            String name,
+            int threads,
+            BlockingQueue<Object> queue,
+            Work<T> work)
+        {
+            this.name = name;
+            this.threads = threads;
+            this.queue = queue;
+            this.work = work;
+            depth = depths.computeIfAbsent(name, n -> Metrics.gauge("citrics.ingest.stage.queue", Tags.of("stage", n),
+                new AtomicInteger()));
+            duration = Timer.builder("citrics.ingest.stage.duration")
+                .description("Time an ingest stage spent on one city")
+                .tag("stage", name)
+                .register(Metrics.globalRegistry);
+            blocked = Timer.builder("citrics.ingest.stage.blocked")
+                .description("Time an ingest stage waited for room in front of the next stage")
+                .tag("stage", name)
+                .register(Metrics.globalRegistry);
+        }
+
+        private void reset()
+        {
+            queue.clear();
+            depth.set(0);
+            items.set(0);
+            busyNanos.set(0);
+            blockedNanos.set(0);
+            running.set(threads);
+        }
+
+        private void put(Object item) throws InterruptedException
+        {
+            queue.put(item);
+            depth.set(queue.size());
+        }
+
+        /**
+         * Tells every thread of the stage to stop once the items before have been taken
+         */
+        private void finish() throws InterruptedException
+        {
+            for (int t = 0; t < threads; t++)
+            {
+                queue.put(END);
+            }
+        }
+
+        private void work(
+            Stage next,
+            Failure<T> onFailure)
+        {
+            boolean ended = false;
+            Throwable thrown = null;
+            try
+            {
+                while (true)
+                {
+                    Object taken = queue.take();
+                    depth.set(queue.size());
+                    if (taken == END)
+                    {
+                        ended = true;
+                        break;
+                    }
+                    @SuppressWarnings("unchecked")
+                    T item = (T) taken;
+
+                    long start = System.nanoTime();
+                    boolean worked = false;
+                    try
+                    {
+                        work.run(item);
+                        worked = true;
+                    } catch (InterruptedException e)
+                    {
+                        throw e;
+                    } catch (Exception e)
+                    {
+                        onFailure.failed(item, e);
+                    }
+                    long took = System.nanoTime() - start;
+                    duration.record(took, TimeUnit.NANOSECONDS);
+                    busyNanos.addAndGet(took);
+                    items.incrementAndGet();
+
+                    if (worked && next != null)
+                    {
+                        long waitStart = System.nanoTime();
+                        next.put(item);
+                        long waited = System.nanoTime() - waitStart;
+                        blocked.record(waited, TimeUnit.NANOSECONDS);
+                        blockedNanos.addAndGet(waited);
+                    }
+                }
+            } catch (InterruptedException e)
+            {
+                thrown = new IllegalStateException("Ingest stage " + name + " was interrupted", e);
+            } catch (RuntimeException | Error e)
+            {
+                thrown = e;
+            } finally
+            {
+                if (!ended)
+                {
+                    fail(thrown);
+                }
+                finished(next);
+            }
+        }
+
+        /**
+         * The last thread of this stage out tells the next stage, or the run once this is the last stage
+         */
+        private void finished(Stage next)
+        {
+            if (running.decrementAndGet() != 0)
+            {
+                return;
+            }
+            if (next == null)
+            {
+                stopped.countDown();
+                return;
+            }
+            try
+            {
+                next.finish();
+            } catch (InterruptedException e)
+            {
+                // the run failed and is stopping every stage
+                Thread.currentThread()
+                    .interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.lambdaschool.foundation.ingestion;
+
+/**
+ * What one ingest did: how many cities were asked for, saved, skipped as already done by an earlier run
+ * and lost to errors, and how long it took
+ */
+public class IngestReport
+{
+    private final int requested;
+
+    private final int loaded;
+
+    private final int skipped;
+
+    private final int failed;
+
+    private final long millis;
+
+    public IngestReport(
+        int requested,
+        int loaded,
+        int skipped,
+        int failed,
+        long millis)
+    {
+        this.requested = requested;
+        this.loaded = loaded;
+        this.skipped = skipped;
+        this.failed = failed;
+        this.millis = millis;
+    }
+
+    /**
+     * @return number of cities asked of the source
+     */
+    public int getRequested()
+    {
+        return requested;
+    }
+
+    /**
+     * @return number of cities saved
+     */
+    public int getLoaded()
+    {
+        return loaded;
+    }
+
+    /**
+     * @return number of keys asked for that an earlier run had finished, see IngestCheckpoints
+     */
+    public int getSkipped()
+    {
+        return skipped;
+    }
+
+    /**
+     * @return number of cities that could not be fetched, parsed or saved
+     */
+    public int getFailed()
+    {
+        return failed;
+    }
+
+    public long getMillis()
+    {
+        return millis;
+    }
+
+    @Override
+    public String toString()
+    {
+        return loaded + " of " + requested + " cities loaded, " + skipped + " already loaded, " + failed + " failed, in " + millis + " ms";
+    }
+}
@@ -0,0 +1,52 @@
+package com.lambdaschool.foundation.ingestion;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the IngestionStatus as the ingestion health: up once the city data can be served, out of service while
+ * the first load is still warming, down if it failed with nothing to serve. Part of the readiness health group.
+ */
+@Component
+public class IngestionHealthIndicator
+    implements HealthIndicator
+{
+    @Autowired
+    private IngestionStatus ingestionStatus;
+
+    @Override
+    public Health health()
+    {
+        IngestionStatus.State state = ingestionStatus.getState();
+        Health.Builder health;
+        if (ingestionStatus.isServing())
+        {
+            health = Health.up();
+        } else if (state == IngestionStatus.State.FAILED)
+        {
+            health = Health.down();
+        } else
+        {
+            health = Health.outOfService();
+        }
+
+        health.withDetail("state", state);
+        if (state == IngestionStatus.State.WARMING)
+        {
+            health.withDetail("elapsedMs", ingestionStatus.getElapsedMillis())
+                .withDetail("servingPersistedData", ingestionStatus.isHadData());
+        }
+        if (ingestionStatus.getReport() != null)
+        {
+            health.withDetail("report", ingestionStatus.getReport()
+                .toString());
+        }
+        if (ingestionStatus.getError() != null)
+        {
+            health.withException(new Exception(ingestionStatus.getError()));
+        }
+        return health.build();
+    }
+}
@@ -0,0 +1,100 @@
+package com.lambdaschool.foundation.ingestion;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Where the ingestion SeedData started at boot is: warming while it runs, then ready or failed.
+ * <p>
+ * City data is served once ingestion is done, or right away if the database already had cities when it started,
+ * since those are the last persisted data and better than nothing while the rest loads.
+ */
+@Component
+public class IngestionStatus
+{
+    public enum State
+    {
+        /**
+         * Nothing was started yet
+         */
+        IDLE,
+        WARMING,
+        READY,
+        FAILED
+    }
+
+    private volatile State state = State.IDLE;
+
+    private volatile boolean hadData;
+
+    private volatile long startedAt;
+
+    private volatile IngestReport report;
+
+    private volatile Throwable error;
+
+    /**
+     * @param hadData whether the database already had cities
+     */
+    public void started(boolean hadData)
+    {
+        this.hadData = hadData;
+        startedAt = System.currentTimeMillis();
+        report = null;
+        error = null;
+        state = State.WARMING;
+    }
+
+    public void finished(IngestReport report)
+    {
+        this.report = report;
+        state = State.READY;
+    }
+
+    public void failed(Throwable error)
+    {
+        this.error = error;
+        state = State.FAILED;
+    }
+
+    public State getState()
+    {
+        return state;
+    }
+
+    /**
+     * @return whether the city data can be read: ingestion is done, or there was data from before it started
+     */
+    public boolean isServing()
+    {
+        return state == State.READY || state == State.IDLE || hadData;
+    }
+
+    public boolean isHadData()
+    {
+        return hadData;
+    }
+
+    /**
+     * @return milliseconds since ingestion started
+     */
+    public long getElapsedMillis()
+    {
+        return System.currentTimeMillis() - startedAt;
+    }
+
+    /**
+     * @return what the finished ingestion loaded, null until it finished
+     */
+    public IngestReport getReport()
+    {
+        return report;
+    }
+
+    /**
+     * @return why ingestion failed, null unless it did
+     */
+    public Throwable getError()
+    {
+        return error;
+    }
+}
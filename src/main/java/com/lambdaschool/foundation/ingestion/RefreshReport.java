@@ -0,0 +1,128 @@
+package com.lambdaschool.foundation.ingestion;
+
+/**
+ * What one refresh did: how many cities and jobs were inserted, updated or left unchanged,
+ * how many cities were lost to errors, and how long it took
+ */
+public class RefreshReport
+{
+    private int citiesInserted;
+
+    private int citiesUpdated;
+
+    private int citiesUnchanged;
+
+    private int jobsInserted;
+
+    private int jobsUpdated;
+
+    private int jobsUnchanged;
+
+    private int failed;
+
+    private long millis;
+
+    void cityInserted(int jobs)
+    {
+        citiesInserted++;
+        jobsInserted += jobs;
+    }
+
+    void cityUnchanged(int jobs)
+    {
+        citiesUnchanged++;
+        jobsUnchanged += jobs;
+    }
+
+    /**
+     * Counts a city that was updated along with what happened to its jobs
+     *
+     * @param jobs the job counts of that one city
+     */
+    void cityUpdated(RefreshReport jobs)
+    {
+        citiesUpdated++;
+        jobsInserted += jobs.jobsInserted;
+        jobsUpdated += jobs.jobsUpdated;
+        jobsUnchanged += jobs.jobsUnchanged;
+    }
+
+    void jobInserted()
+    {
+        jobsInserted++;
+    }
+
+    void jobUpdated()
+    {
+        jobsUpdated++;
+    }
+
+    void jobUnchanged()
+    {
+        jobsUnchanged++;
+    }
+
+    void failed()
+    {
+        failed++;
+    }
+
+    void setMillis(long millis)
+    {
+        this.millis = millis;
+    }
+
+    public int getCitiesInserted()
+    {
+        return citiesInserted;
+    }
+
+    /**
+     * @return number of cities whose own fields or any of whose jobs changed
+     */
+    public int getCitiesUpdated()
+    {
+        return citiesUpdated;
+    }
+
+    public int getCitiesUnchanged()
+    {
+        return citiesUnchanged;
+    }
+
+    public int getJobsInserted()
+    {
+        return jobsInserted;
+    }
+
+    public int getJobsUpdated()
+    {
+        return jobsUpdated;
+    }
+
+    public int getJobsUnchanged()
+    {
+        return jobsUnchanged;
+    }
+
+    /**
+     * @return number of cities that could not be fetched, parsed or saved
+     */
+    public int getFailed()
+    {
+        return failed;
+    }
+
+    public long getMillis()
+    {
+        return millis;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "cities " + citiesInserted + " inserted, " + citiesUpdated + " updated, " + citiesUnchanged + " unchanged; " +
+            "jobs " + jobsInserted + " inserted, " + jobsUpdated + " updated, " + jobsUnchanged + " unchanged; " +
+            failed + " failed, in " + millis + " ms";
+    }
+}
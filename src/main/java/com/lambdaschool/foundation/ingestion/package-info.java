@@ -0,0 +1,5 @@
+/**
+ * Contains the loading of city data from the data science (DS) API into the database.
+ * Fetching, parsing, transforming and saving are kept apart so each can be tuned and tested on its own.
+ */
+package com.lambdaschool.foundation.ingestion;
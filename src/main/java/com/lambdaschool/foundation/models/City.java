@@ -1,7 +1,10 @@
 package com.lambdaschool.foundation.models;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -10,12 +13,37 @@ import java.util.List;
 import java.util.Set;
 
 @Entity
-@Table(name = "cities")
+@Table(name = "cities",
+    indexes = {@Index(name = "idx_cities_name", columnList = "name"),
+        @Index(name = "idx_cities_population", columnList = "population"),
+        @Index(name = "idx_cities_studio", columnList = "studio"),
+        @Index(name = "idx_cities_onebr", columnList = "onebr"),
+        @Index(name = "idx_cities_twobr", columnList = "twobr"),
+        @Index(name = "idx_cities_threebr", columnList = "threebr"),
+        @Index(name = "idx_cities_fourbr", columnList = "fourbr"),
+        @Index(name = "idx_cities_hourly_wage", columnList = "hourly_wage"),
+        @Index(name = "idx_cities_annual_wage", columnList = "annual_wage"),
+        @Index(name = "idx_cities_walkscore", columnList = "walkscore")})
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+@NamedEntityGraph(name = City.WITH_OCCUPATIONS,
+    attributeNodes = @NamedAttributeNode(value = "occupations", subgraph = "occupations"),
+    subgraphs = @NamedSubgraph(name = "occupations", attributeNodes = @NamedAttributeNode("occupation")))
 // @JsonIgnoreProperties(value = "users")
 public class City extends Auditable
 {
+    /**
+     * Fetch plan loading a city together with its occupations in a single query.
+     * Used by every read that serializes the full city.
+     */
+    public static final String WITH_OCCUPATIONS = "City.occupations";
+
+    /**
+     * Taken from a sequence 50 at a time, so inserting cities in bulk does not ask the database for every id
+     * and the inserts can be batched
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cityids")
+    @SequenceGenerator(name = "cityids", sequenceName = "city_sequence", allocationSize = 50)
     private long cityid;
 
     private String name;
@@ -46,16 +74,32 @@ public class City extends Auditable
 
     private int population;
 
+    /**
+     * Number of users who have favorited the city.
+     * Maintained by the database through CityRepository.adjustFavoriteCount,
+     * so saving a city never overwrites it.
+     */
+    @Column(updatable = false)
+    private int favoriteCount;
+
+    /**
+     * Hash of the fields that come from the DS API, to tell whether the DS data of the city changed
+     * without comparing every field. 0 for a city that did not come from the DS API.
+     */
+    @JsonIgnore
+    private long contentHash;
+
     @OneToMany(mappedBy = "city", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
     @JsonIgnoreProperties(value = "city", allowSetters = true)
     private List<CityOccs> occupations = new ArrayList<>();
 
     /**
-     * List of User's who have favorited the city
+     * List of User's who have favorited the city.
+     * Kept out of city responses, which report favoriteCount instead.
      */
     @OneToMany(mappedBy = "city", cascade = CascadeType.ALL, orphanRemoval = true)
-
-    @JsonIgnoreProperties()
+    @JsonIgnore
     private Set<UserCities> users = new HashSet<>();
 
 //    @OneToMany(mappedBy = "city", cascade = CascadeType.ALL, orphanRemoval = true)
@@ -224,7 +268,7 @@ public class City extends Auditable
         return walkscore;
     }
 
-    public void setWalkscore(float walkscore) {
+    public void setWalkscore(double walkscore) {
         this.walkscore = walkscore;
     }
 
@@ -236,4 +280,20 @@ public class City extends Auditable
         this.population = population;
     }
 
+    public int getFavoriteCount() {
+        return favoriteCount;
+    }
+
+    public void setFavoriteCount(int favoriteCount) {
+        this.favoriteCount = favoriteCount;
+    }
+
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(long contentHash) {
+        this.contentHash = contentHash;
+    }
+
 }
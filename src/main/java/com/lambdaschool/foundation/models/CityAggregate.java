@@ -0,0 +1,51 @@
+package com.lambdaschool.foundation.models;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Count of the cities in one group, and the summary of every CityMetric over them keyed by field name.
+ * Returned by /cities/aggregates.
+ */
+public class CityAggregate {
+    /**
+     * Value of the grouped by field shared by these cities, null for cities without one
+     */
+    private String group;
+
+    private int count;
+
+    private Map<String, MetricStats> metrics = new LinkedHashMap<>();
+
+    public CityAggregate() {
+    }
+
+    public CityAggregate(String group, int count) {
+        this.group = group;
+        this.count = count;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public void setGroup(String group) {
+        this.group = group;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public Map<String, MetricStats> getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(Map<String, MetricStats> metrics) {
+        this.metrics = metrics;
+    }
+}
@@ -0,0 +1,14 @@
+package com.lambdaschool.foundation.models;
+
+/**
+ * The content hash of a city with what identifies the city, read without loading the city
+ */
+public interface CityContentHash {
+    long getCityid();
+
+    String getName();
+
+    String getState();
+
+    long getContentHash();
+}
@@ -1,5 +1,7 @@
 package com.lambdaschool.foundation.models;
 
+import java.util.Objects;
+
 public class CityFilter {
     private MinMaxInt population;
     private MinMaxInt studio;
@@ -106,4 +108,28 @@ public class CityFilter {
     public void setWalkscore(MinMaxDbl walkscore) {
         this.walkscore = walkscore;
     }
+
+    /**
+     * Filters with the same bounds are the same computation, see CityService.findFiltered
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CityFilter)) return false;
+        CityFilter that = (CityFilter) o;
+        return Objects.equals(population, that.population) &&
+                Objects.equals(studio, that.studio) &&
+                Objects.equals(onebr, that.onebr) &&
+                Objects.equals(twobr, that.twobr) &&
+                Objects.equals(threebr, that.threebr) &&
+                Objects.equals(fourbr, that.fourbr) &&
+                Objects.equals(hourly_wage, that.hourly_wage) &&
+                Objects.equals(annual_wage, that.annual_wage) &&
+                Objects.equals(walkscore, that.walkscore);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(population, studio, onebr, twobr, threebr, fourbr, hourly_wage, annual_wage, walkscore);
+    }
 }
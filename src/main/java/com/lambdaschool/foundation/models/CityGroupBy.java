@@ -0,0 +1,45 @@
+package com.lambdaschool.foundation.models;
+
+import java.util.function.Function;
+
+/**
+ * The text fields of a City that cities can be grouped by for aggregates
+ */
+public enum CityGroupBy {
+    STATE("state", City::getState),
+    CLIMATE_ZONE("climate_zone", City::getClimate_zone),
+    SIMPLE_CLIMATE("simple_climate", City::getSimple_climate);
+
+    private final String field;
+
+    private final Function<City, String> getter;
+
+    CityGroupBy(String field, Function<City, String> getter) {
+        this.field = field;
+        this.getter = getter;
+    }
+
+    /**
+     * @return the name of the field in city responses, also used as the groupBy parameter
+     */
+    public String getField() {
+        return field;
+    }
+
+    public String valueOf(City city) {
+        return getter.apply(city);
+    }
+
+    /**
+     * @param field name of the field, as in city responses
+     * @return the matching CityGroupBy or null if there is none
+     */
+    public static CityGroupBy fromField(String field) {
+        for (CityGroupBy groupBy : values()) {
+            if (groupBy.field.equalsIgnoreCase(field)) {
+                return groupBy;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,81 @@
+package com.lambdaschool.foundation.models;
+
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The numeric fields of a City that can be averaged and aggregated.
+ * Each one knows how to read its value from a city and how to write a computed value back.
+ * Rent, wages and walkscore are skewed by a few metros, so they also get quantiles.
+ */
+public enum CityMetric {
+    POPULATION("population", false, City::getPopulation, (c, v) -> c.setPopulation((int) Math.round(v))),
+    STUDIO("studio", true, City::getStudio, (c, v) -> c.setStudio((int) Math.round(v))),
+    ONEBR("onebr", true, City::getOnebr, (c, v) -> c.setOnebr((int) Math.round(v))),
+    TWOBR("twobr", true, City::getTwobr, (c, v) -> c.setTwobr((int) Math.round(v))),
+    THREEBR("threebr", true, City::getThreebr, (c, v) -> c.setThreebr((int) Math.round(v))),
+    FOURBR("fourbr", true, City::getFourbr, (c, v) -> c.setFourbr((int) Math.round(v))),
+    HOURLY_WAGE("hourly_wage", true, City::getHourly_wage, City::setHourly_wage),
+    ANNUAL_WAGE("annual_wage", true, City::getAnnual_wage, (c, v) -> c.setAnnual_wage((int) Math.round(v))),
+    WALKSCORE("walkscore", true, City::getWalkscore, City::setWalkscore);
+
+    private static final CityMetric[] VALUES = values();
+
+    private final String field;
+
+    private final boolean quantiled;
+
+    private final ToDoubleFunction<City> getter;
+
+    private final ObjDoubleConsumer<City> setter;
+
+    CityMetric(String field, boolean quantiled, ToDoubleFunction<City> getter, ObjDoubleConsumer<City> setter) {
+        this.field = field;
+        this.quantiled = quantiled;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    /**
+     * @return the name of the field in city responses
+     */
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * @return true if medians and percentiles are kept for this field
+     */
+    public boolean isQuantiled() {
+        return quantiled;
+    }
+
+    public double valueOf(City city) {
+        return getter.applyAsDouble(city);
+    }
+
+    /**
+     * Sets the field on city, rounding for integer fields
+     */
+    public void setOn(City city, double value) {
+        setter.accept(city, value);
+    }
+
+    /**
+     * @return every metric, in declaration order, without copying the array each time
+     */
+    public static CityMetric[] all() {
+        return VALUES;
+    }
+
+    /**
+     * @return the value of every metric for city, indexed by ordinal
+     */
+    public static double[] valuesOf(City city) {
+        double[] values = new double[VALUES.length];
+        for (CityMetric metric : VALUES) {
+            values[metric.ordinal()] = metric.valueOf(city);
+        }
+        return values;
+    }
+}
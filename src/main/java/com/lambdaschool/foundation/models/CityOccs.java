@@ -1,14 +1,21 @@
 package com.lambdaschool.foundation.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.io.Serializable;
 
 
+/**
+ * An occupation in a city, with its wages and jobs there
+ */
 @Entity
 @IdClass(CityOccsId.class)
 @Table(name = "cityoccupations")
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 public class CityOccs extends Auditable implements Serializable {
 
     @Id
@@ -23,6 +30,20 @@ public class CityOccs extends Auditable implements Serializable {
     @JsonIgnoreProperties(value = "cities",allowSetters = true)
     private Occupation occupation;
 
+    private int annual_wage;
+
+    private double hourly_wage;
+
+    private double jobs_1000;
+
+    private double loc_quotient;
+
+    /**
+     * Hash of the fields that come from the DS API, see City.contentHash
+     */
+    @JsonIgnore
+    private long contentHash;
+
     public CityOccs() {
     }
 
@@ -31,6 +52,15 @@ public class CityOccs extends Auditable implements Serializable {
         this.occupation = occupation;
     }
 
+    public CityOccs(City city, Occupation occupation, double hourly_wage, int annual_wage, double jobs_1000, double loc_quotient) {
+        this.city = city;
+        this.occupation = occupation;
+        this.hourly_wage = hourly_wage;
+        this.annual_wage = annual_wage;
+        this.jobs_1000 = jobs_1000;
+        this.loc_quotient = loc_quotient;
+    }
+
     public City getCity() {
         return city;
     }
@@ -47,6 +77,46 @@ public class CityOccs extends Auditable implements Serializable {
         this.occupation = occupation;
     }
 
+    public int getAnnual_wage() {
+        return annual_wage;
+    }
+
+    public void setAnnual_wage(int annual_wage) {
+        this.annual_wage = annual_wage;
+    }
+
+    public double getHourly_wage() {
+        return hourly_wage;
+    }
+
+    public void setHourly_wage(double hourly_wage) {
+        this.hourly_wage = hourly_wage;
+    }
+
+    public double getJobs_1000() {
+        return jobs_1000;
+    }
+
+    public void setJobs_1000(double jobs_1000) {
+        this.jobs_1000 = jobs_1000;
+    }
+
+    public double getLoc_quotient() {
+        return loc_quotient;
+    }
+
+    public void setLoc_quotient(double loc_quotient) {
+        this.loc_quotient = loc_quotient;
+    }
+
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(long contentHash) {
+        this.contentHash = contentHash;
+    }
+
     @Override
     public boolean equals(Object o) {
         if(this == o) return true;
@@ -49,9 +49,13 @@ public class CityOccsId implements Serializable {
                 occupation == that.occupation;
     }
 
+    /**
+     * Hibernate keys every CityOccs in the persistence context by its id, so a constant here would make a
+     * context holding many of them one long hash chain
+     */
     @Override
     public int hashCode() {
-        return 37;
+        return 31 * Long.hashCode(city) + Long.hashCode(occupation);
     }
 
 
@@ -0,0 +1,50 @@
+package com.lambdaschool.foundation.models;
+
+/**
+ * The historical series kept for each city, as served by /cities/{id}/history.
+ * Population and income have a value per year, housing cost and weather per month, COVID cases per day.
+ */
+public enum HistoryMetric {
+    POPULATION("population"),
+    INCOME("income"),
+    HOUSEHOLD_INCOME("household_income"),
+    HOUSING("housing"),
+    COVID("covid"),
+    PRECIPITATION("precipitation"),
+    TEMPERATURE("temperature");
+
+    private static final HistoryMetric[] VALUES = values();
+
+    private final String field;
+
+    HistoryMetric(String field) {
+        this.field = field;
+    }
+
+    /**
+     * @return the name of the metric, as used by the metric parameter and in history files
+     */
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * @return every metric, in declaration order, without copying the array each time
+     */
+    public static HistoryMetric[] all() {
+        return VALUES;
+    }
+
+    /**
+     * @param field name of the metric
+     * @return the matching HistoryMetric or null if there is none
+     */
+    public static HistoryMetric fromField(String field) {
+        for (HistoryMetric metric : VALUES) {
+            if (metric.field.equalsIgnoreCase(field)) {
+                return metric;
+            }
+        }
+        return null;
+    }
+}
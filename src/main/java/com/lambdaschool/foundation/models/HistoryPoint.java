@@ -0,0 +1,59 @@
+package com.lambdaschool.foundation.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One value of a historical series of a city. Month and day are left out for yearly and monthly values.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class HistoryPoint {
+    private int year;
+
+    private Integer month;
+
+    private Integer day;
+
+    private double value;
+
+    public HistoryPoint() {
+    }
+
+    public HistoryPoint(int year, Integer month, Integer day, double value) {
+        this.year = year;
+        this.month = month;
+        this.day = day;
+        this.value = value;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public void setYear(int year) {
+        this.year = year;
+    }
+
+    public Integer getMonth() {
+        return month;
+    }
+
+    public void setMonth(Integer month) {
+        this.month = month;
+    }
+
+    public Integer getDay() {
+        return day;
+    }
+
+    public void setDay(Integer day) {
+        this.day = day;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public void setValue(double value) {
+        this.value = value;
+    }
+}
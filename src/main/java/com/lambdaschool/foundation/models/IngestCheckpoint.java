@@ -0,0 +1,61 @@
+package com.lambdaschool.foundation.models;
+
+import javax.persistence.*;
+
+/**
+ * One city key an ingestion source has finished loading, saved in the same transaction as its cities.
+ * A run that stops part way leaves the checkpoints of what it loaded, so the next run starts after them.
+ */
+@Entity
+@Table(name = "ingestcheckpoints",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"source", "citykey"}))
+public class IngestCheckpoint extends Auditable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private long checkpointid;
+
+    /**
+     * ds or file, see SeedData
+     */
+    @Column(nullable = false)
+    private String source;
+
+    /**
+     * The city as the source names it
+     */
+    @Column(nullable = false)
+    private String citykey;
+
+    public IngestCheckpoint() {
+    }
+
+    public IngestCheckpoint(String source, String citykey) {
+        this.source = source;
+        this.citykey = citykey;
+    }
+
+    public long getCheckpointid() {
+        return checkpointid;
+    }
+
+    public void setCheckpointid(long checkpointid) {
+        this.checkpointid = checkpointid;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    public String getCitykey() {
+        return citykey;
+    }
+
+    public void setCitykey(String citykey) {
+        this.citykey = citykey;
+    }
+}
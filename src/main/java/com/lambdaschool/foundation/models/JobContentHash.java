@@ -0,0 +1,12 @@
+package com.lambdaschool.foundation.models;
+
+/**
+ * The content hash of a job in a city with what identifies the job, read without loading the job
+ */
+public interface JobContentHash {
+    long getCityid();
+
+    String getTitle();
+
+    long getContentHash();
+}
@@ -0,0 +1,93 @@
+package com.lambdaschool.foundation.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Summary of one CityMetric over a group of cities.
+ * Quantiles are only filled in for metrics that are quantiled, and are left out of responses otherwise.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MetricStats {
+    private double mean;
+
+    private double min;
+
+    private double max;
+
+    private Double p10;
+
+    private Double median;
+
+    private Double p90;
+
+    /**
+     * Bound on how far the rank of each quantile may be from the one asked for, as a fraction of the count,
+     * with 99% confidence. 0 when the quantiles are exact.
+     */
+    private Double rankError;
+
+    public MetricStats() {
+    }
+
+    public MetricStats(double mean, double min, double max) {
+        this.mean = mean;
+        this.min = min;
+        this.max = max;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public void setMean(double mean) {
+        this.mean = mean;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public void setMin(double min) {
+        this.min = min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public void setMax(double max) {
+        this.max = max;
+    }
+
+    public Double getP10() {
+        return p10;
+    }
+
+    public void setP10(Double p10) {
+        this.p10 = p10;
+    }
+
+    public Double getMedian() {
+        return median;
+    }
+
+    public void setMedian(Double median) {
+        this.median = median;
+    }
+
+    public Double getP90() {
+        return p90;
+    }
+
+    public void setP90(Double p90) {
+        this.p90 = p90;
+    }
+
+    public Double getRankError() {
+        return rankError;
+    }
+
+    public void setRankError(Double rankError) {
+        this.rankError = rankError;
+    }
+}
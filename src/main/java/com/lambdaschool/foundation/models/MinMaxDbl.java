@@ -1,5 +1,7 @@
 package com.lambdaschool.foundation.models;
 
+import java.util.Objects;
+
 public class MinMaxDbl {
     private double min = Double.MIN_VALUE;
     private double max = Double.MAX_VALUE;
@@ -21,4 +23,20 @@ public class MinMaxDbl {
     public void setMax(double max) {
         this.max = max;
     }
+
+    /**
+     * Filters with the same bounds are the same computation, see CityService.findFiltered
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MinMaxDbl)) return false;
+        MinMaxDbl that = (MinMaxDbl) o;
+        return Double.compare(min, that.min) == 0 && Double.compare(max, that.max) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(min, max);
+    }
 }
@@ -1,5 +1,7 @@
 package com.lambdaschool.foundation.models;
 
+import java.util.Objects;
+
 public class MinMaxInt {
     private int min = Integer.MIN_VALUE;
     private int max = Integer.MAX_VALUE;
@@ -21,4 +23,20 @@ public class MinMaxInt {
     public void setMax(int max) {
         this.max = max;
     }
+
+    /**
+     * Filters with the same bounds are the same computation, see CityService.findFiltered
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MinMaxInt)) return false;
+        MinMaxInt that = (MinMaxInt) o;
+        return min == that.min && max == that.max;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(min, max);
+    }
 }
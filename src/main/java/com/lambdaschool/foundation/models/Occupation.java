@@ -1,28 +1,29 @@
 package com.lambdaschool.foundation.models;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
+
+/**
+ * One occupation title, shared by every city that has jobs in it.
+ * The wage and job facts of the occupation in a city are on CityOccs.
+ */
 @Entity
 @Table(name = "occupations")
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 public class Occupation {
 
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     private long occid;
 
+    @Column(unique = true)
     private String occ_title;
 
-    private int annual_wage;
-
-    private double hourly_wage;
-
-    private double jobs_1000;
-
-    private double loc_quotient;
-
     @OneToMany(mappedBy = "occupation",cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonIgnoreProperties(value = "occupation",allowSetters = true)
     private List<CityOccs> cities = new ArrayList<>();
@@ -31,12 +32,8 @@ public class Occupation {
     public Occupation() {
     }
 
-    public Occupation(String occ_title, double hourly_wage, int annual_wage, double jobs_1000, double loc_quotient) {
+    public Occupation(String occ_title) {
         this.occ_title = occ_title;
-        this.hourly_wage = hourly_wage;
-        this.annual_wage = annual_wage;
-        this.jobs_1000 = jobs_1000;
-        this.loc_quotient = loc_quotient;
     }
 
     public long getOccid() {
@@ -55,38 +52,6 @@ public class Occupation {
         this.occ_title = occ_title;
     }
 
-    public int getAnnual_wage() {
-        return annual_wage;
-    }
-
-    public void setAnnual_wage(int annual_wage) {
-        this.annual_wage = annual_wage;
-    }
-
-    public double getHourly_wage() {
-        return hourly_wage;
-    }
-
-    public void setHourly_wage(double hourly_wage) {
-        this.hourly_wage = hourly_wage;
-    }
-
-    public double getJobs_1000() {
-        return jobs_1000;
-    }
-
-    public void setJobs_1000(double jobs_1000) {
-        this.jobs_1000 = jobs_1000;
-    }
-
-    public double getLoc_quotient() {
-        return loc_quotient;
-    }
-
-    public void setLoc_quotient(double loc_quotient) {
-        this.loc_quotient = loc_quotient;
-    }
-
     public List<CityOccs> getCities() {
         return cities;
     }
@@ -12,9 +12,18 @@ import java.util.List;
  */
 @Entity
 @Table(name = "users")
+@NamedEntityGraph(name = User.WITH_FAVCITIES,
+    attributeNodes = @NamedAttributeNode(value = "favcities", subgraph = "favcities"),
+    subgraphs = @NamedSubgraph(name = "favcities", attributeNodes = @NamedAttributeNode("city")))
 public class User
     extends Auditable
 {
+    /**
+     * Fetch plan loading a user together with their favorite cities in a single query.
+     * The occupations of those cities are batch fetched afterwards.
+     */
+    public static final String WITH_FAVCITIES = "User.favcities";
+
     /**
      * The primary key (long) of the users table.
      */
@@ -23,7 +23,7 @@ public class UserCities extends Auditable implements Serializable
     @ManyToOne
     @NotNull
     @JoinColumn(name = "userid")
-    @JsonIgnoreProperties(value = "cities", allowSetters = true)
+    @JsonIgnoreProperties(value = "favcities", allowSetters = true)
     private User user;
 
     /**
@@ -1,7 +1,19 @@
 package com.lambdaschool.foundation.repository;
 
 import com.lambdaschool.foundation.models.CityOccs;
+import com.lambdaschool.foundation.models.JobContentHash;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
+import java.util.List;
+
 public interface CityOccsRepository extends CrudRepository<CityOccs,Long> {
+    /**
+     * Content hash, city and occupation title of every job, without loading the jobs
+     *
+     * @return one row per job
+     */
+    @Query("SELECT co.city.cityid AS cityid, o.occ_title AS title, co.contentHash AS contentHash " +
+        "FROM CityOccs co JOIN co.occupation o")
+    List<JobContentHash> findAllContentHashes();
 }
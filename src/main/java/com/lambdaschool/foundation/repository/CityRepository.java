@@ -1,9 +1,90 @@
 package com.lambdaschool.foundation.repository;
 
 import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.CityContentHash;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.QueryHint;
+import java.util.List;
+import java.util.Optional;
 
 public interface CityRepository extends CrudRepository<City, Long>
 {
+    /**
+     * Find a city by id, fetching its occupations in the same query.
+     * Declared as a query since EntityManager.find does not apply the occupation subgraph
+     * through the composite key of CityOccs, so it goes through the query cache instead.
+     *
+     * @param id the cityid
+     * @return the city if found
+     */
+    @Override
+    @EntityGraph(value = City.WITH_OCCUPATIONS)
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    @Query("SELECT c FROM City c WHERE c.cityid = :id")
+    Optional<City> findById(@Param("id") Long id);
+
+    /**
+     * Find a city by name, fetching its occupations in the same query.
+     * Results are kept in the Hibernate query cache.
+     *
+     * @param name the name of the city
+     * @return the city or null if not found
+     */
+    @EntityGraph(value = City.WITH_OCCUPATIONS)
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     City findByName(String name);
+
+    /**
+     * Names of every city, without loading the cities
+     *
+     * @return list of all city names
+     */
+    @Query("SELECT c.name FROM City c")
+    List<String> findAllNames();
+
+    /**
+     * Content hash, id, name and state of every city, without loading the cities
+     *
+     * @return one row per city
+     */
+    @Query("SELECT c.cityid AS cityid, c.name AS name, c.state AS state, c.contentHash AS contentHash FROM City c")
+    List<CityContentHash> findAllContentHashes();
+
+    /**
+     * Find all cities, fetching their occupations in the same query.
+     * Use findAll() when only the scalar city fields are needed.
+     *
+     * @return list of all cities with their occupations
+     */
+    @EntityGraph(value = City.WITH_OCCUPATIONS)
+    @Query("SELECT DISTINCT c FROM City c")
+    List<City> findAllWithOccupations();
+
+    /**
+     * Adds delta to the number of users who favorited a city.
+     * Done in the database so concurrent favorites never lose an update.
+     *
+     * @param id    the cityid
+     * @param delta +1 when a user favorites the city, -1 when they remove it
+     * @return the number of rows updated
+     */
+    @Modifying
+    @Query("UPDATE City c SET c.favoriteCount = c.favoriteCount + :delta WHERE c.cityid = :id")
+    int adjustFavoriteCount(@Param("id") long id, @Param("delta") int delta);
+
+    /**
+     * Sets the favorite count of every city whose count drifted from its rows in UserCities
+     *
+     * @return the number of cities corrected
+     */
+    @Modifying
+    @Query("UPDATE City c SET c.favoriteCount = (SELECT COUNT(uc) FROM UserCities uc WHERE uc.city = c) " +
+        "WHERE c.favoriteCount <> (SELECT COUNT(uc2) FROM UserCities uc2 WHERE uc2.city = c)")
+    int recountFavorites();
 }
@@ -0,0 +1,26 @@
+package com.lambdaschool.foundation.repository;
+
+import com.lambdaschool.foundation.models.IngestCheckpoint;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface IngestCheckpointRepository extends CrudRepository<IngestCheckpoint, Long> {
+    /**
+     * @param source ds or file
+     * @return the city keys the source has finished loading
+     */
+    @Query("SELECT c.citykey FROM IngestCheckpoint c WHERE c.source = :source")
+    List<String> findCitykeysBySource(@Param("source") String source);
+
+    /**
+     * @param source ds or file
+     * @return the number of checkpoints deleted
+     */
+    @Modifying
+    @Query("DELETE FROM IngestCheckpoint c WHERE c.source = :source")
+    int deleteBySource(@Param("source") String source);
+}
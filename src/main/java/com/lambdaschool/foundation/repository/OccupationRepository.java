@@ -1,7 +1,15 @@
 package com.lambdaschool.foundation.repository;
 
 import com.lambdaschool.foundation.models.Occupation;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 public interface OccupationRepository extends CrudRepository<Occupation, Long> {
+    /**
+     * @param title the occupation title, matched exactly
+     * @return the occupation, or null if there is none with that title
+     */
+    @Query("SELECT o FROM Occupation o WHERE o.occ_title = :title")
+    Occupation findByTitle(@Param("title") String title);
 }
@@ -0,0 +1,13 @@
+package com.lambdaschool.foundation.repository;
+
+import com.lambdaschool.foundation.models.UserCities;
+import com.lambdaschool.foundation.models.UserCitiesId;
+import org.springframework.data.repository.CrudRepository;
+
+/**
+ * The CRUD repository for the favorite cities of users
+ */
+public interface UserCitiesRepository
+    extends CrudRepository<UserCities, UserCitiesId>
+{
+}
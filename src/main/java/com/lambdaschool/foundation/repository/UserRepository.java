@@ -1,9 +1,13 @@
 package com.lambdaschool.foundation.repository;
 
 import com.lambdaschool.foundation.models.User;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * The CRUD repository connecting User to the rest of the application
@@ -12,15 +16,30 @@ public interface UserRepository
     extends CrudRepository<User, Long>
 {
     /**
-     * Find a user based off over username
+     * Find a user based off of userid, fetching their favorite cities in the same query.
+     * Declared as a query since EntityManager.find does not apply the city subgraph
+     * through the composite key of UserCities.
+     *
+     * @param id the primary key (long) of the user you seek
+     * @return the user if found
+     */
+    @Override
+    @EntityGraph(value = User.WITH_FAVCITIES)
+    @Query("SELECT u FROM User u WHERE u.userid = :id")
+    Optional<User> findById(@Param("id") Long id);
+
+    /**
+     * Find a user based off over username, fetching their favorite cities in the same query
      *
      * @param username the name (String) of user you seek
      * @return the first user object with the name you seek
      */
+    @EntityGraph(value = User.WITH_FAVCITIES)
     User findByUsername(String username);
 
     /**
-     * Find all users whose name contains a given substring ignoring case
+     * Find all users whose name contains a given substring ignoring case.
+     * Favorite cities are batch fetched when accessed.
      *
      * @param name the substring of the names (String) you seek
      * @return List of users whose name contain the given substring ignoring case
@@ -0,0 +1,272 @@
+package com.lambdaschool.foundation.services;
+
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.CityMetric;
+import com.lambdaschool.foundation.repository.CityRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Running sums of every CityMetric over all cities, so the national average is read in constant time.
+ * <p>
+ * Loaded from the database on first use. After that every saved or deleted city moves the sums by the
+ * difference between its old and new values, once its transaction commits. The values each city contributed
+ * are kept by cityid so a city saved twice is only counted once.
+ * <p>
+ * Every change publishes the means with one volatile write, so reads never wait on the lock. A reload reads
+ * the cities without holding it either, keeping the changes committed meanwhile, and swaps its sums in once done.
+ */
+@Component
+public class CityAverages
+{
+    public static final String NAME = "National Average, USA";
+
+    private final CityRepository cityrepo;
+
+    /**
+     * Held by one reload at a time
+     */
+    private final Object reloading = new Object();
+
+    /**
+     * Guarded by this, like everything below but current
+     */
+    private Map<Long, double[]> valuesById = new HashMap<>();
+
+    private double[] sums = new double[CityMetric.all().length];
+
+    private boolean loaded;
+
+    /**
+     * The changes committed while a reload reads the cities, by cityid, null for a deleted city.
+     * Null while no reload runs.
+     */
+    private Map<Long, double[]> pending;
+
+    /**
+     * The means of the sums, null until loaded
+     */
+    private volatile Means current;
+
+    public CityAverages(CityRepository cityrepo)
+    {
+        this.cityrepo = cityrepo;
+    }
+
+    /**
+     * @return a City holding the mean of every metric, integer fields rounded, named NAME
+     */
+    public City average()
+    {
+        double[] means = means();
+        City average = new City(NAME);
+        average.setState("USA");
+        for (CityMetric metric : CityMetric.all())
+        {
+            metric.setOn(average, means[metric.ordinal()]);
+        }
+        return average;
+    }
+
+    /**
+     * @return the mean of every metric indexed by ordinal, all zero when there are no cities
+     */
+    public double[] means()
+    {
+        return current().means.clone();
+    }
+
+    /**
+     * @return the number of cities averaged
+     */
+    public int count()
+    {
+        return current().count;
+    }
+
+    /**
+     * Counts the current values of a saved city, replacing what it contributed before
+     *
+     * @param city the city as saved, with its cityid
+     */
+    public void saved(City city)
+    {
+        long id = city.getCityid();
+        double[] values = CityMetric.valuesOf(city);
+        afterCommit(() -> put(id, values));
+    }
+
+    /**
+     * Takes what a deleted city contributed out of the sums
+     *
+     * @param id cityid
+     */
+    public void deleted(long id)
+    {
+        afterCommit(() -> put(id, null));
+    }
+
+    /**
+     * Sums every city again from the database, dropping any rounding the running sums picked up.
+     * The means from before are read until the new sums are swapped in.
+     */
+    public void reload()
+    {
+        synchronized (reloading)
+        {
+            synchronized (this)
+            {
+                pending = new HashMap<>();
+            }
+            try
+            {
+                Map<Long, double[]> values = new HashMap<>();
+                double[] fresh = new double[CityMetric.all().length];
+                sum(cityrepo.findAll(), values, fresh);
+                synchronized (this)
+                {
+                    valuesById = values;
+                    sums = fresh;
+                    loaded = true;
+                    // committed after the read or not, applying them again leaves the same values
+                    pending.forEach(this::apply);
+                    publish();
+                }
+            } finally
+            {
+                synchronized (this)
+                {
+                    pending = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sums cities read from elsewhere instead of loading them from the database on first use
+     *
+     * @param cities every city, as in the database
+     */
+    public synchronized void load(List<City> cities)
+    {
+        if (!loaded)
+        {
+            sum(cities, valuesById, sums);
+            loaded = true;
+            publish();
+        }
+    }
+
+    private Means current()
+    {
+        Means means = current;
+        return means != null ? means : load();
+    }
+
+    private synchronized Means load()
+    {
+        if (!loaded)
+        {
+            sum(cityrepo.findAll(), valuesById, sums);
+            loaded = true;
+            publish();
+        }
+        return current;
+    }
+
+    private synchronized void put(
+        long id,
+        double[] values)
+    {
+        if (pending != null)
+        {
+            pending.put(id, values);
+        }
+        if (!loaded)
+        {
+            // the change is committed, so the load will read it
+            return;
+        }
+        apply(id, values);
+        publish();
+    }
+
+    private void apply(
+        long id,
+        double[] values)
+    {
+        double[] old = values == null ? valuesById.remove(id) : valuesById.put(id, values);
+        for (int i = 0; i < sums.length; i++)
+        {
+            sums[i] += (values == null ? 0 : values[i]) - (old == null ? 0 : old[i]);
+        }
+    }
+
+    private void publish()
+    {
+        double[] means = new double[sums.length];
+        int count = valuesById.size();
+        if (count > 0)
+        {
+            for (int i = 0; i < sums.length; i++)
+            {
+                means[i] = sums[i] / count;
+            }
+        }
+        current = new Means(means, count);
+    }
+
+    private static void sum(
+        Iterable<City> cities,
+        Map<Long, double[]> valuesById,
+        double[] sums)
+    {
+        for (City city : cities)
+        {
+            double[] values = CityMetric.valuesOf(city);
+            valuesById.put(city.getCityid(), values);
+            for (int i = 0; i < sums.length; i++)
+            {
+                sums[i] += values[i];
+            }
+        }
+    }
+
+    private static void afterCommit(Runnable change)
+    {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    change.run();
+                }
+            });
+        } else
+        {
+            change.run();
+        }
+    }
+
+    private static final class Means
+    {
+        private final double[] means;
+
+        private final int count;
+
+        private Means(
+            double[] means,
+            int count)
+        {
+            this.means = means;
+            this.count = count;
+        }
+    }
+}
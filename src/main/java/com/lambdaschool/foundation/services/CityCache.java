@@ -0,0 +1,176 @@
+package com.lambdaschool.foundation.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lambdaschool.foundation.models.City;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process cache in front of the city lookups of CityService.
+ * <p>
+ * Backed by Caffeine, which evicts with W-TinyLFU and loads each key once no matter how many
+ * readers ask for it at the same time. Entries are weighed by their number of occupations so the
+ * bound follows the memory a city actually takes. Hit, miss and eviction counts are published
+ * through Micrometer as cache.* metrics tagged cache=cities.byId and cache=cities.byName.
+ * <p>
+ * Cached cities are shared between readers and must not be modified.
+ */
+@Component
+public class CityCache
+{
+    private final Cache<Long, City> byId;
+
+    private final Cache<String, City> byName;
+
+    /**
+     * Name each cached city was last loaded under, so a change to a city by id
+     * can also drop its entry by name
+     */
+    private final Map<Long, String> namesById = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxWeight  the total weight (one per city plus one per occupation) each cache may hold
+     * @param registries where the cache statistics are published, if metrics are enabled
+     */
+    public CityCache(
+        @Value("${citrics.cache.cities.max-weight:200000}")
+            long maxWeight,
+        ObjectProvider<MeterRegistry> registries)
+    {
+        byId = Caffeine.newBuilder()
+            .maximumWeight(maxWeight)
+            .weigher((Long id, City city) -> weigh(city))
+            .recordStats()
+            .build();
+        byName = Caffeine.newBuilder()
+            .maximumWeight(maxWeight)
+            .weigher((String name, City city) -> weigh(city))
+            .recordStats()
+            .build();
+
+        registries.ifAvailable(registry ->
+        {
+            CaffeineCacheMetrics.monitor(registry, byId, "cities.byId");
+            CaffeineCacheMetrics.monitor(registry, byName, "cities.byName");
+        });
+    }
+
+    private static int weigh(City city)
+    {
+        return 1 + city.getOccupations()
+            .size();
+    }
+
+    /**
+     * Returns the cached city with the given id, loading it on a miss
+     *
+     * @param id     cityid
+     * @param loader loads the city from the database, must throw if the city does not exist
+     * @return the city
+     */
+    public City getById(
+        long id,
+        Function<Long, City> loader)
+    {
+        return byId.get(id, loader);
+    }
+
+    /**
+     * Returns the cached city with the given name, loading it on a miss
+     *
+     * @param name   name of the city
+     * @param loader loads the city from the database, returns null if there is no such city
+     * @return the city or null if the loader found none
+     */
+    public City getByName(
+        String name,
+        Function<String, City> loader)
+    {
+        return byName.get(name, n ->
+        {
+            City city = loader.apply(n);
+            if (city != null)
+            {
+                namesById.put(city.getCityid(), n);
+            }
+            return city;
+        });
+    }
+
+    /**
+     * Caches a city under its id and name without loading it, replacing what was cached for them
+     *
+     * @param city a city as the loaders would return it
+     */
+    public void put(City city)
+    {
+        byId.put(city.getCityid(), city);
+        byName.put(city.getName(), city);
+        namesById.put(city.getCityid(), city.getName());
+    }
+
+    /**
+     * Drops a city from the cache under its id and every name it is known by.
+     * When called inside a transaction the city is dropped again after commit,
+     * so a reader cannot put back the old row while the transaction is still running.
+     *
+     * @param id    cityid
+     * @param names names the city was stored under before and after the change
+     */
+    public void invalidate(
+        long id,
+        String... names)
+    {
+        evict(id, names);
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    evict(id, names);
+                }
+            });
+        }
+    }
+
+    private void evict(
+        long id,
+        String... names)
+    {
+        byId.invalidate(id);
+        String knownName = namesById.remove(id);
+        if (knownName != null)
+        {
+            byName.invalidate(knownName);
+        }
+        for (String name : names)
+        {
+            if (name != null)
+            {
+                byName.invalidate(name);
+            }
+        }
+    }
+
+    /**
+     * Drops every cached city
+     */
+    public void invalidateAll()
+    {
+        byId.invalidateAll();
+        byName.invalidateAll();
+        namesById.clear();
+    }
+}
@@ -0,0 +1,377 @@
+package com.lambdaschool.foundation.services;
+
+import com.lambdaschool.foundation.models.CityGroupBy;
+import com.lambdaschool.foundation.models.HistoryMetric;
+import com.lambdaschool.foundation.models.HistoryPoint;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time-series store of the historical metrics of every city: population, income, housing cost, COVID cases
+ * and weather over time, as a HistorySeries per city and HistoryMetric.
+ * <p>
+ * With citrics.history.compress=true, the default, each series is kept as a GorillaSeries, compressed in
+ * direct buffers outside of the heap that the series of one load share. Otherwise as a CitySeries of primitive
+ * arrays, faster to read from but several times larger.
+ * <p>
+ * The series are built whole by a Builder and swapped in per city, so a reader sees a city either before or
+ * after a load, never part way. The store is in memory only; HistoryIngestion fills it from the history file
+ * on every start. The values held are published as citrics.history.points and the bytes they take as
+ * citrics.history.bytes.
+ * <p>
+ * National and per-state averages of each metric are reduced from the series by HistoryAverages and kept until
+ * the series or the cities change. Callers asking for the same metric while it is reduced wait for that reduction
+ * through a SingleFlight instead of starting their own.
+ */
+@Component
+public class CityHistory
+{
+    /**
+     * Most bytes of a block of compressed series
+     */
+    private static final int BLOCK_SIZE = 1 << 20;
+
+    /**
+     * Series of each city by cityid, indexed by HistoryMetric ordinal, null where a city has no values
+     */
+    private final Map<Long, HistorySeries[]> byCity = new ConcurrentHashMap<>();
+
+    private final boolean compress;
+
+    /**
+     * Goes up on every load and remove
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * The last averages computed of each metric, used while neither the series nor the cities changed
+     */
+    private final Map<HistoryMetric, HistoryAverages> averages = new ConcurrentHashMap<>();
+
+    private final SingleFlight<HistoryMetric, HistoryAverages> averagesFlights =
+        new SingleFlight<>("history.averages", Metrics.globalRegistry);
+
+    /**
+     * @param compress keep the series compressed off heap rather than in arrays
+     */
+    public CityHistory(
+        @Value("${citrics.history.compress:true}")
+            boolean compress)
+    {
+        this.compress = compress;
+        Gauge.builder("citrics.history.points", this, CityHistory::pointCount)
+            .description("Values held by the historical series of every city")
+            .register(Metrics.globalRegistry);
+        Gauge.builder("citrics.history.bytes", this, CityHistory::byteCount)
+            .description("Bytes taken by the values of the historical series of every city")
+            .baseUnit("bytes")
+            .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * @return the series of a city for metric, null if it has no values
+     */
+    public HistorySeries get(
+        long cityid,
+        HistoryMetric metric)
+    {
+        HistorySeries[] series = byCity.get(cityid);
+        return series == null ? null : series[metric.ordinal()];
+    }
+
+    /**
+     * @param cityid   cityid
+     * @param metric   which series
+     * @param fromYear first year, inclusive
+     * @param toYear   last year, inclusive
+     * @return the values of those years, oldest first, none if the city has no such series
+     */
+    public List<HistoryPoint> range(
+        long cityid,
+        HistoryMetric metric,
+        int fromYear,
+        int toYear)
+    {
+        HistorySeries series = get(cityid, metric);
+        return series == null ? Collections.emptyList() : series.range(fromYear, toYear);
+    }
+
+    /**
+     * Drops every series of a city, for when the city is deleted
+     */
+    public void remove(long cityid)
+    {
+        byCity.remove(cityid);
+        version.incrementAndGet();
+    }
+
+    /**
+     * Replaces every series the builder has values for, leaving the others as they were
+     */
+    public void load(Builder builder)
+    {
+        // blocks about the size of what is loaded, a few bytes a value
+        SeriesBlocks blocks = new SeriesBlocks((int) Math.min(BLOCK_SIZE, Math.max(4096, builder.size() * 4L)));
+        for (Map.Entry<Long, Points[]> city : builder.points.entrySet())
+        {
+            Points[] points = city.getValue();
+            HistorySeries[] loaded = new HistorySeries[points.length];
+            for (int m = 0; m < points.length; m++)
+            {
+                if (points[m] != null)
+                {
+                    CitySeries series = points[m].toSeries();
+                    loaded[m] = compress ? series.compress(blocks) : series;
+                }
+            }
+            byCity.compute(city.getKey(), (id, old) ->
+            {
+                HistorySeries[] series = old == null ? new HistorySeries[HistoryMetric.all().length] : old.clone();
+                for (int m = 0; m < loaded.length; m++)
+                {
+                    if (loaded[m] != null)
+                    {
+                        series[m] = loaded[m];
+                    }
+                }
+                return series;
+            });
+        }
+        version.incrementAndGet();
+    }
+
+    /**
+     * National and per-state averages of metric, computed in parallel by HistoryAverages the first time
+     * they are asked for after the series or the cities changed
+     *
+     * @param metric   which series
+     * @param snapshot the cities at the current dataset version, for the state of each
+     * @return the averages, shared between callers
+     */
+    public HistoryAverages averages(
+        HistoryMetric metric,
+        CitySnapshot snapshot)
+    {
+        HistoryAverages cached = cached(metric, snapshot);
+        if (cached != null)
+        {
+            return cached;
+        }
+        return averagesFlights.execute(metric, () ->
+        {
+            // computed by a flight that finished after the check above
+            HistoryAverages current = cached(metric, snapshot);
+            return current != null ? current : compute(metric, snapshot);
+        });
+    }
+
+    /**
+     * @return the last averages computed of metric, if neither the series nor the cities changed since
+     */
+    private HistoryAverages cached(
+        HistoryMetric metric,
+        CitySnapshot snapshot)
+    {
+        HistoryAverages cached = averages.get(metric);
+        if (cached != null && cached.getHistoryVersion() == version.get()
+            && cached.getSnapshotVersion() == snapshot.getVersion())
+        {
+            return cached;
+        }
+        return null;
+    }
+
+    private HistoryAverages compute(
+        HistoryMetric metric,
+        CitySnapshot snapshot)
+    {
+        long at = version.get();
+        Map<Long, String> stateOf = new HashMap<>();
+        for (int row = 0; row < snapshot.size(); row++)
+        {
+            stateOf.put(snapshot.cityid(row), snapshot.group(CityGroupBy.STATE, row));
+        }
+        List<HistorySeries> series = new ArrayList<>(byCity.size());
+        List<String> states = new ArrayList<>(byCity.size());
+        for (Map.Entry<Long, HistorySeries[]> city : byCity.entrySet())
+        {
+            HistorySeries s = city.getValue()[metric.ordinal()];
+            if (s != null)
+            {
+                series.add(s);
+                states.add(stateOf.get(city.getKey()));
+            }
+        }
+
+        HistoryAverages computed = HistoryAverages.compute(series.toArray(new HistorySeries[0]),
+            states.toArray(new String[0]), ForkJoinPool.getCommonPoolParallelism(), at, snapshot.getVersion());
+        averages.put(metric, computed);
+        return computed;
+    }
+
+    /**
+     * @return number of cities with at least one series
+     */
+    public int cityCount()
+    {
+        return byCity.size();
+    }
+
+    /**
+     * @return number of values held over every series
+     */
+    public long pointCount()
+    {
+        long count = 0;
+        for (HistorySeries[] series : byCity.values())
+        {
+            for (HistorySeries s : series)
+            {
+                if (s != null)
+                {
+                    count += s.size();
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return bytes taken by the values of every series, on or off heap
+     */
+    public long byteCount()
+    {
+        long bytes = 0;
+        for (HistorySeries[] series : byCity.values())
+        {
+            for (HistorySeries s : series)
+            {
+                if (s != null)
+                {
+                    bytes += s.bytes();
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Collects values in any order for a load. Not thread safe.
+     */
+    public static class Builder
+    {
+        private final Map<Long, Points[]> points = new HashMap<>();
+
+        private int size;
+
+        /**
+         * @param month 1 to 12, or 0 for a yearly value
+         * @param day   1 to 31, or 0 for a yearly or monthly value
+         * @return this builder
+         */
+        public Builder add(
+            long cityid,
+            HistoryMetric metric,
+            int year,
+            int month,
+            int day,
+            double value)
+        {
+            Points[] city = points.computeIfAbsent(cityid, id -> new Points[HistoryMetric.all().length]);
+            Points series = city[metric.ordinal()];
+            if (series == null)
+            {
+                series = new Points();
+                city[metric.ordinal()] = series;
+            }
+            series.add(CitySeries.period(year, month, day), value);
+            size++;
+            return this;
+        }
+
+        /**
+         * @return number of values added
+         */
+        public int size()
+        {
+            return size;
+        }
+
+        /**
+         * @return number of cities values were added for
+         */
+        public int cityCount()
+        {
+            return points.size();
+        }
+    }
+
+    /**
+     * The values of one series as they were added, in growing primitive arrays
+     */
+    private static final class Points
+    {
+        private int[] periods = new int[16];
+
+        private double[] values = new double[16];
+
+        private int size;
+
+        private void add(
+            int period,
+            double value)
+        {
+            if (size == periods.length)
+            {
+                periods = Arrays.copyOf(periods, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            periods[size] = period;
+            values[size] = value;
+            size++;
+        }
+
+        /**
+         * Sorts by period, the value added last winning when a period was added more than once
+         */
+        private CitySeries toSeries()
+        {
+            // period in the high half and the order added in the low half, so one sort of primitives does both
+            long[] order = new long[size];
+            for (int i = 0; i < size; i++)
+            {
+                order[i] = (long) periods[i] << 32 | i;
+            }
+            Arrays.sort(order);
+
+            int[] sortedPeriods = new int[size];
+            double[] sortedValues = new double[size];
+            int count = 0;
+            for (int i = 0; i < size; i++)
+            {
+                int period = (int) (order[i] >>> 32);
+                int added = (int) order[i];
+                if (count > 0 && sortedPeriods[count - 1] == period)
+                {
+                    count--;
+                }
+                sortedPeriods[count] = period;
+                sortedValues[count] = values[added];
+                count++;
+            }
+            return new CitySeries(Arrays.copyOf(sortedPeriods, count), Arrays.copyOf(sortedValues, count));
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.lambdaschool.foundation.services;
+
+import com.lambdaschool.foundation.repository.CityRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Bloom filter over the names of every city in the database.
+ * <p>
+ * Answers "is there possibly a city with this name" from memory, so names we have never loaded
+ * are rejected before any query runs or any exception is thrown. A name that is in the database is never
+ * rejected; a name that is not gets through with a probability of about the configured false positive rate
+ * and is then looked up as usual.
+ * <p>
+ * The filter is built from the database on first use and on rebuild(). Names saved after that are added
+ * as they are saved. Once more names have been added than the filter was sized for it is built again.
+ * Rejected names are counted in citrics.cities.names.rejected.
+ */
+@Component
+public class CityNameFilter
+{
+    /**
+     * Room left for names saved after a build, as a multiple of the number of names loaded
+     */
+    private static final int HEADROOM = 2;
+
+    private static final int MIN_CAPACITY = 1024;
+
+    private final CityRepository cityrepo;
+
+    private final double falsePositiveRate;
+
+    private final Counter rejected;
+
+    /**
+     * Changed on every add, so a build knows whether a name was saved while it was reading the database
+     */
+    private final AtomicInteger version = new AtomicInteger();
+
+    /**
+     * Null until the first build, and after more names were added than the filter has room for
+     */
+    private volatile Bits bits;
+
+    /**
+     * @param cityrepo          where the names are read from
+     * @param falsePositiveRate chance that a name which is not in the database is let through
+     */
+    public CityNameFilter(
+        CityRepository cityrepo,
+        @Value("${citrics.cities.name-filter.false-positive-rate:0.01}")
+            double falsePositiveRate)
+    {
+        this.cityrepo = cityrepo;
+        this.falsePositiveRate = falsePositiveRate;
+        rejected = Counter.builder("citrics.cities.names.rejected")
+            .description("City names rejected without a database lookup")
+            .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * @param name name of a city
+     * @return false if there is certainly no city with this name, true if there may be one
+     */
+    public boolean mightContain(String name)
+    {
+        if (name == null)
+        {
+            return false;
+        }
+        Bits current = bits;
+        if (current == null)
+        {
+            current = buildIfMissing();
+        }
+        if (current.mightContain(name))
+        {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * Adds the name of a saved city. When called inside a transaction the name is added again
+     * after commit, so a build that read the database before the commit does not lose it.
+     *
+     * @param name name of the city
+     */
+    public void add(String name)
+    {
+        if (name == null)
+        {
+            return;
+        }
+        put(name);
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    put(name);
+                }
+            });
+        }
+    }
+
+    private void put(String name)
+    {
+        Bits current = bits;
+        if (current != null && !current.put(name))
+        {
+            // full, the next lookup builds a bigger filter from the database
+            bits = null;
+        }
+        version.incrementAndGet();
+    }
+
+    /**
+     * Builds the filter again from the names in the database, for after the cities were loaded or replaced in bulk
+     */
+    public synchronized void rebuild()
+    {
+        build(cityrepo::findAllNames);
+    }
+
+    /**
+     * Builds the filter from names read elsewhere, such as a CitySnapshotFile, unless it was built already
+     *
+     * @param names the name of every city in the database
+     */
+    public synchronized void load(List<String> names)
+    {
+        if (bits == null)
+        {
+            build(() -> names);
+        }
+    }
+
+    private synchronized Bits buildIfMissing()
+    {
+        Bits current = bits;
+        return current != null ? current : build(cityrepo::findAllNames);
+    }
+
+    private Bits build(Supplier<List<String>> source)
+    {
+        Bits built;
+        int before;
+        do
+        {
+            before = version.get();
+            List<String> names = source.get();
+            built = new Bits(Math.max(names.size() * HEADROOM, MIN_CAPACITY), falsePositiveRate);
+            for (String name : names)
+            {
+                built.put(name);
+            }
+            bits = built;
+        } while (version.get() != before);
+        return built;
+    }
+
+    /**
+     * The bit array of one build, sized for a number of names and a false positive rate
+     */
+    private static final class Bits
+    {
+        private final AtomicLongArray words;
+
+        private final long size;
+
+        private final int hashes;
+
+        private final int capacity;
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        Bits(
+            int capacity,
+            double falsePositiveRate)
+        {
+            double ln2 = Math.log(2);
+            long bitCount = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (ln2 * ln2));
+            words = new AtomicLongArray((int) ((bitCount + 63) / 64));
+            size = words.length() * 64L;
+            hashes = Math.max(1, (int) Math.round((double) size / capacity * ln2));
+            this.capacity = capacity;
+        }
+
+        /**
+         * Sets the bits of a name. A name whose bits were all set already, put before or saved again,
+         * is not counted, so counting is toward names, not calls.
+         *
+         * @return false once more names were put than the filter was sized for
+         */
+        boolean put(String name)
+        {
+            long hash = hash(name);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            boolean set = false;
+            for (int i = 1; i <= hashes; i++)
+            {
+                long bit = index(h1, h2, i);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long old;
+                do
+                {
+                    old = words.get(word);
+                    if ((old & mask) != 0)
+                    {
+                        break;
+                    }
+                } while (!words.compareAndSet(word, old, old | mask));
+                set |= (old & mask) == 0;
+            }
+            return (set ? count.incrementAndGet() : count.get()) <= capacity;
+        }
+
+        boolean mightContain(String name)
+        {
+            long hash = hash(name);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashes; i++)
+            {
+                long bit = index(h1, h2, i);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0)
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * The i-th bit of a name, derived from the two halves of one 64 bit hash (Kirsch and Mitzenmacher)
+         */
+        private long index(
+            int h1,
+            int h2,
+            int i)
+        {
+            return ((h1 + (long) i * h2) & Long.MAX_VALUE) % size;
+        }
+
+        /**
+         * 64 bit FNV-1a over the characters, finished with the MurmurHash3 mix so both halves are usable
+         */
+        private static long hash(String name)
+        {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < name.length(); i++)
+            {
+                h ^= name.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
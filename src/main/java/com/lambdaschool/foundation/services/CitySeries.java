@@ -0,0 +1,172 @@
+package com.lambdaschool.foundation.services;
+
+import com.lambdaschool.foundation.models.HistoryPoint;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One historical series of one city in primitive arrays, immutable.
+ * <p>
+ * The periods of the values, in increasing order, and the values are two primitive arrays indexed alike, so a
+ * value costs 12 bytes instead of the boxed keys, values and entries of nested maps, and a range of periods is
+ * found by binary search.
+ * <p>
+ * A period is year * 10000 + month * 100 + day, with day, or month and day, 0 for monthly and yearly values,
+ * so periods sort by time and the values of a range of years are one run of the arrays.
+ */
+public class CitySeries implements HistorySeries
+{
+    private final int[] periods;
+
+    private final double[] values;
+
+    /**
+     * @param periods in increasing order, without repeats
+     * @param values  the value of each period
+     */
+    CitySeries(
+        int[] periods,
+        double[] values)
+    {
+        this.periods = periods;
+        this.values = values;
+    }
+
+    /**
+     * @param year  year of the value
+     * @param month 1 to 12, or 0 for a yearly value
+     * @param day   1 to 31, or 0 for a yearly or monthly value
+     * @return the period of a value at that time
+     */
+    public static int period(
+        int year,
+        int month,
+        int day)
+    {
+        return year * 10000 + month * 100 + day;
+    }
+
+    @Override
+    public int size()
+    {
+        return periods.length;
+    }
+
+    @Override
+    public int firstPeriod()
+    {
+        return periods.length == 0 ? 0 : periods[0];
+    }
+
+    @Override
+    public int lastPeriod()
+    {
+        return periods.length == 0 ? 0 : periods[periods.length - 1];
+    }
+
+    @Override
+    public Cursor cursor()
+    {
+        return new Cursor()
+        {
+            private int i = -1;
+
+            @Override
+            public boolean next()
+            {
+                return ++i < periods.length;
+            }
+
+            @Override
+            public int period()
+            {
+                return periods[i];
+            }
+
+            @Override
+            public double value()
+            {
+                return values[i];
+            }
+        };
+    }
+
+    /**
+     * @param blocks where the compressed series is put
+     * @return the same values as a GorillaSeries
+     */
+    GorillaSeries compress(SeriesBlocks blocks)
+    {
+        return GorillaSeries.encode(periods, values, blocks);
+    }
+
+    @Override
+    public long bytes()
+    {
+        return (long) periods.length * (Integer.BYTES + Double.BYTES);
+    }
+
+    public int periodAt(int i)
+    {
+        return periods[i];
+    }
+
+    public double valueAt(int i)
+    {
+        return values[i];
+    }
+
+    /**
+     * @return index of the first period at or after period, size() if there is none
+     */
+    int lowerBound(int period)
+    {
+        int low = 0;
+        int high = periods.length;
+        while (low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if (periods[mid] < period)
+            {
+                low = mid + 1;
+            } else
+            {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param fromYear first year, inclusive
+     * @param toYear   last year, inclusive
+     * @return the values of those years, oldest first
+     */
+    @Override
+    public List<HistoryPoint> range(
+        int fromYear,
+        int toYear)
+    {
+        List<HistoryPoint> points = new ArrayList<>();
+        if (fromYear > toYear)
+        {
+            return points;
+        }
+        int end = lowerBound(period(toYear + 1, 0, 0));
+        for (int i = lowerBound(period(fromYear, 0, 0)); i < end; i++)
+        {
+            points.add(point(periods[i], values[i]));
+        }
+        return points;
+    }
+
+    static HistoryPoint point(
+        int period,
+        double value)
+    {
+        int month = period / 100 % 100;
+        int day = period % 100;
+        return new HistoryPoint(period / 10000, month == 0 ? null : month, day == 0 ? null : day, value);
+    }
+}
@@ -1,8 +1,12 @@
 package com.lambdaschool.foundation.services;
 
 import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.CityAggregate;
+import com.lambdaschool.foundation.models.CityFilter;
+import com.lambdaschool.foundation.models.HistoryPoint;
 
 import java.util.List;
+import java.util.Map;
 
 //import com.lambdaschool.foundation.models.CityIdName;
 
@@ -14,6 +18,27 @@ public interface CityService
      */
     List<City> findAll();
 
+    /**
+     * Find all cities along with their occupations
+     * @return list of cities
+     */
+    List<City> findAllWithOccupations();
+
+    /**
+     * Find all cities whose fields fall inside every range of the filter
+     * @param cityFilter min and max for each field to filter on, fields left null are not filtered
+     * @return list of matching cities
+     */
+    List<City> findFiltered(CityFilter cityFilter);
+
+    /**
+     * Count, mean, min and max of every numeric city field, per group of cities,
+     * with quantiles for rent, wages and walkscore
+     * @param groupBy state, climate_zone or simple_climate
+     * @return one aggregate per group
+     */
+    List<CityAggregate> findAggregates(String groupBy);
+
     /**
      * Finds city by cityid
      * @param id cityid
@@ -21,6 +46,33 @@ public interface CityService
      */
     City findCityById(long id);
 
+    /**
+     * Percentile rank of a city among all cities for rent, wages and walkscore
+     * @param id cityid
+     * @return rank from 0 to 100 keyed by field name
+     */
+    Map<String, Double> findPercentileRanks(long id);
+
+    /**
+     * Values of a historical series of a city over a range of years
+     * @param id     cityid
+     * @param metric population, income, household_income, housing, covid, precipitation or temperature
+     * @param from   first year, inclusive, or null for the oldest
+     * @param to     last year, inclusive, or null for the latest
+     * @return the values, oldest first
+     */
+    List<HistoryPoint> findHistory(long id, String metric, Integer from, Integer to);
+
+    /**
+     * Average of a historical series over all cities, or over the cities of one state, over a range of years
+     * @param metric population, income, household_income, housing, covid, precipitation or temperature
+     * @param state  state code, or null for every city
+     * @param from   first year, inclusive, or null for the oldest
+     * @param to     last year, inclusive, or null for the latest
+     * @return the average of each period, oldest first
+     */
+    List<HistoryPoint> findAverageHistory(String metric, String state, Integer from, Integer to);
+
     /**
      * Saves new city
      * @param city new city to be saved
@@ -28,6 +80,32 @@ public interface CityService
      */
     City save(City city);
 
+    /**
+     * Brings the caches, the name filter, the national average and the dataset version up to date with cities
+     * that were inserted without save, once the running transaction commits
+     * @param cities new cities, already persisted
+     */
+    void inserted(List<City> cities);
+
+    /**
+     * Fills the caches, the name filter, the national average and the city snapshot from cities read from elsewhere,
+     * so the first reads do not load them from the database
+     * @param cities every city in the database with its occupations, not attached to a persistence context
+     */
+    void warmStart(List<City> cities);
+
+    /**
+     * Fills the caches, the name filter, the national average and the city snapshot again from the database,
+     * dropping whatever warmStart put there
+     */
+    void reload();
+
+    /**
+     * Deletes a city
+     * @param id cityid
+     */
+    void delete(long id);
+
     /**
      * Saves new city from DS API schema
      * @param city new city to be saved
@@ -42,6 +120,34 @@ public interface CityService
      */
     City findByName(String name);
 
+    /**
+     * Finds city by name without throwing when there is none.
+     * Names we have never loaded are rejected without a database lookup.
+     * @param name name of the city
+     * @return City object matching name or null
+     */
+    City findByNameOrNull(String name);
+
+    /**
+     * Checks the name against every city name loaded, without a database lookup
+     * @param name name of the city
+     * @return false if there is certainly no city by that name, true if there may be one
+     */
+    boolean isKnownName(String name);
+
+    /**
+     * Adds delta to the number of users who have favorited a city
+     * @param id cityid
+     * @param delta +1 when a user favorites the city, -1 when they remove it
+     */
+    void adjustFavoriteCount(long id, int delta);
+
+    /**
+     * Sets the favorite count of every city back to the number of users who have favorited it
+     * @return the number of cities whose count was wrong
+     */
+    int recountFavorites();
+
     /**
      * Finds all cities id's and citynamestate's
      * @return List of city id's and citynamestates
@@ -55,8 +161,15 @@ public interface CityService
     City findAverageCity();
 
     /**
-     * Finds the average city object stored in DB
-     * @return
+     * Finds the national count, mean, min and max of every numeric city field,
+     * with quantiles for rent, wages and walkscore
+     * @return the national aggregate
+     */
+    CityAggregate findAverageStats();
+
+    /**
+     * Finds the national average of all cities
+     * @return a City object named National Average, USA with the average of all city fields
      */
     City returnAverageCity();
 }
@@ -3,21 +3,39 @@ package com.lambdaschool.foundation.services;
 
 import com.lambdaschool.foundation.exceptions.ResourceNotFoundException;
 import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.CityAggregate;
+import com.lambdaschool.foundation.models.CityFilter;
+import com.lambdaschool.foundation.models.CityGroupBy;
+import com.lambdaschool.foundation.models.HistoryMetric;
+import com.lambdaschool.foundation.models.HistoryPoint;
+import com.lambdaschool.foundation.models.MinMaxDbl;
+import com.lambdaschool.foundation.models.MinMaxInt;
 import com.lambdaschool.foundation.models.User;
 import com.lambdaschool.foundation.models.UserCities;
 import com.lambdaschool.foundation.repository.CityRepository;
 import com.lambdaschool.foundation.repository.UserRepository;
+import io.micrometer.core.instrument.Metrics;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 @Transactional
 @Service(value = "cityService")
 public class CityServiceImpl implements CityService
 {
+    /**
+     * Years a history range is clamped to, so the periods of CitySeries do not overflow
+     */
+    private static final int MIN_YEAR = 0;
+
+    private static final int MAX_YEAR = 9999;
+
     /**
      * Connections to needed repositories
      */
@@ -27,6 +45,46 @@ public class CityServiceImpl implements CityService
     @Autowired
     private UserRepository userrepo;
 
+    /**
+     * Read-through cache in front of findCityById and findByName
+     */
+    @Autowired
+    private CityCache cityCache;
+
+    /**
+     * Rejects names of cities we do not have before they reach the cache or the database
+     */
+    @Autowired
+    private CityNameFilter cityNames;
+
+    /**
+     * Running sums behind the national average
+     */
+    @Autowired
+    private CityAverages cityAverages;
+
+    /**
+     * Columnar copy of the cities at the current dataset version, for aggregates
+     */
+    @Autowired
+    private CitySnapshots citySnapshots;
+
+    /**
+     * Historical series of every city
+     */
+    @Autowired
+    private CityHistory cityHistory;
+
+    /**
+     * Concurrent requests for the same expensive result share one computation.
+     * Those methods run outside of a transaction so waiting callers do not hold a connection.
+     */
+    private final SingleFlight<String, List<City>> allWithOccupationsFlights =
+        new SingleFlight<>("cities.all-long", Metrics.globalRegistry);
+
+    private final SingleFlight<CityFilter, List<City>> filterFlights =
+        new SingleFlight<>("cities.filter", Metrics.globalRegistry);
+
 
     /**
      * Find all cities in DB
@@ -45,6 +103,81 @@ public class CityServiceImpl implements CityService
         return list;
     }
 
+    /**
+     * Find all cities in DB along with their occupations
+     *
+     * @return list of Cities
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    @Override
+    public List<City> findAllWithOccupations()
+    {
+        return allWithOccupationsFlights.execute("all", () ->
+            Collections.unmodifiableList(cityrepo.findAllWithOccupations()));
+    }
+
+    /**
+     * Find all cities whose fields fall inside every range of the filter
+     *
+     * @param cityFilter min and max for each field to filter on, fields left null are not filtered
+     * @return list of matching cities
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    @Override
+    public List<City> findFiltered(CityFilter cityFilter)
+    {
+        return filterFlights.execute(cityFilter, () ->
+        {
+            List<City> list = new ArrayList<>();
+            for (City c : findAll())
+            {
+                if (inRange(cityFilter.getPopulation(), c.getPopulation()) &&
+                    inRange(cityFilter.getStudio(), c.getStudio()) &&
+                    inRange(cityFilter.getOnebr(), c.getOnebr()) &&
+                    inRange(cityFilter.getTwobr(), c.getTwobr()) &&
+                    inRange(cityFilter.getThreebr(), c.getThreebr()) &&
+                    inRange(cityFilter.getFourbr(), c.getFourbr()) &&
+                    inRange(cityFilter.getHourly_wage(), c.getHourly_wage()) &&
+                    inRange(cityFilter.getAnnual_wage(), c.getAnnual_wage()) &&
+                    inRange(cityFilter.getWalkscore(), c.getWalkscore()))
+                {
+                    list.add(c);
+                }
+            }
+            return Collections.unmodifiableList(list);
+        });
+    }
+
+    private static boolean inRange(MinMaxInt range, int value)
+    {
+        return range == null || (range.getMin() <= value && value <= range.getMax());
+    }
+
+    private static boolean inRange(MinMaxDbl range, double value)
+    {
+        return range == null || (range.getMin() <= value && value <= range.getMax());
+    }
+
+    /**
+     * Count, mean, min and max of every numeric city field, per group of cities.
+     * Computed once per dataset version.
+     *
+     * @param groupBy state, climate_zone or simple_climate
+     * @return one aggregate per group
+     * @throws ResourceNotFoundException if cities can not be grouped by that field
+     */
+    @Override
+    public List<CityAggregate> findAggregates(String groupBy) throws ResourceNotFoundException
+    {
+        CityGroupBy group = CityGroupBy.fromField(groupBy);
+        if (group == null)
+        {
+            throw new ResourceNotFoundException("Group by " + groupBy + " not found!");
+        }
+        return citySnapshots.current()
+            .aggregate(group);
+    }
+
     /**
      * find city by cityid
      *
@@ -55,8 +188,92 @@ public class CityServiceImpl implements CityService
     @Override
     public City findCityById(long id) throws ResourceNotFoundException
     {
-        return cityrepo.findById(id)
-            .orElseThrow(() -> new ResourceNotFoundException("City id " + id + " not found!"));
+        return cityCache.getById(id, key -> cityrepo.findById(key)
+            .orElseThrow(() -> new ResourceNotFoundException("City id " + key + " not found!")));
+    }
+
+    /**
+     * Percentile rank of a city among all cities for rent, wages and walkscore.
+     * Computed once per dataset version.
+     *
+     * @param id cityid
+     * @return rank from 0 to 100 keyed by field name
+     * @throws ResourceNotFoundException if there is no city with that id
+     */
+    @Override
+    public Map<String, Double> findPercentileRanks(long id) throws ResourceNotFoundException
+    {
+        Map<String, Double> ranks = citySnapshots.current()
+            .percentileRanks(id);
+        if (ranks == null)
+        {
+            throw new ResourceNotFoundException("City id " + id + " not found!");
+        }
+        return ranks;
+    }
+
+    /**
+     * Values of a historical series of a city over a range of years, from CityHistory
+     *
+     * @param id     cityid
+     * @param metric name of a HistoryMetric
+     * @param from   first year, inclusive, or null for the oldest
+     * @param to     last year, inclusive, or null for the latest
+     * @return the values, oldest first, none if the city has no values of that metric
+     * @throws ResourceNotFoundException if there is no city with that id or no metric of that name
+     */
+    @Override
+    public List<HistoryPoint> findHistory(long id, String metric, Integer from, Integer to)
+        throws ResourceNotFoundException
+    {
+        HistoryMetric historyMetric = historyMetric(metric);
+        // throws if there is no such city, from the cache for one that was asked for before
+        findCityById(id);
+        return cityHistory.range(id, historyMetric, fromYear(from), toYear(to));
+    }
+
+    /**
+     * Average of a historical series over all cities or the cities of one state, from the HistoryAverages
+     * of CityHistory, computed once per change to the series or the cities
+     *
+     * @param metric name of a HistoryMetric
+     * @param state  state code, or null for every city
+     * @param from   first year, inclusive, or null for the oldest
+     * @param to     last year, inclusive, or null for the latest
+     * @return the average of each period, oldest first
+     * @throws ResourceNotFoundException if there is no metric of that name or no city of that state has values of it
+     */
+    @Override
+    public List<HistoryPoint> findAverageHistory(String metric, String state, Integer from, Integer to)
+        throws ResourceNotFoundException
+    {
+        HistoryAverages averages = cityHistory.averages(historyMetric(metric), citySnapshots.current());
+        CitySeries series = state == null ? averages.national() : averages.state(state);
+        if (series == null)
+        {
+            throw new ResourceNotFoundException("State " + state + " not found!");
+        }
+        return series.range(fromYear(from), toYear(to));
+    }
+
+    private static HistoryMetric historyMetric(String metric) throws ResourceNotFoundException
+    {
+        HistoryMetric historyMetric = HistoryMetric.fromField(metric);
+        if (historyMetric == null)
+        {
+            throw new ResourceNotFoundException("Metric " + metric + " not found!");
+        }
+        return historyMetric;
+    }
+
+    private static int fromYear(Integer from)
+    {
+        return from == null ? MIN_YEAR : Math.max(from, MIN_YEAR);
+    }
+
+    private static int toYear(Integer to)
+    {
+        return to == null ? MAX_YEAR : Math.min(to, MAX_YEAR);
     }
 
     /**
@@ -70,12 +287,20 @@ public class CityServiceImpl implements CityService
     public City save(City city)
     {
         City c = new City();
+        boolean inserted = city.getCityid() == 0;
 
-        if (city.getCityid() != 0)
+        if (!inserted)
         {
-            cityrepo.findById(city.getCityid())
+            City existing = cityrepo.findById(city.getCityid())
                 .orElseThrow(() -> new ResourceNotFoundException("City id " + city.getCityid() + " not found!"));
             c.setCityid(city.getCityid());
+            // the favorite count is only changed through adjustFavoriteCount
+            city.setFavoriteCount(existing.getFavoriteCount());
+            cityCache.invalidate(existing.getCityid(), existing.getName(), city.getName());
+        } else
+        {
+            // a new city may have been looked up, and missed, by name before
+            cityCache.invalidate(0, city.getName());
         }
 
 
@@ -86,18 +311,132 @@ public class CityServiceImpl implements CityService
 
         }
 
-        return cityrepo.save(city);
+        cityNames.add(city.getName());
+        City saved = cityrepo.save(city);
+        cityAverages.saved(saved);
+        if (inserted)
+        {
+            citySnapshots.inserted(saved);
+        } else
+        {
+            citySnapshots.changed();
+        }
+        return saved;
+    }
+
+    @Override
+    public void inserted(List<City> cities)
+    {
+        for (City city : cities)
+        {
+            cityNames.add(city.getName());
+            cityAverages.saved(city);
+        }
+        // new names may have been looked up, and missed, before
+        cityCache.invalidateAll();
+        citySnapshots.changed();
+    }
+
+    @Override
+    public void warmStart(List<City> cities)
+    {
+        List<String> names = new ArrayList<>(cities.size());
+        for (City city : cities)
+        {
+            names.add(city.getName());
+            cityCache.put(city);
+        }
+        cityNames.load(names);
+        cityAverages.load(cities);
+        citySnapshots.seed(cities);
+    }
+
+    @Override
+    public void reload()
+    {
+        cityCache.invalidateAll();
+        cityNames.rebuild();
+        cityAverages.reload();
+        citySnapshots.changed();
+    }
+
+    /**
+     * Deletes a city along with its occupations and the favorites of it
+     *
+     * @param id cityid
+     */
+    @Transactional
+    @Override
+    public void delete(long id)
+    {
+        City city = cityrepo.findById(id)
+            .orElseThrow(() -> new ResourceNotFoundException("City id " + id + " not found!"));
+        cityrepo.delete(city);
+        cityCache.invalidate(id, city.getName());
+        cityAverages.deleted(id);
+        citySnapshots.changed();
+        cityHistory.remove(id);
     }
 
     @Override
     public City findByName(String name) {
-        City city = cityrepo.findByName(name);
+        City city = findByNameOrNull(name);
         if (city == null) {
             throw new ResourceNotFoundException("city by name of " + name + " not found!");
         }
         return city;
     }
 
+    @Override
+    public City findByNameOrNull(String name)
+    {
+        if (!cityNames.mightContain(name))
+        {
+            return null;
+        }
+        return cityCache.getByName(name, cityrepo::findByName);
+    }
+
+    @Override
+    public boolean isKnownName(String name)
+    {
+        return cityNames.mightContain(name);
+    }
+
+    /**
+     * Adds delta to the favorite count of a city
+     *
+     * @param id    cityid
+     * @param delta +1 when a user favorites the city, -1 when they remove it
+     */
+    @Transactional
+    @Override
+    public void adjustFavoriteCount(long id, int delta)
+    {
+        if (cityrepo.adjustFavoriteCount(id, delta) == 0)
+        {
+            throw new ResourceNotFoundException("City id " + id + " not found!");
+        }
+        cityCache.invalidate(id);
+    }
+
+    /**
+     * Sets the favorite count of every city back to the number of users who have favorited it
+     *
+     * @return the number of cities whose count was wrong
+     */
+    @Transactional
+    @Override
+    public int recountFavorites()
+    {
+        int corrected = cityrepo.recountFavorites();
+        if (corrected > 0)
+        {
+            cityCache.invalidateAll();
+        }
+        return corrected;
+    }
+
     /**
      * Saves new city from DS API schema
      * Had to modify last minute to accept new city schema returned by DS
@@ -148,43 +487,30 @@ public class CityServiceImpl implements CityService
     @Override
     public City findAverageCity()
     {
-        List<City> cities = new ArrayList<>();
-
-        City c = new City();
-        int totalCities = 0;
-        String cityNameState = "National Average, USA";
-        double totalLatitude = 0;
-        double totalLongitude = 0;
-        double totalPopulation = 0;
-        double totalDensityMiSq = 0;
-        double totalDensityKmSq = 0;
-        double totalAge = 0;
-        double totalHousehold = 0;
-        double totalIndividual = 0;
-        double totalHousing = 0;
-        double totalRent = 0;
-        double costOfLivingIndex = 0;
-        double totalTemp = 0;
-        double totalPerc = 0;
-        double totalCov = 0;
-
-        cityrepo.findAll()
-            .iterator()
-            .forEachRemaining(cities::add);
-
+        return cityAverages.average();
+    }
 
 
-        return c;
+    /**
+     * Count, mean, min, max and, for rent, wages and walkscore, p10, median and p90 of every numeric city field
+     * over all cities. Computed once per dataset version.
+     *
+     * @return the national aggregate
+     */
+    @Override
+    public CityAggregate findAverageStats()
+    {
+        return citySnapshots.current()
+            .national();
     }
 
-
     /**
-     * Finds the average city object stored in DB
+     * Finds the national average, kept up to date as cities are saved and deleted
      * @return National Average City
      */
     @Override
     public City returnAverageCity()
     {
-        return findByName("average");
+        return findAverageCity();
     }
 }
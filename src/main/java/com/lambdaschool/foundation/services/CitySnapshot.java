@@ -0,0 +1,449 @@
+package com.lambdaschool.foundation.services;
+
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.CityAggregate;
+import com.lambdaschool.foundation.models.CityGroupBy;
+import com.lambdaschool.foundation.models.CityMetric;
+import com.lambdaschool.foundation.models.MetricStats;
+import org.apache.datasketches.kll.KllFloatsSketch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Immutable, column oriented copy of the scalar fields of every city at one dataset version.
+ * <p>
+ * Each CityMetric is one double[] and each CityGroupBy one String[], all indexed by row, so aggregating
+ * reads a few flat arrays instead of walking entities. Aggregates are computed once per group by and kept
+ * with the snapshot, so they live exactly as long as the dataset version they were computed from.
+ * <p>
+ * Quantile sketches for every group are built along with the columns, see QuantileSketches for their error bounds.
+ * <p>
+ * The columns may be longer than the snapshot, which only reads its first size rows. A snapshot made by withCity
+ * writes the new city into the row after those, when the columns have room and no other snapshot wrote it already,
+ * so it shares the columns instead of copying them. Columns without room are copied with half again as many rows.
+ */
+public class CitySnapshot
+{
+    private final long version;
+
+    private final int size;
+
+    private final long[] ids;
+
+    private final String[] names;
+
+    /**
+     * Indexed by CityMetric ordinal, then row
+     */
+    private final double[][] metrics;
+
+    /**
+     * Indexed by CityGroupBy ordinal, then row
+     */
+    private final String[][] groups;
+
+    /**
+     * Row of each city id, shared like the columns so it may have rows past size
+     */
+    private final Map<Long, Integer> rows;
+
+    /**
+     * Rows of the columns written so far, shared like the columns
+     */
+    private final AtomicInteger written;
+
+    private final QuantileSketches sketches;
+
+    private final ConcurrentMap<CityGroupBy, List<CityAggregate>> aggregates = new ConcurrentHashMap<>();
+
+    private volatile CityAggregate national;
+
+    /**
+     * Each quantiled metric sorted, by CityMetric ordinal, for percentile ranks
+     */
+    private volatile double[][] sorted;
+
+    /**
+     * @param version   dataset version the cities were read at
+     * @param cities    every city
+     * @param quantileK accuracy of the quantile sketches, see QuantileSketches
+     */
+    public CitySnapshot(
+        long version,
+        List<City> cities,
+        int quantileK)
+    {
+        this.version = version;
+        size = cities.size();
+        ids = new long[size];
+        names = new String[size];
+        metrics = new double[CityMetric.all().length][size];
+        groups = new String[CityGroupBy.values().length][size];
+        rows = new ConcurrentHashMap<>(size * 2);
+        written = new AtomicInteger(size);
+        sketches = new QuantileSketches(quantileK);
+
+        for (int row = 0; row < size; row++)
+        {
+            set(row, cities.get(row));
+            sketches.add(rowGroups(row), rowValues(row), false);
+        }
+        sketches.mergeNational();
+    }
+
+    private CitySnapshot(
+        long version,
+        int size,
+        CitySnapshot columns,
+        QuantileSketches sketches)
+    {
+        this.version = version;
+        this.size = size;
+        this.ids = columns.ids;
+        this.names = columns.names;
+        this.metrics = columns.metrics;
+        this.groups = columns.groups;
+        this.rows = columns.rows;
+        this.written = columns.written;
+        this.sketches = sketches;
+    }
+
+    /**
+     * Copies the first size rows of the columns of other into columns with room for capacity rows
+     */
+    private CitySnapshot(
+        CitySnapshot other,
+        int capacity)
+    {
+        version = other.version;
+        size = other.size;
+        ids = Arrays.copyOf(other.ids, capacity);
+        names = Arrays.copyOf(other.names, capacity);
+        metrics = new double[other.metrics.length][];
+        for (int m = 0; m < metrics.length; m++)
+        {
+            metrics[m] = Arrays.copyOf(other.metrics[m], capacity);
+        }
+        groups = new String[other.groups.length][];
+        for (int g = 0; g < groups.length; g++)
+        {
+            groups[g] = Arrays.copyOf(other.groups[g], capacity);
+        }
+        rows = new ConcurrentHashMap<>(capacity * 2);
+        for (int row = 0; row < size; row++)
+        {
+            rows.putIfAbsent(ids[row], row);
+        }
+        written = new AtomicInteger(size);
+        sketches = other.sketches;
+    }
+
+    private void set(
+        int row,
+        City city)
+    {
+        ids[row] = city.getCityid();
+        names[row] = city.getName();
+        rows.putIfAbsent(city.getCityid(), row);
+        for (CityMetric metric : CityMetric.all())
+        {
+            metrics[metric.ordinal()][row] = metric.valueOf(city);
+        }
+        for (CityGroupBy groupBy : CityGroupBy.values())
+        {
+            groups[groupBy.ordinal()][row] = groupBy.valueOf(city);
+        }
+    }
+
+    private String[] rowGroups(int row)
+    {
+        String[] rtn = new String[groups.length];
+        for (int g = 0; g < groups.length; g++)
+        {
+            rtn[g] = groups[g][row];
+        }
+        return rtn;
+    }
+
+    private double[] rowValues(int row)
+    {
+        double[] rtn = new double[metrics.length];
+        for (int m = 0; m < metrics.length; m++)
+        {
+            rtn[m] = metrics[m][row];
+        }
+        return rtn;
+    }
+
+    /**
+     * The snapshot at the next dataset version, after a city was added.
+     * Adds the city to the columns and to a copy of the sketches of its groups, instead of reading every city again.
+     *
+     * @param nextVersion dataset version with the city added
+     * @param city        the new city
+     * @return the new snapshot, this one is left as it was
+     */
+    public CitySnapshot withCity(
+        long nextVersion,
+        City city)
+    {
+        if (row(city.getCityid()) >= 0)
+        {
+            // already read from the database, only the version moves
+            return new CitySnapshot(nextVersion, size, this, sketches);
+        }
+
+        int row = size;
+        CitySnapshot columns = this;
+        if (row == ids.length || !written.compareAndSet(row, row + 1))
+        {
+            // no room, or another snapshot wrote the row already
+            columns = new CitySnapshot(this, row + (row >> 1) + 1);
+            columns.written.incrementAndGet();
+        }
+        columns.set(row, city);
+        return new CitySnapshot(nextVersion, row + 1, columns,
+            sketches.with(columns.rowGroups(row), columns.rowValues(row)));
+    }
+
+    /**
+     * @return the row of a city, -1 if it is not in this snapshot
+     */
+    private int row(long cityid)
+    {
+        Integer row = rows.get(cityid);
+        return row != null && row < size ? row : -1;
+    }
+
+    public long getVersion()
+    {
+        return version;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public long cityid(int row)
+    {
+        return ids[row];
+    }
+
+    public String name(int row)
+    {
+        return names[row];
+    }
+
+    public double value(
+        CityMetric metric,
+        int row)
+    {
+        return metrics[metric.ordinal()][row];
+    }
+
+    public String group(
+        CityGroupBy groupBy,
+        int row)
+    {
+        return groups[groupBy.ordinal()][row];
+    }
+
+    /**
+     * Count, mean, min and max of every metric for each group, sorted by group with cities without one last.
+     * Quantiled metrics also get their p10, median and p90.
+     *
+     * @param groupBy field to group cities by
+     * @return one aggregate per group, shared between callers so it must not be modified
+     */
+    public List<CityAggregate> aggregate(CityGroupBy groupBy)
+    {
+        return aggregates.computeIfAbsent(groupBy,
+            g -> computeAggregates(groups[g.ordinal()], key -> sketches.group(g, key)));
+    }
+
+    /**
+     * The same as aggregate, over all cities as one group
+     *
+     * @return the national aggregate named CityAverages.NAME
+     */
+    public CityAggregate national()
+    {
+        CityAggregate rtn = national;
+        if (rtn == null)
+        {
+            String[] keys = new String[size];
+            Arrays.fill(keys, CityAverages.NAME);
+            List<CityAggregate> all = computeAggregates(keys, key -> sketches.national());
+            rtn = all.isEmpty() ? new CityAggregate(CityAverages.NAME, 0) : all.get(0);
+            national = rtn;
+        }
+        return rtn;
+    }
+
+    /**
+     * Percentile rank of a city for every quantiled metric: the share of cities with a lower value,
+     * counting ties as half, from 0 to 100
+     *
+     * @param cityid the city
+     * @return rank keyed by field name, or null if the city is not in this snapshot
+     */
+    public Map<String, Double> percentileRanks(long cityid)
+    {
+        int row = row(cityid);
+        if (row < 0)
+        {
+            return null;
+        }
+
+        double[][] columns = sortedColumns();
+        Map<String, Double> ranks = new LinkedHashMap<>();
+        for (CityMetric metric : CityMetric.all())
+        {
+            double[] column = columns[metric.ordinal()];
+            if (column != null)
+            {
+                double value = metrics[metric.ordinal()][row];
+                int below = lowerBound(column, value);
+                int ties = lowerBound(column, Math.nextUp(value)) - below;
+                ranks.put(metric.getField(), 100.0 * (below + ties / 2.0) / column.length);
+            }
+        }
+        return ranks;
+    }
+
+    private double[][] sortedColumns()
+    {
+        double[][] rtn = sorted;
+        if (rtn == null)
+        {
+            rtn = new double[metrics.length][];
+            for (CityMetric metric : CityMetric.all())
+            {
+                if (metric.isQuantiled())
+                {
+                    rtn[metric.ordinal()] = Arrays.copyOf(metrics[metric.ordinal()], size);
+                    Arrays.sort(rtn[metric.ordinal()]);
+                }
+            }
+            sorted = rtn;
+        }
+        return rtn;
+    }
+
+    /**
+     * @return index of the first value in column that is not less than value
+     */
+    private static int lowerBound(
+        double[] column,
+        double value)
+    {
+        int lo = 0;
+        int hi = column.length;
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (column[mid] < value)
+            {
+                lo = mid + 1;
+            } else
+            {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Computes every aggregate, the national aggregate and the percentile ranks now,
+     * so requests for them at this version only read
+     */
+    public void precompute()
+    {
+        for (CityGroupBy groupBy : CityGroupBy.values())
+        {
+            aggregate(groupBy);
+        }
+        national();
+        sortedColumns();
+    }
+
+    /**
+     * @param keys the group of each row, read up to size
+     */
+    private List<CityAggregate> computeAggregates(
+        String[] keys,
+        Function<String, KllFloatsSketch[]> sketchesFor)
+    {
+        int metricCount = metrics.length;
+        Map<String, Accumulator> byGroup = new HashMap<>();
+
+        for (int row = 0; row < size; row++)
+        {
+            Accumulator acc = byGroup.computeIfAbsent(keys[row], k -> new Accumulator(metricCount));
+            acc.count++;
+            for (int m = 0; m < metricCount; m++)
+            {
+                double v = metrics[m][row];
+                acc.sum[m] += v;
+                acc.min[m] = Math.min(acc.min[m], v);
+                acc.max[m] = Math.max(acc.max[m], v);
+            }
+        }
+
+        List<String> sorted = new ArrayList<>(byGroup.keySet());
+        sorted.sort(Comparator.nullsLast(Comparator.naturalOrder()));
+
+        List<CityAggregate> rtn = new ArrayList<>(sorted.size());
+        for (String key : sorted)
+        {
+            Accumulator acc = byGroup.get(key);
+            KllFloatsSketch[] groupSketches = sketchesFor.apply(key);
+            CityAggregate aggregate = new CityAggregate(key, acc.count);
+            for (CityMetric metric : CityMetric.all())
+            {
+                int m = metric.ordinal();
+                MetricStats stats = new MetricStats(acc.sum[m] / acc.count, acc.min[m], acc.max[m]);
+                if (groupSketches != null)
+                {
+                    QuantileSketches.describe(groupSketches[m], stats);
+                }
+                aggregate.getMetrics()
+                    .put(metric.getField(), stats);
+            }
+            rtn.add(aggregate);
+        }
+        return Collections.unmodifiableList(rtn);
+    }
+
+    private static final class Accumulator
+    {
+        private int count;
+
+        private final double[] sum;
+
+        private final double[] min;
+
+        private final double[] max;
+
+        private Accumulator(int metricCount)
+        {
+            sum = new double[metricCount];
+            min = new double[metricCount];
+            max = new double[metricCount];
+            Arrays.fill(min, Double.POSITIVE_INFINITY);
+            Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        }
+    }
+}
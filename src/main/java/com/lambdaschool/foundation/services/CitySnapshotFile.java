@@ -0,0 +1,468 @@
+package com.lambdaschool.foundation.services;
+
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.CityOccs;
+import com.lambdaschool.foundation.models.Occupation;
+import com.lambdaschool.foundation.repository.CityRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every city with its occupations in a compact binary file, so a new instance can fill its read model
+ * (CityCache, CityNameFilter, CityAverages and the CitySnapshot) from the file instead of loading every city
+ * through JPA. Written after each ingestion, read once at startup, see SeedData.
+ * <p>
+ * The file is a header, a dictionary of every distinct string, then one column per field: first the city columns,
+ * one value per city, then the occupation columns, one value per occupation of every city in city order.
+ * Strings are stored as their index in the dictionary, -1 for null. All numbers are big-endian.
+ * <pre>
+ * int    MAGIC
+ * int    FORMAT_VERSION
+ * int    cities, occupations, strings
+ * per string: int byte length, UTF-8 bytes
+ * city columns:       long cityid, int name, int state, int studio, int onebr, int twobr, int threebr, int fourbr,
+ *                     int occ_title, double hourly_wage, int annual_wage, int climate_zone, int simple_climate,
+ *                     double walkscore, int population, int favoriteCount, int first occupation
+ * occupation columns: long occid, int occ_title, double hourly_wage, int annual_wage, double jobs_1000,
+ *                     double loc_quotient
+ * </pre>
+ * A file of another FORMAT_VERSION is ignored, and replaced by the next write.
+ * <p>
+ * Reading the file still makes a City and its CityOccs on the heap for every row, as JPA would. What it saves is
+ * the queries, the row mapping and the persistence context, not the objects.
+ * <p>
+ * The file is only of use when it is read against a database that outlived the restart, since it is used only if
+ * it holds as many cities as the database: against the default in memory database, empty at startup, it never is.
+ * So it is only written and read in the persistent profile, with citrics.snapshot.enabled=true, as that profile
+ * sets it. It is kept at citrics.snapshot.file.
+ */
+@Component
+public class CitySnapshotFile
+{
+    private static final Logger logger = LoggerFactory.getLogger(CitySnapshotFile.class);
+
+    /**
+     * "CTSN"
+     */
+    static final int MAGIC = 0x4354534E;
+
+    /**
+     * Goes up with every change to the layout
+     */
+    static final int FORMAT_VERSION = 1;
+
+    private static final int CITY_INTS = 13;
+
+    private static final int CITY_DOUBLES = 2;
+
+    private static final int JOB_INTS = 2;
+
+    private static final int JOB_DOUBLES = 3;
+
+    @Autowired
+    private CityService cityService;
+
+    @Autowired
+    private CityRepository cityrepo;
+
+    private final boolean enabled;
+
+    private final Path path;
+
+    /**
+     * The profile that keeps the database between restarts, the only one the file is used in
+     */
+    static final String PROFILE = "persistent";
+
+    /**
+     * @param enabled     whether the file is written and read, in the persistent profile
+     * @param file        where the file is kept
+     * @param environment for the active profiles
+     */
+    public CitySnapshotFile(
+        @Value("${citrics.snapshot.enabled:false}")
+            boolean enabled,
+        @Value("${citrics.snapshot.file:data/cities.snapshot}")
+            String file,
+        Environment environment)
+    {
+        boolean persistent = environment.acceptsProfiles(Profiles.of(PROFILE));
+        if (enabled && !persistent)
+        {
+            logger.warn("citrics.snapshot.enabled is only used in the {} profile, the city snapshot is off", PROFILE);
+        }
+        this.enabled = enabled && persistent;
+        this.path = Paths.get(file);
+    }
+
+    /**
+     * Fills the read model from the file, if there is one and it holds as many cities as the database.
+     * The file has none of the changes made to the database since it was written, so the read model is only
+     * good until CityService.reload, which SeedData calls once the ingestion is done.
+     *
+     * @return whether it was filled
+     */
+    public boolean warmStart()
+    {
+        if (!enabled || !Files.exists(path))
+        {
+            return false;
+        }
+        try
+        {
+            long start = System.nanoTime();
+            List<City> cities = read(path);
+            if (cities == null || cities.size() != cityrepo.count())
+            {
+                logger.info("City snapshot {} does not match the database, not used", path);
+                return false;
+            }
+            cityService.warmStart(cities);
+            logger.info("Read {} cities from the city snapshot {} in {} ms", cities.size(), path,
+                (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } catch (IOException | RuntimeException e)
+        {
+            logger.warn("Could not read the city snapshot {}", path, e);
+            return false;
+        }
+    }
+
+    /**
+     * Writes every city in the database to the file, replacing it
+     */
+    public void save()
+    {
+        if (!enabled)
+        {
+            return;
+        }
+        try
+        {
+            if (path.getParent() != null)
+            {
+                Files.createDirectories(path.getParent());
+            }
+            write(cityService.findAllWithOccupations(), path);
+        } catch (IOException | RuntimeException e)
+        {
+            logger.warn("Could not write the city snapshot {}", path, e);
+        }
+    }
+
+    /**
+     * Writes cities to a file, through a temporary file next to it so a reader never sees half of it
+     *
+     * @param cities cities with their occupations loaded
+     * @param file   where the cities go, replaced if it exists
+     * @throws IOException if the file can not be written
+     */
+    public static void write(
+        List<City> cities,
+        Path file) throws IOException
+    {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        int jobCount = 0;
+        for (City city : cities)
+        {
+            intern(strings, city.getName());
+            intern(strings, city.getState());
+            intern(strings, city.getOcc_title());
+            intern(strings, city.getClimate_zone());
+            intern(strings, city.getSimple_climate());
+            for (CityOccs co : city.getOccupations())
+            {
+                intern(strings, co.getOccupation()
+                    .getOcc_title());
+                jobCount++;
+            }
+        }
+
+        List<byte[]> encoded = new ArrayList<>(strings.size());
+        long size = 4 * 5;
+        for (String s : strings.keySet())
+        {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            size += 4 + bytes.length;
+        }
+        size += (long) cities.size() * (8 + 4 * CITY_INTS + 8 * CITY_DOUBLES + 4) + 4;
+        size += (long) jobCount * (8 + 4 * JOB_INTS + 8 * JOB_DOUBLES);
+
+        ByteBuffer out = ByteBuffer.allocate(Math.toIntExact(size));
+        out.putInt(MAGIC)
+            .putInt(FORMAT_VERSION)
+            .putInt(cities.size())
+            .putInt(jobCount)
+            .putInt(strings.size());
+        for (byte[] bytes : encoded)
+        {
+            out.putInt(bytes.length)
+                .put(bytes);
+        }
+
+        for (City c : cities)
+        {
+            out.putLong(c.getCityid());
+        }
+        for (City c : cities)
+        {
+            out.putInt(index(strings, c.getName()));
+        }
+        for (City c : cities)
+        {
+            out.putInt(index(strings, c.getState()));
+        }
+        for (City c : cities)
+        {
+            out.putInt(c.getStudio());
+        }
+        for (City c : cities)
+        {
+            out.putInt(c.getOnebr());
+        }
+        for (City c : cities)
+        {
+            out.putInt(c.getTwobr());
+        }
+        for (City c : cities)
+        {
+            out.putInt(c.getThreebr());
+        }
+        for (City c : cities)
+        {
+            out.putInt(c.getFourbr());
+        }
+        for (City c : cities)
+        {
+            out.putInt(index(strings, c.getOcc_title()));
+        }
+        for (City c : cities)
+        {
+            out.putDouble(c.getHourly_wage());
+        }
+        for (City c : cities)
+        {
+            out.putInt(c.getAnnual_wage());
+        }
+        for (City c : cities)
+        {
+            out.putInt(index(strings, c.getClimate_zone()));
+        }
+        for (City c : cities)
+        {
+            out.putInt(index(strings, c.getSimple_climate()));
+        }
+        for (City c : cities)
+        {
+            out.putDouble(c.getWalkscore());
+        }
+        for (City c : cities)
+        {
+            out.putInt(c.getPopulation());
+        }
+        for (City c : cities)
+        {
+            out.putInt(c.getFavoriteCount());
+        }
+        int first = 0;
+        for (City c : cities)
+        {
+            out.putInt(first);
+            first += c.getOccupations()
+                .size();
+        }
+        out.putInt(first);
+
+        List<CityOccs> jobs = new ArrayList<>(jobCount);
+        for (City c : cities)
+        {
+            jobs.addAll(c.getOccupations());
+        }
+        for (CityOccs co : jobs)
+        {
+            out.putLong(co.getOccupation()
+                .getOccid());
+        }
+        for (CityOccs co : jobs)
+        {
+            out.putInt(index(strings, co.getOccupation()
+                .getOcc_title()));
+        }
+        for (CityOccs co : jobs)
+        {
+            out.putDouble(co.getHourly_wage());
+        }
+        for (CityOccs co : jobs)
+        {
+            out.putInt(co.getAnnual_wage());
+        }
+        for (CityOccs co : jobs)
+        {
+            out.putDouble(co.getJobs_1000());
+        }
+        for (CityOccs co : jobs)
+        {
+            out.putDouble(co.getLoc_quotient());
+        }
+
+        out.flip();
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            while (out.hasRemaining())
+            {
+                channel.write(out);
+            }
+            channel.force(false);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the cities of a file through a memory map
+     *
+     * @param file a file written by write
+     * @return the cities with their occupations, not attached to any persistence context,
+     * or null if the file is of another format version
+     * @throws IOException if the file can not be read or is cut short
+     */
+    public static List<City> read(Path file) throws IOException
+    {
+        MappedByteBuffer in;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            // the mapping stays valid after the channel is closed
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try
+        {
+            if (in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION)
+            {
+                return null;
+            }
+            int cityCount = in.getInt();
+            int jobCount = in.getInt();
+            String[] strings = new String[in.getInt()];
+            for (int i = 0; i < strings.length; i++)
+            {
+                byte[] bytes = new byte[in.getInt()];
+                in.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            // each column starts where the one before ends
+            int cityid = in.position();
+            int name = cityid + 8 * cityCount;
+            int state = name + 4 * cityCount;
+            int studio = state + 4 * cityCount;
+            int onebr = studio + 4 * cityCount;
+            int twobr = onebr + 4 * cityCount;
+            int threebr = twobr + 4 * cityCount;
+            int fourbr = threebr + 4 * cityCount;
+            int occTitle = fourbr + 4 * cityCount;
+            int hourly = occTitle + 4 * cityCount;
+            int annual = hourly + 8 * cityCount;
+            int climateZone = annual + 4 * cityCount;
+            int simpleClimate = climateZone + 4 * cityCount;
+            int walkscore = simpleClimate + 4 * cityCount;
+            int population = walkscore + 8 * cityCount;
+            int favorites = population + 4 * cityCount;
+            int firstJob = favorites + 4 * cityCount;
+            int occid = firstJob + 4 * (cityCount + 1);
+            int jobTitle = occid + 8 * jobCount;
+            int jobHourly = jobTitle + 4 * jobCount;
+            int jobAnnual = jobHourly + 8 * jobCount;
+            int jobs1000 = jobAnnual + 4 * jobCount;
+            int locQuotient = jobs1000 + 8 * jobCount;
+            if (locQuotient + 8L * jobCount != in.limit())
+            {
+                throw new IOException("City snapshot " + file + " is " + in.limit() + " bytes, not " +
+                    (locQuotient + 8L * jobCount));
+            }
+
+            // occupations are shared between cities, like the rows of the occupations table
+            Map<Long, Occupation> occupations = new LinkedHashMap<>();
+            List<City> cities = new ArrayList<>(cityCount);
+            for (int i = 0; i < cityCount; i++)
+            {
+                City city = new City(string(strings, in.getInt(name + 4 * i)), string(strings, in.getInt(state + 4 * i)),
+                    in.getInt(studio + 4 * i), in.getInt(onebr + 4 * i), in.getInt(twobr + 4 * i),
+                    in.getInt(threebr + 4 * i), in.getInt(fourbr + 4 * i), string(strings, in.getInt(occTitle + 4 * i)),
+                    in.getDouble(hourly + 8 * i), in.getInt(annual + 4 * i),
+                    string(strings, in.getInt(climateZone + 4 * i)), string(strings, in.getInt(simpleClimate + 4 * i)),
+                    in.getDouble(walkscore + 8 * i), in.getInt(population + 4 * i));
+                city.setCityid(in.getLong(cityid + 8 * i));
+                city.setFavoriteCount(in.getInt(favorites + 4 * i));
+
+                int to = in.getInt(firstJob + 4 * (i + 1));
+                for (int j = in.getInt(firstJob + 4 * i); j < to; j++)
+                {
+                    long id = in.getLong(occid + 8 * j);
+                    int title = in.getInt(jobTitle + 4 * j);
+                    Occupation occupation = occupations.computeIfAbsent(id, k ->
+                    {
+                        Occupation o = new Occupation(string(strings, title));
+                        o.setOccid(k);
+                        return o;
+                    });
+                    city.getOccupations()
+                        .add(new CityOccs(city, occupation, in.getDouble(jobHourly + 8 * j), in.getInt(jobAnnual + 4 * j),
+                            in.getDouble(jobs1000 + 8 * j), in.getDouble(locQuotient + 8 * j)));
+                }
+                cities.add(city);
+            }
+            return cities;
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e)
+        {
+            throw new IOException("City snapshot " + file + " is cut short", e);
+        }
+    }
+
+    private static void intern(
+        Map<String, Integer> strings,
+        String s)
+    {
+        if (s != null)
+        {
+            strings.putIfAbsent(s, strings.size());
+        }
+    }
+
+    private static int index(
+        Map<String, Integer> strings,
+        String s)
+    {
+        return s == null ? -1 : strings.get(s);
+    }
+
+    private static String string(
+        String[] strings,
+        int index)
+    {
+        return index < 0 ? null : strings[index];
+    }
+}
@@ -0,0 +1,157 @@
+package com.lambdaschool.foundation.services;
+
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.repository.CityRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the CitySnapshot of the current dataset version.
+ * <p>
+ * The dataset version goes up once for every committed change to the cities. The snapshot is built from the
+ * database the first time it is asked for at a version, so a burst of saves costs one rebuild, on the next read.
+ * A new city is added to the current snapshot instead, since its quantile sketches can take a value but not drop one.
+ */
+@Component
+public class CitySnapshots
+{
+    private final CityRepository cityrepo;
+
+    private final int quantileK;
+
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile CitySnapshot current;
+
+    /**
+     * @param cityrepo  where the cities are read from
+     * @param quantileK accuracy of the quantile sketches, see QuantileSketches
+     */
+    public CitySnapshots(
+        CityRepository cityrepo,
+        @Value("${citrics.quantiles.k:200}")
+            int quantileK)
+    {
+        this.cityrepo = cityrepo;
+        this.quantileK = quantileK;
+    }
+
+    /**
+     * @return the snapshot of the current dataset version
+     */
+    public CitySnapshot current()
+    {
+        CitySnapshot snapshot = current;
+        if (snapshot == null || snapshot.getVersion() != version.get())
+        {
+            snapshot = build();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Builds the snapshot of the current dataset version if it is not built yet,
+     * along with everything derived from it
+     *
+     * @return the snapshot of the current dataset version
+     */
+    public CitySnapshot refresh()
+    {
+        CitySnapshot snapshot = current();
+        snapshot.precompute();
+        return snapshot;
+    }
+
+    /**
+     * Makes cities read from elsewhere the snapshot of the current dataset version, if none is built yet,
+     * instead of reading them from the database on first use
+     *
+     * @param cities every city, as in the database
+     */
+    public synchronized void seed(List<City> cities)
+    {
+        long at = version.get();
+        if (current == null || current.getVersion() != at)
+        {
+            current = new CitySnapshot(at, cities, quantileK);
+        }
+    }
+
+    /**
+     * @return the current dataset version
+     */
+    public long version()
+    {
+        return version.get();
+    }
+
+    /**
+     * Moves to a new dataset version once the running transaction commits, or right away outside of one
+     */
+    public void changed()
+    {
+        afterCommit(version::incrementAndGet);
+    }
+
+    /**
+     * Moves to a new dataset version with city added to the current snapshot, once the running transaction commits
+     *
+     * @param city a city that was not in the database before
+     */
+    public void inserted(City city)
+    {
+        afterCommit(() -> add(city));
+    }
+
+    private synchronized void add(City city)
+    {
+        CitySnapshot snapshot = current;
+        long next = version.incrementAndGet();
+        if (snapshot != null && snapshot.getVersion() == next - 1)
+        {
+            current = snapshot.withCity(next, city);
+        }
+    }
+
+    private static void afterCommit(Runnable change)
+    {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    change.run();
+                }
+            });
+        } else
+        {
+            change.run();
+        }
+    }
+
+    private synchronized CitySnapshot build()
+    {
+        CitySnapshot snapshot = current;
+        long at = version.get();
+        if (snapshot != null && snapshot.getVersion() == at)
+        {
+            // built by the caller we waited on
+            return snapshot;
+        }
+        // read after the version, so a change committed meanwhile moves the version past this snapshot
+        List<City> cities = new ArrayList<>();
+        cityrepo.findAll()
+            .forEach(cities::add);
+        snapshot = new CitySnapshot(at, cities, quantileK);
+        current = snapshot;
+        return snapshot;
+    }
+}
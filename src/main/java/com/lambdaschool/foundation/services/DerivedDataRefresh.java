@@ -0,0 +1,135 @@
+package com.lambdaschool.foundation.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.IntervalTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Recomputes the data derived from the cities on a schedule, off the request path:
+ * the national average, the city snapshot with its per group aggregates, quantiles and percentile ranks,
+ * and the favorite counts.
+ * <p>
+ * Runs citrics.refresh.interval-ms after the previous run finished, so a slow run delays the next one
+ * instead of overlapping it. The first run is citrics.refresh.initial-delay-ms after startup plus a random part of
+ * citrics.refresh.max-jitter-ms, so instances started together do not all hit the database at the same moment,
+ * and stay apart after. The wait is part of the schedule rather than of a run, so it never holds the scheduler
+ * thread that other scheduled tasks share.
+ * Run times are published as citrics.refresh.duration tagged result=success or result=failure,
+ * and runs skipped because one was still going as citrics.refresh.skipped.
+ * <p>
+ * Turned off with citrics.refresh.enabled=false.
+ */
+@Component
+@ConditionalOnProperty(name = "citrics.refresh.enabled", havingValue = "true", matchIfMissing = true)
+public class DerivedDataRefresh
+    implements SchedulingConfigurer
+{
+    private static final Logger logger = LoggerFactory.getLogger(DerivedDataRefresh.class);
+
+    @Autowired
+    private CityService cityService;
+
+    @Autowired
+    private CityAverages cityAverages;
+
+    @Autowired
+    private CitySnapshots citySnapshots;
+
+    private final long initialDelayMs;
+
+    private final long intervalMs;
+
+    private final long maxJitterMs;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final Timer succeeded;
+
+    private final Timer failed;
+
+    private final Counter skipped;
+
+    /**
+     * @param initialDelayMs wait before the first scheduled run
+     * @param intervalMs     wait between the end of a scheduled run and the start of the next
+     * @param maxJitterMs    longest random wait added to initialDelayMs
+     */
+    public DerivedDataRefresh(
+        @Value("${citrics.refresh.initial-delay-ms:60000}")
+            long initialDelayMs,
+        @Value("${citrics.refresh.interval-ms:300000}")
+            long intervalMs,
+        @Value("${citrics.refresh.max-jitter-ms:30000}")
+            long maxJitterMs)
+    {
+        this.initialDelayMs = initialDelayMs;
+        this.intervalMs = intervalMs;
+        this.maxJitterMs = maxJitterMs;
+        succeeded = Timer.builder("citrics.refresh.duration")
+            .description("Time to recompute the data derived from the cities")
+            .tag("result", "success")
+            .register(Metrics.globalRegistry);
+        failed = Timer.builder("citrics.refresh.duration")
+            .description("Time to recompute the data derived from the cities")
+            .tag("result", "failure")
+            .register(Metrics.globalRegistry);
+        skipped = Counter.builder("citrics.refresh.skipped")
+            .description("Refreshes skipped because the previous one was still running")
+            .register(Metrics.globalRegistry);
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar)
+    {
+        long jitterMs = maxJitterMs > 0 ? ThreadLocalRandom.current()
+            .nextLong(maxJitterMs) : 0;
+        registrar.addFixedDelayTask(new IntervalTask(this::refresh, intervalMs, initialDelayMs + jitterMs));
+    }
+
+    /**
+     * Recomputes everything derived from the cities, unless a refresh is already running
+     *
+     * @return true if it ran and recomputed everything, false if it was skipped or failed
+     */
+    public boolean refresh()
+    {
+        if (!running.compareAndSet(false, true))
+        {
+            skipped.increment();
+            return false;
+        }
+        long start = System.nanoTime();
+        try
+        {
+            int corrected = cityService.recountFavorites();
+            cityAverages.reload();
+            CitySnapshot snapshot = citySnapshots.refresh();
+
+            succeeded.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            logger.info("Refreshed derived city data at version {} for {} cities, {} favorite counts corrected",
+                snapshot.getVersion(), snapshot.size(), corrected);
+            return true;
+        } catch (RuntimeException e)
+        {
+            failed.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            logger.error("Refreshing derived city data failed", e);
+            return false;
+        } finally
+        {
+            running.set(false);
+        }
+    }
+}
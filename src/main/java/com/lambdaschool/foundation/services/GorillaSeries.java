@@ -0,0 +1,471 @@
+package com.lambdaschool.foundation.services;
+
+import com.lambdaschool.foundation.models.HistoryPoint;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One historical series compressed the way Gorilla (Pelkonen et al., VLDB 2015) compresses time series, in a
+ * direct buffer handed out by SeriesBlocks, so the values are outside of the heap. Immutable.
+ * <p>
+ * Each period is first turned into a time on a line of its resolution: the year for yearly series, the month
+ * since year 0 for monthly ones and the day since 1970 for daily ones, so consecutive periods are 1 apart.
+ * A series mixing resolutions uses the periods themselves. The first time and value are written whole.
+ * After that each time is written as the change in its distance to the time before, a single 0 bit when
+ * the values are evenly spaced, and each value as the XOR with the value before: a single 0 bit when it is
+ * the same, otherwise only the bits that differ, reusing the leading and trailing zero counts of the value
+ * before when they fit.
+ * <p>
+ * The series is read back one value after the other through cursor, 64 bits at a time from the buffer.
+ */
+public final class GorillaSeries implements HistorySeries
+{
+    private static final byte YEAR = 0;
+
+    private static final byte MONTH = 1;
+
+    private static final byte DAY = 2;
+
+    private static final byte PERIOD = 3;
+
+    /**
+     * Bytes after the last one written, so the reader can always read 8 bytes at once
+     */
+    private static final int PADDING = Long.BYTES;
+
+    private final ByteBuffer bits;
+
+    private final int size;
+
+    private final byte resolution;
+
+    private final int firstPeriod;
+
+    private final int lastPeriod;
+
+    private GorillaSeries(
+        ByteBuffer bits,
+        int size,
+        byte resolution,
+        int firstPeriod,
+        int lastPeriod)
+    {
+        this.bits = bits;
+        this.size = size;
+        this.resolution = resolution;
+        this.firstPeriod = firstPeriod;
+        this.lastPeriod = lastPeriod;
+    }
+
+    /**
+     * @param periods in increasing order, without repeats
+     * @param values  the value of each period
+     * @param blocks  where the encoded series is put
+     * @return the series, encoded
+     */
+    static GorillaSeries encode(
+        int[] periods,
+        double[] values,
+        SeriesBlocks blocks)
+    {
+        int size = periods.length;
+        byte resolution = resolution(periods);
+        BitWriter out = new BitWriter(size);
+        if (size > 0)
+        {
+            long time = time(periods[0], resolution);
+            long previous = Double.doubleToRawLongBits(values[0]);
+            out.write(time, 32);
+            out.write(previous, 64);
+
+            long delta = 0;
+            int leading = -1;
+            int trailing = 0;
+            for (int i = 1; i < size; i++)
+            {
+                long next = time(periods[i], resolution);
+                long change = next - time - delta;
+                delta = next - time;
+                time = next;
+                if (change == 0)
+                {
+                    out.write(0, 1);
+                } else if (change >= -63 && change <= 64)
+                {
+                    out.write(0b10, 2);
+                    out.write(change + 63, 7);
+                } else if (change >= -255 && change <= 256)
+                {
+                    out.write(0b110, 3);
+                    out.write(change + 255, 9);
+                } else if (change >= -2047 && change <= 2048)
+                {
+                    out.write(0b1110, 4);
+                    out.write(change + 2047, 12);
+                } else
+                {
+                    out.write(0b1111, 4);
+                    out.write(change, 32);
+                }
+
+                long value = Double.doubleToRawLongBits(values[i]);
+                long xor = value ^ previous;
+                previous = value;
+                if (xor == 0)
+                {
+                    out.write(0, 1);
+                    continue;
+                }
+                int lead = Math.min(Long.numberOfLeadingZeros(xor), 31);
+                int trail = Long.numberOfTrailingZeros(xor);
+                if (leading >= 0 && lead >= leading && trail >= trailing)
+                {
+                    // the bits that differ are inside those of the value before
+                    out.write(0b10, 2);
+                    out.write(xor >>> trailing, 64 - leading - trailing);
+                } else
+                {
+                    int meaningful = 64 - lead - trail;
+                    out.write(0b11, 2);
+                    out.write(lead, 5);
+                    out.write(meaningful - 1, 6);
+                    out.write(xor >>> trail, meaningful);
+                    leading = lead;
+                    trailing = trail;
+                }
+            }
+        }
+
+        ByteBuffer buffer = blocks.allocate(out.bytes() + PADDING);
+        out.copyTo(buffer);
+        return new GorillaSeries(buffer, size, resolution, size == 0 ? 0 : periods[0],
+            size == 0 ? 0 : periods[size - 1]);
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public int firstPeriod()
+    {
+        return firstPeriod;
+    }
+
+    @Override
+    public int lastPeriod()
+    {
+        return lastPeriod;
+    }
+
+    @Override
+    public long bytes()
+    {
+        return bits.limit();
+    }
+
+    @Override
+    public Cursor cursor()
+    {
+        return new Reader();
+    }
+
+    @Override
+    public List<HistoryPoint> range(
+        int fromYear,
+        int toYear)
+    {
+        List<HistoryPoint> points = new ArrayList<>();
+        int from = CitySeries.period(fromYear, 0, 0);
+        int to = CitySeries.period(toYear + 1, 0, 0);
+        if (fromYear > toYear || lastPeriod < from || firstPeriod >= to)
+        {
+            return points;
+        }
+        Cursor cursor = cursor();
+        while (cursor.next() && cursor.period() < to)
+        {
+            if (cursor.period() >= from)
+            {
+                points.add(CitySeries.point(cursor.period(), cursor.value()));
+            }
+        }
+        return points;
+    }
+
+    /**
+     * @return YEAR, MONTH or DAY if every period is of that resolution, PERIOD otherwise
+     */
+    private static byte resolution(int[] periods)
+    {
+        boolean years = true;
+        boolean months = true;
+        boolean days = true;
+        for (int period : periods)
+        {
+            int month = period / 100 % 100;
+            int day = period % 100;
+            years &= month == 0 && day == 0;
+            months &= month >= 1 && month <= 12 && day == 0;
+            days &= month >= 1 && month <= 12 && day >= 1 && day <= daysIn(period / 10000, month);
+        }
+        return years ? YEAR : months ? MONTH : days ? DAY : PERIOD;
+    }
+
+    private static long time(
+        int period,
+        byte resolution)
+    {
+        int year = period / 10000;
+        int month = period / 100 % 100;
+        switch (resolution)
+        {
+            case YEAR:
+                return year;
+            case MONTH:
+                return year * 12L + month - 1;
+            case DAY:
+                return epochDay(year, month, period % 100);
+            default:
+                return period;
+        }
+    }
+
+    private static int period(
+        long time,
+        byte resolution)
+    {
+        switch (resolution)
+        {
+            case YEAR:
+                return CitySeries.period((int) time, 0, 0);
+            case MONTH:
+                return CitySeries.period((int) Math.floorDiv(time, 12), (int) Math.floorMod(time, 12) + 1, 0);
+            case DAY:
+                return fromEpochDay(time);
+            default:
+                return (int) time;
+        }
+    }
+
+    private static int daysIn(
+        int year,
+        int month)
+    {
+        if (month == 2)
+        {
+            return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    /**
+     * Days since 1970-01-01 of a date of the proleptic Gregorian calendar, without allocating like LocalDate
+     * (H. Hinnant, chrono-compatible low-level date algorithms)
+     */
+    private static long epochDay(
+        int year,
+        int month,
+        int day)
+    {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * The period of a day since 1970-01-01, the inverse of epochDay
+     */
+    private static int fromEpochDay(long epochDay)
+    {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+        return CitySeries.period(year, month, day);
+    }
+
+    /**
+     * Reads the bits written by encode back into periods and values
+     */
+    private final class Reader implements Cursor
+    {
+        private long position;
+
+        private int read;
+
+        private long time;
+
+        private long delta;
+
+        private long value;
+
+        private int leading;
+
+        private int trailing;
+
+        private int period;
+
+        @Override
+        public boolean next()
+        {
+            if (read == size)
+            {
+                return false;
+            }
+            if (read == 0)
+            {
+                time = (int) bits(32);
+                value = bits(32) << 32 | bits(32);
+            } else
+            {
+                delta += change();
+                time += delta;
+                if (bit() != 0)
+                {
+                    if (bit() != 0)
+                    {
+                        leading = (int) bits(5);
+                        trailing = 64 - leading - ((int) bits(6) + 1);
+                    }
+                    value ^= wide(64 - leading - trailing) << trailing;
+                }
+            }
+            period = GorillaSeries.period(time, resolution);
+            read++;
+            return true;
+        }
+
+        @Override
+        public int period()
+        {
+            return period;
+        }
+
+        @Override
+        public double value()
+        {
+            return Double.longBitsToDouble(value);
+        }
+
+        private long change()
+        {
+            if (bit() == 0)
+            {
+                return 0;
+            }
+            if (bit() == 0)
+            {
+                return bits(7) - 63;
+            }
+            if (bit() == 0)
+            {
+                return bits(9) - 255;
+            }
+            if (bit() == 0)
+            {
+                return bits(12) - 2047;
+            }
+            return (int) bits(32);
+        }
+
+        private int bit()
+        {
+            int b = (bits.get((int) (position >>> 3)) >>> (7 - (position & 7))) & 1;
+            position++;
+            return b;
+        }
+
+        /**
+         * @param count 1 to 57 bits
+         */
+        private long bits(int count)
+        {
+            long word = bits.getLong((int) (position >>> 3));
+            long result = (word << (position & 7)) >>> (64 - count);
+            position += count;
+            return result;
+        }
+
+        /**
+         * @param count 1 to 64 bits
+         */
+        private long wide(int count)
+        {
+            return count > 57 ? bits(count - 32) << 32 | bits(32) : bits(count);
+        }
+    }
+
+    /**
+     * Collects bits, most significant first, in a growing array of longs
+     */
+    private static final class BitWriter
+    {
+        private long[] words;
+
+        private long position;
+
+        private BitWriter(int values)
+        {
+            // about 2 bytes a value, usually less
+            words = new long[Math.max(4, values / 4 + 2)];
+        }
+
+        /**
+         * Appends the count low bits of value
+         */
+        private void write(
+            long value,
+            int count)
+        {
+            if (count == 0)
+            {
+                return;
+            }
+            int word = (int) (position >>> 6);
+            if (word + 1 >= words.length)
+            {
+                words = Arrays.copyOf(words, words.length * 2);
+            }
+            long masked = count == 64 ? value : value & ((1L << count) - 1);
+            int offset = (int) (position & 63);
+            int free = 64 - offset;
+            if (count <= free)
+            {
+                words[word] |= masked << (free - count);
+            } else
+            {
+                words[word] |= masked >>> (count - free);
+                words[word + 1] |= masked << (64 - (count - free));
+            }
+            position += count;
+        }
+
+        private int bytes()
+        {
+            return (int) ((position + 7) >>> 3);
+        }
+
+        private void copyTo(ByteBuffer buffer)
+        {
+            int bytes = bytes();
+            for (int i = 0; i < bytes; i++)
+            {
+                buffer.put(i, (byte) (words[i >>> 3] >>> (56 - 8 * (i & 7))));
+            }
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.lambdaschool.foundation.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * National and per-state averages of one historical metric, for every period any city has a value of.
+ * Immutable; the average of a period is over the cities with a value for it.
+ * <p>
+ * compute reduces the series of every city in parallel, reading each through its cursor. The cities are split into
+ * chunks, one per thread, and each chunk sums into primitive arrays of its own, indexed by group and period, with no
+ * boxing and no sharing. The chunks are merged by adding their arrays once they are done. Two passes are made: the
+ * first marks which periods occur in a bitmap per chunk, so the sums of the second only have a slot for those.
+ */
+public class HistoryAverages
+{
+    /**
+     * Slots of a year in the period bitmap: month 0 to 12 by day 0 to 31
+     */
+    private static final int SLOTS_PER_YEAR = 13 * 32;
+
+    private final long historyVersion;
+
+    private final long snapshotVersion;
+
+    private final CitySeries national;
+
+    private final Map<String, CitySeries> byState;
+
+    private HistoryAverages(
+        long historyVersion,
+        long snapshotVersion,
+        CitySeries national,
+        Map<String, CitySeries> byState)
+    {
+        this.historyVersion = historyVersion;
+        this.snapshotVersion = snapshotVersion;
+        this.national = national;
+        this.byState = byState;
+    }
+
+    /**
+     * @return the CityHistory version the averages were computed at
+     */
+    public long getHistoryVersion()
+    {
+        return historyVersion;
+    }
+
+    /**
+     * @return the dataset version of the CitySnapshot the states were taken from
+     */
+    public long getSnapshotVersion()
+    {
+        return snapshotVersion;
+    }
+
+    /**
+     * @return the average over every city of each period
+     */
+    public CitySeries national()
+    {
+        return national;
+    }
+
+    /**
+     * @param state state code, as on cities
+     * @return the average over the cities of that state of each period, null if no city of the state has values
+     */
+    public CitySeries state(String state)
+    {
+        return byState.get(state);
+    }
+
+    /**
+     * @return every state with values
+     */
+    public Map<String, CitySeries> states()
+    {
+        return Collections.unmodifiableMap(byState);
+    }
+
+    /**
+     * @param series          the series of each city, in arrays or compressed
+     * @param states          the state of the city at the same index, null for none
+     * @param chunks          number of parts the cities are split in and reduced in parallel, 1 to reduce on the caller
+     * @param historyVersion  recorded with the averages, see getHistoryVersion
+     * @param snapshotVersion recorded with the averages, see getSnapshotVersion
+     * @return the averages
+     */
+    public static HistoryAverages compute(
+        HistorySeries[] series,
+        String[] states,
+        int chunks,
+        long historyVersion,
+        long snapshotVersion)
+    {
+        int cities = series.length;
+        int parts = Math.max(1, Math.min(chunks, cities));
+
+        // the state of each city as a group: 0 for none, then one per state, in the order first met
+        Map<String, Integer> groupOf = new HashMap<>();
+        List<String> groupNames = new ArrayList<>();
+        groupNames.add(null);
+        int[] group = new int[cities];
+        int minYear = Integer.MAX_VALUE;
+        int maxYear = Integer.MIN_VALUE;
+        for (int i = 0; i < cities; i++)
+        {
+            if (states[i] != null)
+            {
+                group[i] = groupOf.computeIfAbsent(states[i], s ->
+                {
+                    groupNames.add(s);
+                    return groupNames.size() - 1;
+                });
+            }
+            if (series[i].size() > 0)
+            {
+                minYear = Math.min(minYear, series[i].firstPeriod() / 10000);
+                maxYear = Math.max(maxYear, series[i].lastPeriod() / 10000);
+            }
+        }
+        if (minYear > maxYear)
+        {
+            return new HistoryAverages(historyVersion, snapshotVersion, new CitySeries(new int[0], new double[0]),
+                Collections.emptyMap());
+        }
+        int firstYear = minYear;
+        int slots = (maxYear - minYear + 1) * SLOTS_PER_YEAR;
+
+        // first pass: which periods occur
+        long[] occurs = chunkStream(parts)
+            .mapToObj(part ->
+            {
+                long[] bits = new long[(slots + 63) / 64];
+                for (int i = from(part, parts, cities), end = from(part + 1, parts, cities); i < end; i++)
+                {
+                    HistorySeries.Cursor cursor = series[i].cursor();
+                    while (cursor.next())
+                    {
+                        int slot = slot(cursor.period(), firstYear);
+                        bits[slot >>> 6] |= 1L << slot;
+                    }
+                }
+                return bits;
+            })
+            .reduce(HistoryAverages::or)
+            .orElseThrow();
+
+        // the sums have a slot for each period that occurs, in order
+        int[] index = new int[slots];
+        int[] periods = new int[bitCount(occurs)];
+        int width = periods.length;
+        for (int slot = 0, p = 0; slot < slots; slot++)
+        {
+            if ((occurs[slot >>> 6] & (1L << slot)) != 0)
+            {
+                index[slot] = p;
+                periods[p++] = period(slot, firstYear);
+            }
+        }
+        int groups = groupNames.size();
+
+        // second pass: sum and count per group and period, group 0 being every city
+        Sums total = chunkStream(parts)
+            .mapToObj(part ->
+            {
+                Sums sums = new Sums(groups * width);
+                for (int i = from(part, parts, cities), end = from(part + 1, parts, cities); i < end; i++)
+                {
+                    HistorySeries.Cursor cursor = series[i].cursor();
+                    int row = group[i] * width;
+                    while (cursor.next())
+                    {
+                        int p = index[slot(cursor.period(), firstYear)];
+                        double value = cursor.value();
+                        sums.sums[p] += value;
+                        sums.counts[p]++;
+                        if (row != 0)
+                        {
+                            sums.sums[row + p] += value;
+                            sums.counts[row + p]++;
+                        }
+                    }
+                }
+                return sums;
+            })
+            .reduce(Sums::add)
+            .orElseThrow();
+
+        Map<String, CitySeries> byState = new HashMap<>();
+        for (int g = 1; g < groups; g++)
+        {
+            CitySeries averages = total.averages(g * width, periods);
+            if (averages.size() > 0)
+            {
+                byState.put(groupNames.get(g), averages);
+            }
+        }
+        return new HistoryAverages(historyVersion, snapshotVersion, total.averages(0, periods), byState);
+    }
+
+    private static IntStream chunkStream(int parts)
+    {
+        IntStream chunks = IntStream.range(0, parts);
+        return parts > 1 ? chunks.parallel() : chunks;
+    }
+
+    /**
+     * @return the first city of a chunk
+     */
+    private static int from(
+        int part,
+        int parts,
+        int cities)
+    {
+        return (int) ((long) cities * part / parts);
+    }
+
+    private static int slot(
+        int period,
+        int firstYear)
+    {
+        return (period / 10000 - firstYear) * SLOTS_PER_YEAR + period / 100 % 100 * 32 + period % 100;
+    }
+
+    private static int period(
+        int slot,
+        int firstYear)
+    {
+        int inYear = slot % SLOTS_PER_YEAR;
+        return CitySeries.period(firstYear + slot / SLOTS_PER_YEAR, inYear / 32, inYear % 32);
+    }
+
+    private static long[] or(
+        long[] a,
+        long[] b)
+    {
+        for (int i = 0; i < a.length; i++)
+        {
+            a[i] |= b[i];
+        }
+        return a;
+    }
+
+    private static int bitCount(long[] bits)
+    {
+        int count = 0;
+        for (long word : bits)
+        {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Sums and counts of one chunk, or of several once merged
+     */
+    private static final class Sums
+    {
+        private final double[] sums;
+
+        private final int[] counts;
+
+        private Sums(int size)
+        {
+            sums = new double[size];
+            counts = new int[size];
+        }
+
+        /**
+         * Adds other into this, other is not used after
+         */
+        private Sums add(Sums other)
+        {
+            for (int i = 0; i < sums.length; i++)
+            {
+                sums[i] += other.sums[i];
+                counts[i] += other.counts[i];
+            }
+            return this;
+        }
+
+        /**
+         * @return the mean of every period of the group starting at row that has values
+         */
+        private CitySeries averages(
+            int row,
+            int[] periods)
+        {
+            int[] kept = new int[periods.length];
+            double[] means = new double[periods.length];
+            int size = 0;
+            for (int p = 0; p < periods.length; p++)
+            {
+                int n = counts[row + p];
+                if (n > 0)
+                {
+                    kept[size] = periods[p];
+                    means[size] = sums[row + p] / n;
+                    size++;
+                }
+            }
+            return new CitySeries(Arrays.copyOf(kept, size), Arrays.copyOf(means, size));
+        }
+    }
+}
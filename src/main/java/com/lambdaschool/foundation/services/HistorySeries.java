@@ -0,0 +1,62 @@
+package com.lambdaschool.foundation.services;
+
+import com.lambdaschool.foundation.models.HistoryPoint;
+
+import java.util.List;
+
+/**
+ * One historical series of one city: values in increasing order of their period, without repeats.
+ * A period is year * 10000 + month * 100 + day, see CitySeries.period.
+ * <p>
+ * CitySeries holds the values in primitive arrays, GorillaSeries compressed off heap.
+ */
+public interface HistorySeries
+{
+    /**
+     * Reads the values of a series one after the other
+     */
+    interface Cursor
+    {
+        /**
+         * Moves to the next value
+         *
+         * @return false once every value was read
+         */
+        boolean next();
+
+        int period();
+
+        double value();
+    }
+
+    int size();
+
+    /**
+     * @return the period of the oldest value, 0 if there are none
+     */
+    int firstPeriod();
+
+    /**
+     * @return the period of the latest value, 0 if there are none
+     */
+    int lastPeriod();
+
+    /**
+     * @return a cursor before the oldest value
+     */
+    Cursor cursor();
+
+    /**
+     * @return bytes taken by the values, not counting the object holding them
+     */
+    long bytes();
+
+    /**
+     * @param fromYear first year, inclusive
+     * @param toYear   last year, inclusive
+     * @return the values of those years, oldest first
+     */
+    List<HistoryPoint> range(
+        int fromYear,
+        int toYear);
+}
@@ -0,0 +1,74 @@
+package com.lambdaschool.foundation.services;
+
+import com.lambdaschool.foundation.models.Occupation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Every occupation title, each saved once and shared by all the cities that have it.
+ * <p>
+ * Titles are interned in memory: the first lookup of a title finds or saves its Occupation, and every later one
+ * gets that same instance without going to the database. The DS API repeats the same few hundred titles for every
+ * city, so loading all of them saves each title once instead of once per city.
+ */
+@Component
+public class OccupationDictionary
+{
+    @Autowired
+    private OccupationService occupationService;
+
+    private final ConcurrentMap<String, Occupation> byTitle = new ConcurrentHashMap<>();
+
+    /**
+     * @param title an occupation title
+     * @return the saved occupation with that title, the same instance for every call with the same title
+     */
+    public Occupation intern(String title)
+    {
+        Occupation occupation = byTitle.get(title);
+        if (occupation != null)
+        {
+            return occupation;
+        }
+        // looked up outside of the map, so a slow query holds no lock of it
+        Occupation found = findOrCreate(title);
+        occupation = byTitle.putIfAbsent(title, found);
+        return occupation != null ? occupation : found;
+    }
+
+    /**
+     * Saved in its own transaction, so it is committed before anyone else can be handed it
+     */
+    private Occupation findOrCreate(String title)
+    {
+        try
+        {
+            return occupationService.findOrCreate(title);
+        } catch (DataIntegrityViolationException e)
+        {
+            // saved by another caller since, which this one can find now
+            return occupationService.findOrCreate(title);
+        }
+    }
+
+    /**
+     * @return number of titles interned so far
+     */
+    public int size()
+    {
+        return byTitle.size();
+    }
+
+    /**
+     * Forgets every interned title. Must be called after occupations are deleted, or deleted occupations
+     * would be handed out
+     */
+    public void clear()
+    {
+        byTitle.clear();
+    }
+}
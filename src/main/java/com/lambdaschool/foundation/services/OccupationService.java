@@ -4,4 +4,12 @@ import com.lambdaschool.foundation.models.Occupation;
 
 public interface OccupationService {
     Occupation save(Occupation occupation);
+
+    /**
+     * Finds the occupation with a title, saving a new one if there is none, in a transaction of its own
+     *
+     * @param title the occupation title
+     * @return the saved occupation
+     */
+    Occupation findOrCreate(String title);
 }
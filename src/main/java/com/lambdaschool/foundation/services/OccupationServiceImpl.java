@@ -4,6 +4,7 @@ import com.lambdaschool.foundation.models.Occupation;
 import com.lambdaschool.foundation.repository.OccupationRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 @Transactional
@@ -17,4 +18,18 @@ public class OccupationServiceImpl implements OccupationService {
     public Occupation save(Occupation occupation) {
         return occupationrepo.save(occupation);
     }
+
+    /**
+     * Runs in a new transaction so the occupation is committed even if the city being loaded is not,
+     * which lets OccupationDictionary keep it
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Override
+    public Occupation findOrCreate(String title) {
+        Occupation occupation = occupationrepo.findByTitle(title);
+        if (occupation == null) {
+            occupation = occupationrepo.save(new Occupation(title));
+        }
+        return occupation;
+    }
 }
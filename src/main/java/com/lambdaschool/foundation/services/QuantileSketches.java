@@ -0,0 +1,203 @@
+package com.lambdaschool.foundation.services;
+
+import com.lambdaschool.foundation.models.CityGroupBy;
+import com.lambdaschool.foundation.models.CityMetric;
+import com.lambdaschool.foundation.models.MetricStats;
+import org.apache.datasketches.kll.KllFloatsSketch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * KLL quantile sketches of every quantiled CityMetric, nationally and for each group of every CityGroupBy.
+ * <p>
+ * A KLL sketch with parameter k keeps a few times k values no matter how many it has seen. A quantile read from
+ * it is the value at a rank within getNormalizedRankError of the rank asked for, with 99% confidence: for the
+ * default k = 200 the reported median is between the 48.7th and the 51.3rd percentile. A sketch that has seen
+ * no more than k values still holds all of them, so its quantiles are exact and its error is reported as 0.
+ * <p>
+ * Sketches merge without losing those bounds, which is how the national sketch is made from the state ones.
+ * Values can be added but not removed, so a changed or deleted city needs the sketches built again.
+ * Once handed out the sketches are only read; adding to them is done on a copy, see with.
+ */
+public final class QuantileSketches
+{
+    private final int k;
+
+    /**
+     * Indexed by CityMetric ordinal, null for metrics that are not quantiled
+     */
+    private final KllFloatsSketch[] national;
+
+    /**
+     * Indexed by CityGroupBy ordinal, then keyed by group, which is null for cities without one
+     */
+    private final List<Map<String, KllFloatsSketch[]>> byGroup;
+
+    /**
+     * @param k accuracy of the sketches, see KllFloatsSketch.getNormalizedRankError
+     */
+    QuantileSketches(int k)
+    {
+        this.k = k;
+        national = newSketches(k);
+        byGroup = new ArrayList<>();
+        for (int g = 0; g < CityGroupBy.values().length; g++)
+        {
+            byGroup.add(new HashMap<>());
+        }
+    }
+
+    private QuantileSketches(
+        int k,
+        KllFloatsSketch[] national,
+        List<Map<String, KllFloatsSketch[]>> byGroup)
+    {
+        this.k = k;
+        this.national = national;
+        this.byGroup = byGroup;
+    }
+
+    private static KllFloatsSketch[] newSketches(int k)
+    {
+        KllFloatsSketch[] sketches = new KllFloatsSketch[CityMetric.all().length];
+        for (CityMetric metric : CityMetric.all())
+        {
+            if (metric.isQuantiled())
+            {
+                sketches[metric.ordinal()] = new KllFloatsSketch(k);
+            }
+        }
+        return sketches;
+    }
+
+    /**
+     * Adds one city to the sketches of its groups
+     *
+     * @param groups    the group of the city for each CityGroupBy, by ordinal
+     * @param values    the value of the city for each CityMetric, by ordinal
+     * @param toNational also add it to the national sketches, instead of merging them later
+     */
+    void add(
+        String[] groups,
+        double[] values,
+        boolean toNational)
+    {
+        for (int g = 0; g < groups.length; g++)
+        {
+            update(byGroup.get(g)
+                .computeIfAbsent(groups[g], key -> newSketches(k)), values);
+        }
+        if (toNational)
+        {
+            update(national, values);
+        }
+    }
+
+    private static void update(
+        KllFloatsSketch[] sketches,
+        double[] values)
+    {
+        for (int m = 0; m < sketches.length; m++)
+        {
+            if (sketches[m] != null)
+            {
+                sketches[m].update((float) values[m]);
+            }
+        }
+    }
+
+    /**
+     * Makes the national sketches by merging the sketches of every state
+     */
+    void mergeNational()
+    {
+        for (KllFloatsSketch[] state : byGroup.get(CityGroupBy.STATE.ordinal())
+            .values())
+        {
+            merge(national, state);
+        }
+    }
+
+    private static void merge(
+        KllFloatsSketch[] into,
+        KllFloatsSketch[] from)
+    {
+        for (int m = 0; m < into.length; m++)
+        {
+            if (into[m] != null)
+            {
+                into[m].merge(from[m]);
+            }
+        }
+    }
+
+    /**
+     * Adds one city, nationally and to its groups, to copies of only the sketches it goes in.
+     * The sketches of every other group are shared with these, which are left as they were.
+     *
+     * @param groups the group of the city for each CityGroupBy, by ordinal
+     * @param values the value of the city for each CityMetric, by ordinal
+     * @return the sketches with the city added
+     */
+    QuantileSketches with(
+        String[] groups,
+        double[] values)
+    {
+        QuantileSketches next = new QuantileSketches(k, copy(national), new ArrayList<>(byGroup.size()));
+        for (int g = 0; g < byGroup.size(); g++)
+        {
+            Map<String, KllFloatsSketch[]> sketches = new HashMap<>(byGroup.get(g));
+            KllFloatsSketch[] group = sketches.get(groups[g]);
+            sketches.put(groups[g], group == null ? newSketches(k) : copy(group));
+            next.byGroup.add(sketches);
+        }
+        next.add(groups, values, true);
+        return next;
+    }
+
+    private KllFloatsSketch[] copy(KllFloatsSketch[] sketches)
+    {
+        KllFloatsSketch[] copy = newSketches(k);
+        merge(copy, sketches);
+        return copy;
+    }
+
+    /**
+     * @return the national sketches by CityMetric ordinal
+     */
+    KllFloatsSketch[] national()
+    {
+        return national;
+    }
+
+    /**
+     * @return the sketches of one group by CityMetric ordinal, or null if no city is in it
+     */
+    KllFloatsSketch[] group(
+        CityGroupBy groupBy,
+        String group)
+    {
+        return byGroup.get(groupBy.ordinal())
+            .get(group);
+    }
+
+    /**
+     * Fills in p10, median, p90 and their rank error from a sketch, leaving stats alone if there is none
+     */
+    static void describe(
+        KllFloatsSketch sketch,
+        MetricStats stats)
+    {
+        if (sketch == null || sketch.isEmpty())
+        {
+            return;
+        }
+        stats.setP10((double) sketch.getQuantile(0.1));
+        stats.setMedian((double) sketch.getQuantile(0.5));
+        stats.setP90((double) sketch.getQuantile(0.9));
+        stats.setRankError(sketch.isEstimationMode() ? sketch.getNormalizedRankError(false) : 0.0);
+    }
+}
@@ -0,0 +1,43 @@
+package com.lambdaschool.foundation.services;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Hands out space for encoded series from direct buffers of a fixed size, so many small series share a few
+ * allocations outside of the heap. Space is never given back; a block is freed by the garbage collector
+ * once no series in it is referenced any more. Not thread safe.
+ */
+final class SeriesBlocks
+{
+    private final int blockSize;
+
+    private ByteBuffer block;
+
+    /**
+     * @param blockSize bytes of each block, a series larger than that gets a block of its own
+     */
+    SeriesBlocks(int blockSize)
+    {
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * @param bytes size of the space
+     * @return a buffer of exactly that many bytes, positioned at 0
+     */
+    ByteBuffer allocate(int bytes)
+    {
+        if (bytes > blockSize)
+        {
+            return ByteBuffer.allocateDirect(bytes);
+        }
+        if (block == null || block.remaining() < bytes)
+        {
+            block = ByteBuffer.allocateDirect(blockSize);
+        }
+        ByteBuffer space = block.slice();
+        space.limit(bytes);
+        block.position(block.position() + bytes);
+        return space;
+    }
+}
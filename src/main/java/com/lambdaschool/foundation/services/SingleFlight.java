@@ -0,0 +1,105 @@
+package com.lambdaschool.foundation.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key into a single computation.
+ * <p>
+ * The first caller for a key runs the computation on its own thread. Callers arriving while it runs
+ * wait on the same CompletableFuture and get the same result, or the same exception.
+ * Nothing is kept once the computation finishes, so the next call computes again.
+ * <p>
+ * Publishes citrics.singleflight.calls tagged with the flight name and result=computed or result=coalesced.
+ *
+ * @param <K> what identifies two calls as the same computation, must implement equals and hashCode
+ * @param <V> the result of the computation, shared between every caller so it must not be modified
+ */
+public class SingleFlight<K, V>
+{
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter computed;
+
+    private final Counter coalesced;
+
+    /**
+     * @param name     name of the flight, used to tag its metrics
+     * @param registry where the metrics are published
+     */
+    public SingleFlight(
+        String name,
+        MeterRegistry registry)
+    {
+        computed = Counter.builder("citrics.singleflight.calls")
+            .description("Calls that ran the computation")
+            .tag("flight", name)
+            .tag("result", "computed")
+            .register(registry);
+        coalesced = Counter.builder("citrics.singleflight.calls")
+            .description("Calls that waited on a computation already in flight")
+            .tag("flight", name)
+            .tag("result", "coalesced")
+            .register(registry);
+    }
+
+    /**
+     * Runs work for key, unless a call for the same key is already running, in which case its result is returned
+     *
+     * @param key  identifies the computation
+     * @param work the computation
+     * @return the result of the computation
+     */
+    public V execute(
+        K key,
+        Supplier<V> work)
+    {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+
+        if (running != null)
+        {
+            coalesced.increment();
+            try
+            {
+                return running.join();
+            } catch (CompletionException e)
+            {
+                if (e.getCause() instanceof RuntimeException)
+                {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        computed.increment();
+        try
+        {
+            V result = work.get();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error e)
+        {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally
+        {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * @return the number of computations running right now
+     */
+    public int inFlight()
+    {
+        return inFlight.size();
+    }
+}
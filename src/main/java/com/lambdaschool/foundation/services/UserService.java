@@ -75,8 +75,23 @@ public interface UserService
         User user,
         long id);
 
+    /**
+     * Adds a city to the favorites of a user and counts the new fan on the city,
+     * unless the city is one of their favorites already
+     *
+     * @param cityName the name of the city
+     * @param user     the user favoriting the city
+     */
     void addFav(String cityName, User user);
 
+    /**
+     * Removes a city from the favorites of a user and takes the fan off the city's count
+     *
+     * @param cityName the name of the city
+     * @param user     the user removing the city from their favorites
+     */
+    void removeFav(String cityName, User user);
+
     /**
      * Deletes all record and their associated records from the database
      */
@@ -4,7 +4,9 @@ import com.lambdaschool.foundation.exceptions.ResourceNotFoundException;
 import com.lambdaschool.foundation.models.City;
 import com.lambdaschool.foundation.models.User;
 import com.lambdaschool.foundation.models.UserCities;
+import com.lambdaschool.foundation.repository.UserCitiesRepository;
 import com.lambdaschool.foundation.repository.UserRepository;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -26,6 +28,9 @@ public class UserServiceImpl
     @Autowired
     private UserRepository userrepos;
 
+    @Autowired
+    private UserCitiesRepository usercitiesrepos;
+
     @Autowired
     private HelperFunctions helperFunctions;
 
@@ -36,15 +41,16 @@ public class UserServiceImpl
     public User findUserById(long id) throws
                                       ResourceNotFoundException
     {
-        return userrepos.findById(id)
-            .orElseThrow(() -> new ResourceNotFoundException("User id " + id + " not found!"));
+        return initializeFavcities(userrepos.findById(id)
+            .orElseThrow(() -> new ResourceNotFoundException("User id " + id + " not found!")));
     }
 
     @Override
     public List<User> findByNameContaining(String username)
     {
-
-        return userrepos.findByUsernameContainingIgnoreCase(username.toLowerCase());
+        List<User> list = userrepos.findByUsernameContainingIgnoreCase(username.toLowerCase());
+        list.forEach(this::initializeFavcities);
+        return list;
     }
 
     @Override
@@ -58,6 +64,7 @@ public class UserServiceImpl
         userrepos.findAll()
             .iterator()
             .forEachRemaining(list::add);
+        list.forEach(this::initializeFavcities);
         return list;
     }
 
@@ -65,8 +72,13 @@ public class UserServiceImpl
     @Override
     public void delete(long id)
     {
-        userrepos.findById(id)
+        User user = userrepos.findById(id)
             .orElseThrow(() -> new ResourceNotFoundException("User id " + id + " not found!"));
+        for (UserCities uc : user.getFavcities())
+        {
+            cityService.adjustFavoriteCount(uc.getCity()
+                .getCityid(), -1);
+        }
         userrepos.deleteById(id);
     }
 
@@ -78,7 +90,7 @@ public class UserServiceImpl
         {
             throw new ResourceNotFoundException("User name " + name + " not found!");
         }
-        return uu;
+        return initializeFavcities(uu);
     }
 
     @Transactional
@@ -130,20 +142,77 @@ public class UserServiceImpl
         }
     }
 
+    @Transactional
     @Override
     public void addFav(String cityName, User user){
 
+        // the user handed in by the controller is detached since open-in-view is off
+        User managedUser = findUserById(user.getUserid());
         City city = cityService.findByName(cityName);
-        UserCities uc = new UserCities(user, city);
-        user.getFavcities().add(uc);
-        city.getUsers().add(uc);
+        for (UserCities favorite : managedUser.getFavcities()) {
+            if (favorite.getCity().getCityid() == city.getCityid()) {
+                // a favorite already, counted when it was added
+                return;
+            }
+        }
+        UserCities uc = new UserCities(managedUser, city);
+        managedUser.getFavcities().add(uc);
+        cityService.adjustFavoriteCount(city.getCityid(), 1);
+
+    }
+
+    @Transactional
+    @Override
+    public void removeFav(String cityName, User user)
+    {
+        User managedUser = findUserById(user.getUserid());
+        for (UserCities uc : managedUser.getFavcities())
+        {
+            if (uc.getCity()
+                .getName()
+                .equals(cityName))
+            {
+                managedUser.getFavcities()
+                    .remove(uc);
+                usercitiesrepos.delete(uc);
+                cityService.adjustFavoriteCount(uc.getCity()
+                    .getCityid(), -1);
+                return;
+            }
+        }
+        throw new ResourceNotFoundException("city by name of " + cityName + " is not a favorite of " + managedUser.getUsername());
+    }
 
+    /**
+     * Loads the favorite cities of a user, and their occupations, while the transaction is still open.
+     * Open-in-view is off, so nothing can be lazy loaded once the user leaves the service.
+     * Hibernate batch fetches these collections when several users are initialized in a row.
+     *
+     * @param user the user to initialize
+     * @return the same user
+     */
+    private User initializeFavcities(User user)
+    {
+        for (UserCities uc : user.getFavcities())
+        {
+            Hibernate.initialize(uc.getCity()
+                .getOccupations());
+        }
+        return user;
     }
 
     @Transactional
     @Override
     public void deleteAll()
     {
+        for (User user : userrepos.findAll())
+        {
+            for (UserCities uc : user.getFavcities())
+            {
+                cityService.adjustFavoriteCount(uc.getCity()
+                    .getCityid(), -1);
+            }
+        }
         userrepos.deleteAll();
     }
 
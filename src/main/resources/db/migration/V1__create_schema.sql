@@ -0,0 +1,95 @@
+-- The schema of the entities as of the persistent profile, in SQL that H2 and PostgreSQL both run.
+-- Later changes to the entities go in new versions, never into this file.
+
+CREATE SEQUENCE city_sequence START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE hibernate_sequence START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE cities
+(
+    cityid             BIGINT           NOT NULL,
+    created_by         VARCHAR(255),
+    created_date       TIMESTAMP,
+    last_modified_by   VARCHAR(255),
+    last_modified_date TIMESTAMP,
+    name               VARCHAR(255),
+    state              VARCHAR(255),
+    studio             INTEGER          NOT NULL,
+    onebr              INTEGER          NOT NULL,
+    twobr              INTEGER          NOT NULL,
+    threebr            INTEGER          NOT NULL,
+    fourbr             INTEGER          NOT NULL,
+    occ_title          VARCHAR(255),
+    hourly_wage        DOUBLE PRECISION NOT NULL,
+    annual_wage        INTEGER          NOT NULL,
+    climate_zone       VARCHAR(255),
+    simple_climate     VARCHAR(255),
+    walkscore          DOUBLE PRECISION NOT NULL,
+    population         INTEGER          NOT NULL,
+    favorite_count     INTEGER,
+    content_hash       BIGINT           NOT NULL,
+    PRIMARY KEY (cityid)
+);
+
+CREATE TABLE occupations
+(
+    occid     BIGINT NOT NULL,
+    occ_title VARCHAR(255),
+    PRIMARY KEY (occid),
+    CONSTRAINT uk_occupations_occ_title UNIQUE (occ_title)
+);
+
+CREATE TABLE cityoccupations
+(
+    cityid             BIGINT           NOT NULL,
+    occid              BIGINT           NOT NULL,
+    created_by         VARCHAR(255),
+    created_date       TIMESTAMP,
+    last_modified_by   VARCHAR(255),
+    last_modified_date TIMESTAMP,
+    hourly_wage        DOUBLE PRECISION NOT NULL,
+    annual_wage        INTEGER          NOT NULL,
+    jobs_1000          DOUBLE PRECISION NOT NULL,
+    loc_quotient       DOUBLE PRECISION NOT NULL,
+    content_hash       BIGINT           NOT NULL,
+    PRIMARY KEY (cityid, occid),
+    CONSTRAINT fk_cityoccupations_cities FOREIGN KEY (cityid) REFERENCES cities (cityid),
+    CONSTRAINT fk_cityoccupations_occupations FOREIGN KEY (occid) REFERENCES occupations (occid)
+);
+
+CREATE TABLE users
+(
+    userid             BIGINT       NOT NULL,
+    created_by         VARCHAR(255),
+    created_date       TIMESTAMP,
+    last_modified_by   VARCHAR(255),
+    last_modified_date TIMESTAMP,
+    username           VARCHAR(255) NOT NULL,
+    categories         INTEGER      NOT NULL,
+    PRIMARY KEY (userid)
+);
+
+CREATE TABLE usercities
+(
+    cityid             BIGINT NOT NULL,
+    userid             BIGINT NOT NULL,
+    created_by         VARCHAR(255),
+    created_date       TIMESTAMP,
+    last_modified_by   VARCHAR(255),
+    last_modified_date TIMESTAMP,
+    PRIMARY KEY (cityid, userid),
+    CONSTRAINT fk_usercities_cities FOREIGN KEY (cityid) REFERENCES cities (cityid),
+    CONSTRAINT fk_usercities_users FOREIGN KEY (userid) REFERENCES users (userid)
+);
+
+CREATE TABLE ingestcheckpoints
+(
+    checkpointid       BIGINT       NOT NULL,
+    created_by         VARCHAR(255),
+    created_date       TIMESTAMP,
+    last_modified_by   VARCHAR(255),
+    last_modified_date TIMESTAMP,
+    source             VARCHAR(255) NOT NULL,
+    citykey            VARCHAR(255) NOT NULL,
+    PRIMARY KEY (checkpointid),
+    CONSTRAINT uk_ingestcheckpoints_source_citykey UNIQUE (source, citykey)
+);
@@ -0,0 +1,13 @@
+-- City lookups by name, and the range filters of /cities/filter, one index per filtered column.
+-- The same indexes are declared on City for the in-memory database.
+
+CREATE INDEX idx_cities_name ON cities (name);
+CREATE INDEX idx_cities_population ON cities (population);
+CREATE INDEX idx_cities_studio ON cities (studio);
+CREATE INDEX idx_cities_onebr ON cities (onebr);
+CREATE INDEX idx_cities_twobr ON cities (twobr);
+CREATE INDEX idx_cities_threebr ON cities (threebr);
+CREATE INDEX idx_cities_fourbr ON cities (fourbr);
+CREATE INDEX idx_cities_hourly_wage ON cities (hourly_wage);
+CREATE INDEX idx_cities_annual_wage ON cities (annual_wage);
+CREATE INDEX idx_cities_walkscore ON cities (walkscore);
@@ -1,6 +1,7 @@
 package com.lambdaschool.foundation.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lambdaschool.foundation.ingestion.IngestionStatus;
 import com.lambdaschool.foundation.models.User;
 import com.lambdaschool.foundation.repository.UserRepository;
 import com.lambdaschool.foundation.services.CityService;
@@ -28,6 +29,7 @@ import java.util.List;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(UserController.class)
@@ -54,6 +56,9 @@ class UserControllerTest {
     @MockBean
     private CityService cityService;
 
+    @MockBean
+    private IngestionStatus ingestionStatus;
+
     List<User> userList;
 
     @BeforeEach
@@ -224,6 +229,29 @@ class UserControllerTest {
             .andDo(MockMvcResultHandlers.print());
     }
 
+    @Test
+    void updateFavsUnknownCity() throws
+                                 Exception {
+        String apiUrl = "/users/{userid}/fav/{cityName}";
+
+        Mockito.when(cityService.isKnownName(anyString()))
+            .thenReturn(false);
+
+        RequestBuilder rb = MockMvcRequestBuilders.post(apiUrl,
+            2L,
+            "Nowhere")
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+        mockMvc.perform(rb)
+            .andExpect(status().isNotFound())
+            .andExpect(jsonPath("$.title").value("Resource Not Found"))
+            .andExpect(jsonPath("$.detail").value("Error City name Nowhere not found!"))
+            .andDo(MockMvcResultHandlers.print());
+        Mockito.verify(userService, Mockito.never())
+            .findUserById(any(Long.class));
+    }
+
     @Test
     void deleteUserById() throws
                           Exception {
@@ -0,0 +1,218 @@
+package com.lambdaschool.foundation.ingestion;
+
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.CityOccs;
+import com.lambdaschool.foundation.models.Occupation;
+import com.lambdaschool.foundation.repository.CityOccsRepository;
+import com.lambdaschool.foundation.repository.CityRepository;
+import com.lambdaschool.foundation.repository.OccupationRepository;
+import com.lambdaschool.foundation.services.CityAverages;
+import com.lambdaschool.foundation.services.CityCache;
+import com.lambdaschool.foundation.services.CityHistory;
+import com.lambdaschool.foundation.services.CityNameFilter;
+import com.lambdaschool.foundation.services.CityService;
+import com.lambdaschool.foundation.services.CityServiceImpl;
+import com.lambdaschool.foundation.services.CitySnapshots;
+import com.lambdaschool.foundation.services.OccupationDictionary;
+import com.lambdaschool.foundation.services.OccupationServiceImpl;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Inserts many cities through CityLoader.loadAll, in JDBC batches. The benchmark times that against saving them
+ * one by one, for the number of cities of the bulkCities system property, 10000 if not set.
+ */
+@DataJpaTest(showSql = false, properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({CityLoader.class, IngestCheckpoints.class, CityServiceImpl.class, CityCache.class, CityNameFilter.class, CityAverages.class,
+    CitySnapshots.class, CityHistory.class, OccupationServiceImpl.class, OccupationDictionary.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CityBulkLoadTest
+{
+    private static final Logger logger = LoggerFactory.getLogger(CityBulkLoadTest.class);
+
+    private static final int JOBS = 10;
+
+    private static final int TITLES = 800;
+
+    @Autowired
+    private CityLoader cityLoader;
+
+    @Autowired
+    private CityService cityService;
+
+    @Autowired
+    private CityAverages cityAverages;
+
+    @Autowired
+    private OccupationDictionary occupationDictionary;
+
+    @Autowired
+    private CityRepository cityRepository;
+
+    @Autowired
+    private CityOccsRepository cityOccsRepository;
+
+    @Autowired
+    private OccupationRepository occupationRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp()
+    {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class)
+            .getStatistics();
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        cityOccsRepository.deleteAll();
+        cityRepository.deleteAll();
+        occupationRepository.deleteAll();
+        occupationDictionary.clear();
+        cityAverages.reload();
+    }
+
+    /**
+     * Cities as DsTransform builds them, each with JOBS of TITLES occupation titles
+     */
+    private static List<City> cities(
+        String prefix,
+        int count)
+    {
+        List<City> cities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            City city = new City(prefix + i, "ST", 700 + i % 500, 800, 1000, 1300, 1500, "All Occupations", 20.0,
+                40000 + i % 1000, "Hot-Humid", "Hot", 50.0, 100000 + i);
+            for (int j = 0; j < JOBS; j++)
+            {
+                city.getOccupations()
+                    .add(new CityOccs(city, new Occupation("Occupation " + (i + j * 7) % TITLES), 20.0 + j, 40000,
+                        1.5, 1.0));
+            }
+            cities.add(city);
+        }
+        return cities;
+    }
+
+    /**
+     * Loads the cities a thousand at a time, checking what was saved and how many statements it took
+     *
+     * @param bulk   cities with every title saved by the end
+     * @param before cities saved already
+     * @return milliseconds taken
+     */
+    private double loadAll(
+        List<City> bulk,
+        int before)
+    {
+        int count = bulk.size();
+        statistics.clear();
+        long start = System.nanoTime();
+        for (int from = 0; from < count; from += 1000)
+        {
+            assertEquals(Math.min(1000, count - from), cityLoader.loadAll(bulk.subList(from, Math.min(count, from + 1000))));
+        }
+        double bulkMs = (System.nanoTime() - start) / 1e6;
+        long inserts = statistics.getEntityInsertCount();
+        long statements = statistics.getPrepareStatementCount();
+
+        assertEquals(before + count, cityRepository.count());
+        assertEquals(TITLES, occupationRepository.count());
+        assertEquals((long) (before + count) * JOBS, cityOccsRepository.count());
+        assertEquals(before + count, cityAverages.count());
+        assertTrue(cityService.isKnownName("Bulk " + (count - 1)));
+        // rows go 50 to a statement, with a sequence call for every 50 cities
+        assertTrue(inserts >= (long) count * (JOBS + 1));
+        assertTrue(statements < inserts / 20, statements + " statements");
+        logger.info("{} cities with {} occupations each in bulk: {} ms, {} cities/s, {} rows in {} statements", count,
+            JOBS, Math.round(bulkMs), Math.round(count / bulkMs * 1000), inserts, statements);
+        return bulkMs;
+    }
+
+    @Test
+    void loadsInBatches()
+    {
+        // every title saved already, as they are after the first few cities of a run, so only cities are inserted
+        for (int t = 0; t < TITLES; t++)
+        {
+            occupationDictionary.intern("Occupation " + t);
+        }
+        loadAll(cities("Bulk ", 250), 0);
+    }
+
+    @Test
+    void concurrentInternsShareOneOccupation() throws Exception
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Occupation>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++)
+        {
+            results.add(pool.submit(() ->
+            {
+                start.await();
+                return occupationDictionary.intern("Interned Occupation");
+            }));
+        }
+        start.countDown();
+
+        Occupation occupation = results.get(0)
+            .get();
+        for (Future<Occupation> result : results)
+        {
+            assertSame(occupation, result.get());
+        }
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+        assertEquals(1, occupationRepository.count());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void bulkLoadAgainstOneByOne()
+    {
+        int count = Integer.getInteger("bulkCities", 10000);
+        List<City> single = cities("Single ", 500);
+
+        long start = System.nanoTime();
+        for (City city : single)
+        {
+            cityLoader.load(city);
+        }
+        double singleMs = (System.nanoTime() - start) / 1e6;
+        logger.info("{} cities one by one: {} ms, {} cities/s", single.size(), Math.round(singleMs),
+            Math.round(single.size() / singleMs * 1000));
+
+        loadAll(cities("Bulk ", count), single.size());
+    }
+}
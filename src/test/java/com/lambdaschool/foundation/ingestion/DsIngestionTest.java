@@ -0,0 +1,243 @@
+package com.lambdaschool.foundation.ingestion;
+
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.repository.CityRepository;
+import com.lambdaschool.foundation.repository.IngestCheckpointRepository;
+import com.lambdaschool.foundation.repository.OccupationRepository;
+import com.lambdaschool.foundation.services.CityAverages;
+import com.lambdaschool.foundation.services.CityCache;
+import com.lambdaschool.foundation.services.CityHistory;
+import com.lambdaschool.foundation.services.CityNameFilter;
+import com.lambdaschool.foundation.services.CityServiceImpl;
+import com.lambdaschool.foundation.services.CitySnapshots;
+import com.lambdaschool.foundation.services.OccupationDictionary;
+import com.lambdaschool.foundation.services.OccupationServiceImpl;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Loads cities from a DsStubServer into the database, end to end
+ */
+@DataJpaTest
+@Import({DsIngestion.class, DsClient.class, CityLoader.class, IngestCheckpoints.class, CityServiceImpl.class, CityCache.class,
+    CityNameFilter.class, CityAverages.class, CitySnapshots.class, CityHistory.class, OccupationServiceImpl.class, OccupationDictionary.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DsIngestionTest
+{
+    private static final Logger logger = LoggerFactory.getLogger(DsIngestionTest.class);
+
+    private static final long LATENCY_MS = 50;
+
+    private static final int CONCURRENCY = 8;
+
+    private static final DsStubServer stub = start();
+
+    private static DsStubServer start()
+    {
+        try
+        {
+            return new DsStubServer(LATENCY_MS, 20);
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void dsProperties(DynamicPropertyRegistry registry)
+    {
+        registry.add("citrics.ds.base-url", stub::baseUrl);
+        registry.add("citrics.ds.concurrency", () -> CONCURRENCY);
+        registry.add("citrics.ds.retry-backoff-ms", () -> 10);
+    }
+
+    @AfterAll
+    static void stop()
+    {
+        stub.close();
+    }
+
+    @Autowired
+    private DsIngestion dsIngestion;
+
+    @Autowired
+    private DsClient dsClient;
+
+    @Autowired
+    private CityRepository cityRepository;
+
+    @Autowired
+    private OccupationRepository occupationRepository;
+
+    @Autowired
+    private OccupationDictionary occupationDictionary;
+
+    @Autowired
+    private IngestCheckpointRepository checkpointRepository;
+
+    @AfterEach
+    void tearDown()
+    {
+        cityRepository.deleteAll();
+        occupationRepository.deleteAll();
+        occupationDictionary.clear();
+        checkpointRepository.deleteAll();
+    }
+
+    @Test
+    void loadsEveryCityConcurrently()
+    {
+        List<String> keys = DsStubServer.cityKeys(40);
+        int requests = stub.requests();
+
+        IngestReport report = dsIngestion.ingest(keys);
+
+        // one request per resource
+        assertEquals(2 * keys.size(), stub.requests() - requests);
+        assertEquals(40, report.getLoaded());
+        assertEquals(0, report.getFailed());
+        assertEquals(40, cityRepository.count());
+        City city = cityRepository.findByName("Stub City 7");
+        assertEquals(20, city.getOccupations()
+            .size());
+        // every city has the same 20 titles, saved once
+        assertEquals(20, occupationRepository.count());
+        assertEquals(20, occupationDictionary.size());
+        logger.info("Ingested {}", report);
+    }
+
+    @Test
+    void fetchesConcurrently()
+    {
+        List<String> keys = DsStubServer.cityKeys(40);
+
+        long start = System.currentTimeMillis();
+        List<CompletableFuture<?>> bodies = new ArrayList<>();
+        for (String key : keys)
+        {
+            bodies.add(dsClient.get("/static/" + key, DsPayload::cities));
+            bodies.add(dsClient.get("/bls_jobs/" + key, DsPayload::jobs));
+        }
+        CompletableFuture.allOf(bodies.toArray(new CompletableFuture[0]))
+            .join();
+        long millis = System.currentTimeMillis() - start;
+
+        // 80 requests of 50 ms take 4 s one at a time, and 0.5 s eight at a time
+        long sequentialMs = bodies.size() * LATENCY_MS;
+        logger.info("Fetched {} resources in {} ms, {} ms one at a time", bodies.size(), millis, sequentialMs);
+        assertTrue(millis < sequentialMs / 2);
+    }
+
+    @Test
+    void retriesFailedRequests()
+    {
+        stub.failOnce("/static/Stub%20City%200_ST");
+        stub.failOnce("/bls_jobs/Stub%20City%201_ST");
+
+        IngestReport report = dsIngestion.ingest(DsStubServer.cityKeys(2));
+
+        assertEquals(2, report.getLoaded());
+        assertEquals(0, report.getFailed());
+    }
+
+    @Test
+    void retriesOnlyWhatMayAnswerNextTime() throws Exception
+    {
+        String city = "/static/Stub%20City%203_ST";
+
+        // too many requests, then answered
+        stub.failOnce(city, 429);
+        int requests = stub.requests();
+        assertEquals(1, dsClient.get(city, DsPayload::cities)
+            .get()
+            .size());
+        assertEquals(2, stub.requests() - requests);
+
+        // not there
+        stub.failOnce(city, 404);
+        requests = stub.requests();
+        assertNull(dsClient.get(city, DsPayload::cities)
+            .get());
+        assertEquals(1, stub.requests() - requests);
+
+        // refused, or answered with a body that can not be read, the same every time
+        stub.failOnce(city, 403);
+        requests = stub.requests();
+        assertThrows(ExecutionException.class, () -> dsClient.get(city, DsPayload::cities)
+            .get());
+        assertEquals(1, stub.requests() - requests);
+
+        String garbled = "/static/Stub%20City%20999_ST";
+        stub.malformed(garbled);
+        requests = stub.requests();
+        assertThrows(ExecutionException.class, () -> dsClient.get(garbled, DsPayload::cities)
+            .get());
+        assertEquals(1, stub.requests() - requests);
+    }
+
+    @Test
+    void resumesWhereTheLastRunStopped()
+    {
+        List<String> keys = DsStubServer.cityKeys(40);
+        // a run that stopped after 30 cities
+        dsIngestion.ingest(keys.subList(0, 30));
+        int requests = stub.requests();
+
+        IngestReport report = dsIngestion.ingest(keys);
+
+        assertEquals(30, report.getSkipped());
+        assertEquals(10, report.getLoaded());
+        assertEquals(2 * 10, stub.requests() - requests);
+        assertEquals(40, cityRepository.count());
+        assertEquals(40, checkpointRepository.count());
+    }
+
+    @Test
+    void keepsTheBatchesCommittedBeforeAStop() throws InterruptedException
+    {
+        List<String> keys = DsStubServer.cityKeys(100);
+        // with the default settings, stopped once the first batch is committed
+        Thread run = new Thread(() -> dsIngestion.ingest(keys));
+        run.start();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (checkpointRepository.count() == 0 && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(5);
+        }
+        run.interrupt();
+        run.join();
+
+        long committed = checkpointRepository.count();
+        assertTrue(committed > 0 && committed < keys.size(), committed + " keys committed");
+        assertEquals(0, committed % 25);
+        assertEquals(committed, cityRepository.count());
+
+        IngestReport report = dsIngestion.ingest(keys);
+
+        assertEquals(committed, report.getSkipped());
+        assertEquals(keys.size() - committed, report.getLoaded());
+        assertEquals(keys.size(), cityRepository.count());
+    }
+}
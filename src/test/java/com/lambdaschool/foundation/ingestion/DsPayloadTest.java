@@ -0,0 +1,136 @@
+package com.lambdaschool.foundation.ingestion;
+
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.CityOccs;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks DsPayload against the responses of the DS API and against LegacyDsPayload, and benchmarks the two
+ */
+class DsPayloadTest
+{
+    private static final Logger logger = LoggerFactory.getLogger(DsPayloadTest.class);
+
+    private static InputStream body(String text)
+    {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void readsCityEncodedAsString() throws IOException
+    {
+        List<City> cities = DsPayload.cities(body(DsStubServer.staticBody("Tulsa")));
+        List<City> legacy = LegacyDsPayload.cities(body(DsStubServer.staticBody("Tulsa")));
+
+        assertEquals(1, cities.size());
+        City city = cities.get(0);
+        City expected = legacy.get(0);
+        assertEquals("Tulsa", city.getName());
+        assertEquals("ST", city.getState());
+        assertEquals(expected.getStudio(), city.getStudio());
+        assertEquals(expected.getFourbr(), city.getFourbr());
+        assertEquals(expected.getHourly_wage(), city.getHourly_wage());
+        assertEquals(expected.getAnnual_wage(), city.getAnnual_wage());
+        assertEquals(expected.getWalkscore(), city.getWalkscore());
+        assertEquals(expected.getPopulation(), city.getPopulation());
+        assertEquals("Hot-Humid", city.getClimate_zone());
+        assertEquals("Hot", city.getSimple_climate());
+        assertEquals("All Occupations", city.getOcc_title());
+    }
+
+    @Test
+    void readsBareArray() throws IOException
+    {
+        List<CityOccs> jobs = DsPayload.jobs(body("[{\"occ_title\": \"Nurse\", \"jobs_1000\": 2.5, " +
+            "\"extra\": {\"nested\": [1, 2]}, \"annual_wage\": 70000}, {\"occ_title\": null}]"));
+
+        assertEquals(2, jobs.size());
+        assertEquals("Nurse", jobs.get(0)
+            .getOccupation()
+            .getOcc_title());
+        assertEquals(2.5, jobs.get(0)
+            .getJobs_1000());
+        assertEquals(70000, jobs.get(0)
+            .getAnnual_wage());
+        assertNull(jobs.get(1)
+            .getOccupation()
+            .getOcc_title());
+    }
+
+    @Test
+    void readsEmptyResponse() throws IOException
+    {
+        assertTrue(DsPayload.cities(body(""))
+            .isEmpty());
+        assertTrue(DsPayload.jobs(body("\"[]\""))
+            .isEmpty());
+    }
+
+    /**
+     * @param occupations number of occupations of the city
+     * @return a response of the bls_jobs resource, about 185 bytes an occupation
+     */
+    private static byte[] largeJobs(int occupations)
+    {
+        return DsStubServer.jobsBody("Large City", occupations)
+            .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void readsLargePayloadLikeLegacy() throws IOException
+    {
+        byte[] payload = largeJobs(2000);
+
+        List<CityOccs> streamed = DsPayload.jobs(new ByteArrayInputStream(payload));
+        List<CityOccs> legacy = LegacyDsPayload.jobs(new ByteArrayInputStream(payload));
+        assertEquals(2000, streamed.size());
+        assertEquals(legacy.size(), streamed.size());
+        for (int i = 0; i < legacy.size(); i++)
+        {
+            assertEquals(legacy.get(i)
+                .getOccupation()
+                .getOcc_title(), streamed.get(i)
+                .getOccupation()
+                .getOcc_title());
+            assertEquals(legacy.get(i)
+                .getLoc_quotient(), streamed.get(i)
+                .getLoc_quotient());
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmarkLargePayload() throws IOException
+    {
+        // about 3.7 MB in the format of the bls_jobs resource
+        byte[] payload = largeJobs(20000);
+
+        long legacyNanos = Long.MAX_VALUE;
+        long streamedNanos = Long.MAX_VALUE;
+        for (int round = 0; round < 10; round++)
+        {
+            long start = System.nanoTime();
+            LegacyDsPayload.jobs(new ByteArrayInputStream(payload));
+            legacyNanos = Math.min(legacyNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            DsPayload.jobs(new ByteArrayInputStream(payload));
+            streamedNanos = Math.min(streamedNanos, System.nanoTime() - start);
+        }
+        logger.info("{} bytes, 20000 occupations: fragments and trees {} ms, streaming {} ms", payload.length,
+            legacyNanos / 1_000_000, streamedNanos / 1_000_000);
+    }
+}
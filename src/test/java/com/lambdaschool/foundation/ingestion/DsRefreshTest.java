@@ -0,0 +1,164 @@
+package com.lambdaschool.foundation.ingestion;
+
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.CityOccs;
+import com.lambdaschool.foundation.repository.CityOccsRepository;
+import com.lambdaschool.foundation.repository.CityRepository;
+import com.lambdaschool.foundation.repository.IngestCheckpointRepository;
+import com.lambdaschool.foundation.repository.OccupationRepository;
+import com.lambdaschool.foundation.services.CityAverages;
+import com.lambdaschool.foundation.services.CityCache;
+import com.lambdaschool.foundation.services.CityHistory;
+import com.lambdaschool.foundation.services.CityNameFilter;
+import com.lambdaschool.foundation.services.CityServiceImpl;
+import com.lambdaschool.foundation.services.CitySnapshots;
+import com.lambdaschool.foundation.services.OccupationDictionary;
+import com.lambdaschool.foundation.services.OccupationServiceImpl;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Refreshes cities loaded from a DsStubServer after the stub starts answering differently for some of them
+ */
+@DataJpaTest
+@Import({DsRefresh.class, DsIngestion.class, DsClient.class, CityLoader.class, IngestCheckpoints.class, CityServiceImpl.class, CityCache.class,
+    CityNameFilter.class, CityAverages.class, CitySnapshots.class, CityHistory.class, OccupationServiceImpl.class, OccupationDictionary.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DsRefreshTest
+{
+    private static final Logger logger = LoggerFactory.getLogger(DsRefreshTest.class);
+
+    private static final int OCCUPATIONS = 20;
+
+    private static final DsStubServer stub = start();
+
+    private static DsStubServer start()
+    {
+        try
+        {
+            return new DsStubServer(0, OCCUPATIONS);
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void dsProperties(DynamicPropertyRegistry registry)
+    {
+        registry.add("citrics.ds.base-url", stub::baseUrl);
+    }
+
+    @AfterAll
+    static void stop()
+    {
+        stub.close();
+    }
+
+    @Autowired
+    private DsIngestion dsIngestion;
+
+    @Autowired
+    private DsRefresh dsRefresh;
+
+    @Autowired
+    private CityRepository cityRepository;
+
+    @Autowired
+    private CityOccsRepository cityOccsRepository;
+
+    @Autowired
+    private OccupationRepository occupationRepository;
+
+    @Autowired
+    private OccupationDictionary occupationDictionary;
+
+    @Autowired
+    private IngestCheckpointRepository checkpointRepository;
+
+    @AfterEach
+    void tearDown()
+    {
+        cityRepository.deleteAll();
+        occupationRepository.deleteAll();
+        occupationDictionary.clear();
+        checkpointRepository.deleteAll();
+    }
+
+    @Test
+    void writesOnlyWhatChanged()
+    {
+        List<String> keys = DsStubServer.cityKeys(12);
+        dsIngestion.ingest(keys.subList(0, 10));
+        int studio = cityRepository.findByName("Stub City 3")
+            .getStudio();
+
+        stub.change("Stub City 3");
+        RefreshReport report = dsRefresh.refresh(keys);
+
+        assertEquals(2, report.getCitiesInserted());
+        assertEquals(1, report.getCitiesUpdated());
+        assertEquals(9, report.getCitiesUnchanged());
+        // every job of the new cities and the new occupation of the changed one
+        assertEquals(2 * OCCUPATIONS + 1, report.getJobsInserted());
+        assertEquals(1, report.getJobsUpdated());
+        assertEquals(10 * OCCUPATIONS - 1, report.getJobsUnchanged());
+        assertEquals(0, report.getFailed());
+
+        assertEquals(12, cityRepository.count());
+        assertEquals(12 * OCCUPATIONS + 1, cityOccsRepository.count());
+        City city = cityRepository.findByName("Stub City 3");
+        assertEquals(studio + 1, city.getStudio());
+        assertEquals(OCCUPATIONS + 1, city.getOccupations()
+            .size());
+        for (CityOccs co : city.getOccupations())
+        {
+            if (co.getOccupation()
+                .getOcc_title()
+                .equals("Occupation 0"))
+            {
+                assertEquals(16.0, co.getHourly_wage());
+            }
+        }
+        logger.info("Refreshed {}", report);
+
+        // nothing changed since
+        report = dsRefresh.refresh(keys);
+        assertEquals(12, report.getCitiesUnchanged());
+        assertEquals(0, report.getCitiesInserted() + report.getCitiesUpdated());
+        assertEquals(12 * OCCUPATIONS + 1, report.getJobsUnchanged());
+    }
+
+    @Test
+    void keepsCitiesOfTheSameNameApart()
+    {
+        List<String> keys = DsStubServer.cityKeys(5);
+        dsIngestion.ingest(keys);
+        City other = cityRepository.save(new City("Stub City 3", "XX", 1, 1, 1, 1, 1, "All Occupations", 1, 1,
+            "Cold", "Cold", 1, 1));
+
+        RefreshReport report = dsRefresh.refresh(keys);
+
+        assertEquals(5, report.getCitiesUnchanged());
+        assertEquals(0, report.getCitiesInserted() + report.getCitiesUpdated());
+        assertEquals(1, cityRepository.findById(other.getCityid())
+            .orElseThrow()
+            .getStudio());
+    }
+}
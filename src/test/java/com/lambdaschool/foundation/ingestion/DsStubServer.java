@@ -0,0 +1,249 @@
+package com.lambdaschool.foundation.ingestion;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stand in for the DS API on a local port, answering static and bls_jobs requests for generated cities
+ * the way the real API does, after a fixed latency.
+ * <p>
+ * Run main to benchmark a full startup against it: it prints the base url to set as citrics.ds.base-url.
+ */
+public class DsStubServer implements AutoCloseable
+{
+    private final HttpServer server;
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(64);
+
+    private final long latencyMs;
+
+    private final int occupations;
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    /**
+     * Paths that fail once with the status they map to before they are answered
+     */
+    private final Map<String, Integer> failOnce = new ConcurrentHashMap<>();
+
+    /**
+     * Paths answered with a body that is not JSON
+     */
+    private final Set<String> malformed = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Cities answered with changed data, see change
+     */
+    private final Set<String> changed = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param latencyMs   time each request takes
+     * @param occupations number of occupations of every city
+     */
+    public DsStubServer(
+        long latencyMs,
+        int occupations) throws IOException
+    {
+        this.latencyMs = latencyMs;
+        this.occupations = occupations;
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/static/", exchange -> answer(exchange, city -> staticBody(city, changed.contains(city))));
+        server.createContext("/bls_jobs/",
+            exchange -> answer(exchange, city -> jobsBody(city, occupations, changed.contains(city))));
+        server.setExecutor(pool);
+        server.start();
+    }
+
+    /**
+     * @param count number of cities
+     * @return the keys of that many generated cities, as SeedData names them
+     */
+    public static List<String> cityKeys(int count)
+    {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+        {
+            keys.add("Stub%20City%20" + i + "_ST");
+        }
+        return keys;
+    }
+
+    public String baseUrl()
+    {
+        return "http://127.0.0.1:" + server.getAddress()
+            .getPort();
+    }
+
+    public int requests()
+    {
+        return requests.get();
+    }
+
+    public void failOnce(String path)
+    {
+        failOnce(path, 503);
+    }
+
+    public void failOnce(
+        String path,
+        int status)
+    {
+        failOnce.put(path, status);
+    }
+
+    public void malformed(String path)
+    {
+        malformed.add(path);
+    }
+
+    /**
+     * From now on answers for city with a higher studio rent, a higher wage for its first occupation
+     * and one more occupation
+     *
+     * @param city the name of the city, as in the key
+     */
+    public void change(String city)
+    {
+        changed.add(city);
+    }
+
+    private interface Body
+    {
+        String of(String city);
+    }
+
+    private void answer(
+        HttpExchange exchange,
+        Body body) throws IOException
+    {
+        requests.incrementAndGet();
+        String path = exchange.getRequestURI()
+            .getRawPath();
+        try
+        {
+            Thread.sleep(latencyMs);
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread()
+                .interrupt();
+        }
+
+        int status = 200;
+        byte[] bytes;
+        Integer failure = failOnce.remove(path);
+        if (failure != null)
+        {
+            status = failure;
+            bytes = new byte[0];
+        } else if (malformed.contains(path))
+        {
+            bytes = "<html>Bad Gateway</html>".getBytes(StandardCharsets.UTF_8);
+        } else
+        {
+            String key = path.substring(path.lastIndexOf('/') + 1);
+            String city = key.substring(0, key.lastIndexOf('_'))
+                .replace("%20", " ");
+            bytes = body.of(city)
+                .getBytes(StandardCharsets.UTF_8);
+        }
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody())
+        {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * A JSON string holding a JSON array, as the DS API answers
+     */
+    private static String quoted(String array)
+    {
+        return "\"" + array.replace("\"", "\\\"") + "\"";
+    }
+
+    /**
+     * @return a response of the static resource for city
+     */
+    public static String staticBody(String city)
+    {
+        return staticBody(city, false);
+    }
+
+    private static String staticBody(
+        String city,
+        boolean changed)
+    {
+        int n = Math.abs(city.hashCode() % 1000);
+        return quoted(String.format(Locale.US,
+            "[{\"city\": \"%s\", \"state\": \"ST\", \"studio\": %d, \"onebr\": %d, \"twobr\": %d, \"threebr\": %d, " +
+                "\"fourbr\": %d, \"walkscore\": %.1f, \"population\": %d, \"occ_title\": \"All Occupations\", " +
+                "\"hourly_wage\": %.2f, \"annual_wage\": %d, \"climate_zone\": \"Hot-Humid\", \"simple_climate\": \"Hot\"}]",
+            city, 700 + n + (changed ? 1 : 0), 800 + n, 1000 + n, 1300 + n, 1500 + n, 40 + n % 60 + 0.5, 100000 + n * 1000, 20 + n / 100.0,
+            40000 + n * 10));
+    }
+
+    /**
+     * @return a response of the bls_jobs resource for city, with that many occupations
+     */
+    public static String jobsBody(
+        String city,
+        int occupations)
+    {
+        return jobsBody(city, occupations, false);
+    }
+
+    private static String jobsBody(
+        String city,
+        int occupations,
+        boolean changed)
+    {
+        StringBuilder array = new StringBuilder("[");
+        for (int i = 0; i < occupations + (changed ? 1 : 0); i++)
+        {
+            if (i > 0)
+            {
+                array.append(", ");
+            }
+            array.append(String.format(Locale.US,
+                "{\"city\": \"%s\", \"state\": \"ST\", \"occ_title\": \"Occupation %d\", \"jobs_1000\": %.3f, " +
+                    "\"loc_quotient\": %.2f, \"hourly_wage\": %.2f, \"annual_wage\": %d}",
+                city, i, 1 + i / 10.0, 0.5 + i / 100.0, 15 + i / 2.0 + (changed && i == 0 ? 1 : 0), 30000 + i * 500));
+        }
+        return quoted(array.append("]")
+            .toString());
+    }
+
+    @Override
+    public void close()
+    {
+        server.stop(0);
+        pool.shutdownNow();
+    }
+
+    /**
+     * Serves 133 cities, like the real API, until stopped
+     *
+     * @param args latency in milliseconds and occupations per city, 100 and 50 if not given
+     */
+    public static void main(String[] args) throws IOException
+    {
+        long latency = args.length > 0 ? Long.parseLong(args[0]) : 100;
+        int occupations = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        DsStubServer stub = new DsStubServer(latency, occupations);
+        System.out.println("DS stub at " + stub.baseUrl() + " with " + latency + " ms latency");
+    }
+}
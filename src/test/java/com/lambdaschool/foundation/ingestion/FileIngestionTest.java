@@ -0,0 +1,138 @@
+package com.lambdaschool.foundation.ingestion;
+
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.CityOccs;
+import com.lambdaschool.foundation.models.Occupation;
+import com.lambdaschool.foundation.repository.CityRepository;
+import com.lambdaschool.foundation.repository.IngestCheckpointRepository;
+import com.lambdaschool.foundation.repository.OccupationRepository;
+import com.lambdaschool.foundation.services.CityAverages;
+import com.lambdaschool.foundation.services.CityCache;
+import com.lambdaschool.foundation.services.CityHistory;
+import com.lambdaschool.foundation.services.CityNameFilter;
+import com.lambdaschool.foundation.services.CityServiceImpl;
+import com.lambdaschool.foundation.services.CitySnapshots;
+import com.lambdaschool.foundation.services.OccupationDictionary;
+import com.lambdaschool.foundation.services.OccupationServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Loads cities from NDJSON files, written by FileIngestion.export or by hand
+ */
+@DataJpaTest
+@Import({FileIngestion.class, CityLoader.class, IngestCheckpoints.class, CityServiceImpl.class, CityCache.class, CityNameFilter.class,
+    CityAverages.class, CitySnapshots.class, CityHistory.class, OccupationServiceImpl.class, OccupationDictionary.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FileIngestionTest
+{
+    @Autowired
+    private FileIngestion fileIngestion;
+
+    @Autowired
+    private CityRepository cityRepository;
+
+    @Autowired
+    private OccupationRepository occupationRepository;
+
+    @Autowired
+    private OccupationDictionary occupationDictionary;
+
+    @Autowired
+    private IngestCheckpointRepository checkpointRepository;
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void tearDown()
+    {
+        cityRepository.deleteAll();
+        occupationRepository.deleteAll();
+        occupationDictionary.clear();
+        checkpointRepository.deleteAll();
+    }
+
+    @Test
+    void loadsHandWrittenFiles() throws IOException
+    {
+        Path cities = dir.resolve("cities.ndjson");
+        Path jobs = dir.resolve("city-jobs.ndjson");
+        Files.write(cities, List.of(
+            "{\"city\": \"Tulsa\", \"state\": \"OK\", \"studio\": 650, \"population\": 400000, \"walkscore\": 38.5}",
+            "",
+            "{\"city\": \"Portland\", \"state\": \"OR\", \"studio\": 1200}"), StandardCharsets.UTF_8);
+        Files.write(jobs, List.of(
+            "{\"city\": \"Tulsa\", \"state\": \"OK\", \"occ_title\": \"Nurse\", \"annual_wage\": 60000}",
+            "{\"city\": \"Tulsa\", \"state\": \"OK\", \"occ_title\": \"Welder\", \"jobs_1000\": 3.5}",
+            "{\"city\": \"Portland\", \"state\": \"OR\", \"occ_title\": \"Nurse\", \"annual_wage\": 80000}",
+            "{\"city\": \"Tulsa\", \"state\": \"ME\", \"occ_title\": \"Fisher\"}"), StandardCharsets.UTF_8);
+
+        IngestReport report = fileIngestion.ingest(cities, jobs);
+
+        assertEquals(2, report.getLoaded());
+        assertEquals(0, report.getFailed());
+        City tulsa = cityRepository.findByName("Tulsa");
+        assertEquals(650, tulsa.getStudio());
+        assertEquals(38.5, tulsa.getWalkscore());
+        assertEquals(2, tulsa.getOccupations()
+            .size());
+        assertEquals(1, cityRepository.findByName("Portland")
+            .getOccupations()
+            .size());
+        assertEquals(2, occupationRepository.count());
+    }
+
+    @Test
+    void loadsExportedFiles() throws IOException
+    {
+        List<City> cities = new ArrayList<>();
+        for (int i = 0; i < 30; i++)
+        {
+            City city = new City("File City " + i, "ST", 700 + i, 800, 1000, 1300, 1500, "All Occupations", 20.5,
+                40000 + i, "Hot-Humid", "Hot", 40.5, 100000 + i);
+            for (int j = 0; j < 5; j++)
+            {
+                city.getOccupations()
+                    .add(new CityOccs(city, new Occupation("Occupation " + j), 15.5 + j, 30000 + j, 1.25, 0.5));
+            }
+            cities.add(city);
+        }
+        Path citiesFile = dir.resolve("cities.ndjson");
+        Path jobsFile = dir.resolve("city-jobs.ndjson");
+        FileIngestion.export(cities, citiesFile, jobsFile);
+        assertEquals(150, Files.readAllLines(jobsFile)
+            .size());
+
+        IngestReport report = fileIngestion.ingest(citiesFile, jobsFile);
+
+        assertEquals(30, report.getRequested());
+        assertEquals(30, report.getLoaded());
+        assertEquals(30, cityRepository.count());
+        assertEquals(5, occupationRepository.count());
+        City city = cityRepository.findByName("File City 7");
+        assertEquals(707, city.getStudio());
+        assertEquals(40007, city.getAnnual_wage());
+        assertEquals(20.5, city.getHourly_wage());
+        assertEquals("Hot-Humid", city.getClimate_zone());
+        CityOccs job = city.getOccupations()
+            .get(0);
+        assertEquals(1.25, job.getJobs_1000());
+        assertEquals(0.5, job.getLoc_quotient());
+    }
+}
@@ -0,0 +1,140 @@
+package com.lambdaschool.foundation.ingestion;
+
+import com.lambdaschool.foundation.exceptions.ResourceNotFoundException;
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.HistoryPoint;
+import com.lambdaschool.foundation.repository.CityRepository;
+import com.lambdaschool.foundation.services.CityAverages;
+import com.lambdaschool.foundation.services.CityCache;
+import com.lambdaschool.foundation.services.CityHistory;
+import com.lambdaschool.foundation.services.CityNameFilter;
+import com.lambdaschool.foundation.services.CityService;
+import com.lambdaschool.foundation.services.CityServiceImpl;
+import com.lambdaschool.foundation.services.CitySnapshots;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Loads historical series from an NDJSON file and reads them back through CityService.findHistory
+ */
+@DataJpaTest
+@Import({HistoryIngestion.class, CityServiceImpl.class, CityCache.class, CityNameFilter.class, CityAverages.class,
+    CitySnapshots.class, CityHistory.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class HistoryIngestionTest
+{
+    @Autowired
+    private HistoryIngestion historyIngestion;
+
+    @Autowired
+    private CityService cityService;
+
+    @Autowired
+    private CityRepository cityRepository;
+
+    @Autowired
+    private CityCache cityCache;
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void tearDown()
+    {
+        cityRepository.deleteAll();
+        cityCache.invalidateAll();
+    }
+
+    @Test
+    void loadsValuesOfKnownCities() throws IOException
+    {
+        City tulsa = cityService.save(new City("Tulsa", "OK", 650, 750, 900, 1100, 1300, "All Occupations", 20.5,
+            42000, "Mixed-Humid", "Mild", 38.5, 400000));
+        Path file = dir.resolve("city-history.ndjson");
+        Files.write(file, List.of(
+            "{\"city\": \"Tulsa\", \"state\": \"OK\", \"metric\": \"housing\", \"year\": 2016, \"month\": 2, \"value\": 910}",
+            "{\"city\": \"Tulsa\", \"state\": \"OK\", \"metric\": \"housing\", \"year\": 2015, \"month\": 1, \"value\": 880}",
+            "{\"city\": \"Tulsa\", \"state\": \"OK\", \"metric\": \"housing\", \"year\": 2021, \"month\": 1, \"value\": 990}",
+            "{\"city\": \"Tulsa\", \"state\": \"OK\", \"metric\": \"population\", \"year\": 2015, \"value\": 398000}",
+            "",
+            "{\"city\": \"Tulsa\", \"state\": \"OK\", \"metric\": \"snowfall\", \"year\": 2015, \"value\": 3}",
+            "{\"city\": \"Nowhere\", \"state\": \"ZZ\", \"metric\": \"housing\", \"year\": 2015, \"value\": 1}"),
+            StandardCharsets.UTF_8);
+
+        assertEquals(4, historyIngestion.ingest(file));
+
+        List<HistoryPoint> housing = cityService.findHistory(tulsa.getCityid(), "housing", 2015, 2020);
+        assertEquals(2, housing.size());
+        assertEquals(880, housing.get(0)
+            .getValue());
+        assertEquals(2, housing.get(1)
+            .getMonth());
+        assertEquals(3, cityService.findHistory(tulsa.getCityid(), "housing", null, null)
+            .size());
+        assertEquals(398000, cityService.findHistory(tulsa.getCityid(), "population", 2015, 2015)
+            .get(0)
+            .getValue());
+        assertEquals(0, cityService.findHistory(tulsa.getCityid(), "covid", null, null)
+            .size());
+    }
+
+    @Test
+    void skipsValuesThatDoNotFit() throws IOException
+    {
+        City tulsa = cityService.save(new City("Tulsa", "OK", 650, 750, 900, 1100, 1300, "All Occupations", 20.5,
+            42000, "Mixed-Humid", "Mild", 38.5, 400000));
+        Path file = dir.resolve("city-history.ndjson");
+        Files.write(file, List.of(
+            "{\"city\": \"Tulsa\", \"state\": \"OK\", \"metric\": \"housing\", \"year\": 2020, \"month\": 12, \"day\": 31, \"value\": 1}",
+            // another Tulsa
+            "{\"city\": \"Tulsa\", \"state\": \"TX\", \"metric\": \"housing\", \"year\": 2020, \"month\": 1, \"value\": 2}",
+            "{\"city\": \"Tulsa\", \"metric\": \"housing\", \"year\": 2020, \"month\": 2, \"value\": 3}",
+            // no value
+            "{\"city\": \"Tulsa\", \"state\": \"OK\", \"metric\": \"housing\", \"year\": 2020, \"month\": 3}",
+            "{\"city\": \"Tulsa\", \"state\": \"OK\", \"metric\": \"housing\", \"year\": 2020, \"month\": 4, \"value\": null}",
+            // not a time
+            "{\"city\": \"Tulsa\", \"state\": \"OK\", \"metric\": \"housing\", \"year\": 2021, \"month\": 13, \"value\": 5}",
+            "{\"city\": \"Tulsa\", \"state\": \"OK\", \"metric\": \"housing\", \"year\": 2021, \"month\": -1, \"value\": 6}",
+            "{\"city\": \"Tulsa\", \"state\": \"OK\", \"metric\": \"housing\", \"year\": 2021, \"month\": 1, \"day\": 32, \"value\": 7}",
+            "{\"city\": \"Tulsa\", \"state\": \"OK\", \"metric\": \"housing\", \"year\": 2021, \"day\": 5, \"value\": 8}",
+            "{\"city\": \"Tulsa\", \"state\": \"OK\", \"metric\": \"housing\", \"year\": 10000, \"value\": 9}"),
+            StandardCharsets.UTF_8);
+
+        assertEquals(1, historyIngestion.ingest(file));
+
+        List<HistoryPoint> housing = cityService.findHistory(tulsa.getCityid(), "housing", null, null);
+        assertEquals(1, housing.size());
+        assertEquals(31, housing.get(0)
+            .getDay());
+        // the averages have a slot for every period that was loaded
+        assertEquals(1, cityService.findAverageHistory("housing", "OK", null, null)
+            .size());
+    }
+
+    @Test
+    void unknownMetricOrCity()
+    {
+        City tulsa = cityService.save(new City("Tulsa", "OK", 650, 750, 900, 1100, 1300, "All Occupations", 20.5,
+            42000, "Mixed-Humid", "Mild", 38.5, 400000));
+
+        assertThrows(ResourceNotFoundException.class,
+            () -> cityService.findHistory(tulsa.getCityid(), "snowfall", null, null));
+        assertThrows(ResourceNotFoundException.class,
+            () -> cityService.findHistory(tulsa.getCityid() + 1000, "housing", null, null));
+    }
+}
@@ -0,0 +1,175 @@
+package com.lambdaschool.foundation.ingestion;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IngestPipelineTest
+{
+    private static final int CAPACITY = 2;
+
+    private static final class Item
+    {
+        private final String key;
+
+        private byte[] body;
+
+        private Item(String key)
+        {
+            this.key = key;
+        }
+    }
+
+    private static List<Item> keys(int count)
+    {
+        List<Item> keys = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+        {
+            keys.add(new Item("key" + i));
+        }
+        return keys;
+    }
+
+    @Test
+    void runsEveryKeyThroughEveryStage() throws InterruptedException
+    {
+        Set<String> persisted = ConcurrentHashMap.newKeySet();
+        AtomicInteger parsed = new AtomicInteger();
+
+        new IngestPipeline<Item>(CAPACITY)
+            .stage("test-fetch", 4, item -> item.body = item.key.getBytes())
+            .stage("test-parse", 3, item -> parsed.incrementAndGet())
+            .stage("test-persist", 1, item -> persisted.add(new String(item.body)))
+            .run(keys(100), (item, error) ->
+            {
+                throw new AssertionError(error);
+            });
+
+        assertEquals(100, parsed.get());
+        assertEquals(100, persisted.size());
+    }
+
+    @Test
+    void slowLastStageHoldsUpTheFirst() throws InterruptedException
+    {
+        AtomicInteger fetched = new AtomicInteger();
+        AtomicInteger persisted = new AtomicInteger();
+        CountDownLatch database = new CountDownLatch(1);
+
+        Thread run = new Thread(() ->
+        {
+            try
+            {
+                new IngestPipeline<Item>(CAPACITY)
+                    .stage("test-fetch", 1, item -> fetched.incrementAndGet())
+                    .stage("test-persist", 1, item ->
+                    {
+                        database.await();
+                        persisted.incrementAndGet();
+                    })
+                    .run(keys(100), (item, error) ->
+                    {
+                    });
+            } catch (InterruptedException e)
+            {
+                Thread.currentThread()
+                    .interrupt();
+            }
+        });
+        run.start();
+
+        Thread.sleep(200);
+        // one item in persist, a full queue in front of it, and one fetched item waiting for room
+        assertTrue(fetched.get() <= CAPACITY + 2, "fetched " + fetched.get() + " while the database was stuck");
+        assertEquals(0, persisted.get());
+
+        database.countDown();
+        run.join(TimeUnit.SECONDS.toMillis(10));
+        assertEquals(100, fetched.get());
+        assertEquals(100, persisted.get());
+    }
+
+    @Test
+    void failedItemsGoNoFurther() throws InterruptedException
+    {
+        Set<String> failed = ConcurrentHashMap.newKeySet();
+        Set<String> persisted = ConcurrentHashMap.newKeySet();
+
+        new IngestPipeline<Item>(CAPACITY)
+            .stage("test-parse", 2, item ->
+            {
+                if (item.key.equals("key7"))
+                {
+                    throw new IllegalStateException("bad response");
+                }
+            })
+            .stage("test-persist", 1, item -> persisted.add(item.key))
+            .run(keys(20), (item, error) -> failed.add(item.key));
+
+        assertEquals(Collections.singleton("key7"), failed);
+        assertEquals(19, persisted.size());
+    }
+
+    @Test
+    void errorInAStageStopsTheRun()
+    {
+        AtomicInteger persisted = new AtomicInteger();
+
+        AssertionError error = assertThrows(AssertionError.class, () -> assertTimeoutPreemptively(
+            Duration.ofSeconds(10), () -> new IngestPipeline<Item>(CAPACITY)
+                .stage("test-fetch", 2, item ->
+                {
+                })
+                .stage("test-parse", 1, item ->
+                {
+                    if (item.key.equals("key3"))
+                    {
+                        throw new AssertionError("parser broke");
+                    }
+                })
+                .stage("test-persist", 1, item -> persisted.incrementAndGet())
+                .run(keys(100), (item, e) ->
+                {
+                })));
+
+        assertEquals("parser broke", error.getMessage());
+        assertTrue(persisted.get() < 100);
+    }
+
+    @Test
+    void interruptedStageStopsTheRun()
+    {
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+            () -> assertTimeoutPreemptively(Duration.ofSeconds(10), () -> new IngestPipeline<Item>(CAPACITY)
+                .stage("test-fetch", 1, item ->
+                {
+                    if (item.key.equals("key3"))
+                    {
+                        Thread.currentThread()
+                            .interrupt();
+                    }
+                    Thread.sleep(1);
+                })
+                .stage("test-persist", 1, item ->
+                {
+                })
+                .run(keys(100), (item, e) ->
+                {
+                })));
+
+        assertTrue(error.getCause() instanceof InterruptedException);
+    }
+}
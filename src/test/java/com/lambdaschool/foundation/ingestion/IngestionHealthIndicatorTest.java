@@ -0,0 +1,64 @@
+package com.lambdaschool.foundation.ingestion;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IngestionHealthIndicatorTest
+{
+    private IngestionStatus status;
+
+    private IngestionHealthIndicator indicator;
+
+    @BeforeEach
+    void setUp()
+    {
+        status = new IngestionStatus();
+        indicator = new IngestionHealthIndicator();
+        ReflectionTestUtils.setField(indicator, "ingestionStatus", status);
+    }
+
+    @Test
+    void outOfServiceWhileWarmingAnEmptyDatabase()
+    {
+        status.started(false);
+
+        Health health = indicator.health();
+        assertEquals(Status.OUT_OF_SERVICE, health.getStatus());
+        assertEquals(IngestionStatus.State.WARMING, health.getDetails()
+            .get("state"));
+        assertFalse(status.isServing());
+
+        status.finished(new IngestReport(10, 10, 0, 0, 5));
+        assertEquals(Status.UP, indicator.health()
+            .getStatus());
+        assertTrue(status.isServing());
+    }
+
+    @Test
+    void servesPersistedDataWhileWarming()
+    {
+        status.started(true);
+
+        assertEquals(Status.UP, indicator.health()
+            .getStatus());
+        assertTrue(status.isServing());
+    }
+
+    @Test
+    void downWhenTheLoadFailedWithNothingToServe()
+    {
+        status.started(false);
+        status.failed(new IllegalStateException("DS API unreachable"));
+
+        assertEquals(Status.DOWN, indicator.health()
+            .getStatus());
+        assertFalse(status.isServing());
+    }
+}
@@ -0,0 +1,145 @@
+package com.lambdaschool.foundation.ingestion;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.CityOccs;
+import com.lambdaschool.foundation.models.Occupation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * How DS responses were read before DsPayload, kept to benchmark against it.
+ * <p>
+ * The DS API answers with a JSON string that itself holds a JSON array, so the quotes of the objects inside are
+ * escaped. Rather than decode the string this scans for the braces of each object and drops the backslashes,
+ * then reads every object into a tree and copies the fields of the tree into a City or an Occupation.
+ */
+public final class LegacyDsPayload
+{
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private LegacyDsPayload()
+    {
+    }
+
+    public static List<City> cities(InputStream body) throws IOException
+    {
+        List<City> cities = new ArrayList<>();
+        for (String fragment : fragments(body))
+        {
+            cities.add(toCity(mapper.readTree(fragment)));
+        }
+        return cities;
+    }
+
+    public static List<CityOccs> jobs(InputStream body) throws IOException
+    {
+        List<CityOccs> jobs = new ArrayList<>();
+        for (String fragment : fragments(body))
+        {
+            jobs.add(toJob(mapper.readTree(fragment)));
+        }
+        return jobs;
+    }
+
+    /**
+     * @param body the response, read as UTF-8 and closed
+     * @return the JSON text of every object in it, in order
+     * @throws IOException if the response can not be read
+     */
+    public static List<String> fragments(InputStream body) throws IOException
+    {
+        return fragments(new InputStreamReader(body, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param body the response, closed once read
+     * @return the JSON text of every object in it, in order
+     * @throws IOException if the response can not be read
+     */
+    public static List<String> fragments(Reader body) throws IOException
+    {
+        List<String> listArray = new ArrayList<>();
+        StringBuilder fetched = new StringBuilder();
+        char[] buffer = new char[8192];
+        boolean isReading = false;
+
+        try (Reader rdr = body)
+        {
+            int num;
+            while ((num = rdr.read(buffer)) != -1)
+            {
+                for (int i = 0; i < num; i++)
+                {
+                    char ch = buffer[i];
+
+                    if (ch == '{') isReading = true;
+
+                    if (isReading && ch != '\\') fetched.append(ch);
+
+                    if (ch == '}')
+                    {
+                        isReading = false;
+                        listArray.add(fetched.toString());
+                        fetched.setLength(0);
+                    }
+                }
+            }
+        }
+
+        return listArray;
+    }
+
+    private static City toCity(JsonNode dataNode)
+    {
+        return new City(dataNode.path("city")
+            .textValue(),
+            dataNode.path("state")
+                .textValue(),
+            dataNode.path("studio")
+                .intValue(),
+            dataNode.path("onebr")
+                .intValue(),
+            dataNode.path("twobr")
+                .intValue(),
+            dataNode.path("threebr")
+                .intValue(),
+            dataNode.path("fourbr")
+                .intValue(),
+            dataNode.path("occ_title")
+                .textValue(),
+            dataNode.path("hourly_wage")
+                .doubleValue(),
+            dataNode.path("annual_wage")
+                .intValue(),
+            dataNode.path("climate_zone")
+                .textValue(),
+            dataNode.path("simple_climate")
+                .textValue(),
+            dataNode.path("walkscore")
+                .doubleValue(),
+            dataNode.path("population")
+                .intValue());
+    }
+
+    private static CityOccs toJob(JsonNode occsNode)
+    {
+        return new CityOccs(null, new Occupation(occsNode.path("occ_title")
+            .textValue()),
+            occsNode.path("hourly_wage")
+                .doubleValue(),
+            occsNode.path("annual_wage")
+                .intValue(),
+            occsNode.path("jobs_1000")
+                .doubleValue(),
+            occsNode.path("loc_quotient")
+                .doubleValue());
+    }
+}
@@ -0,0 +1,94 @@
+package com.lambdaschool.foundation.repository;
+
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.CityOccs;
+import com.lambdaschool.foundation.models.Occupation;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Builds the schema with the migrations of the persistent profile and checks Hibernate accepts it
+ */
+@DataJpaTest(properties = {"spring.flyway.enabled=true", "spring.jpa.hibernate.ddl-auto=validate"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SchemaMigrationTest
+{
+    @Autowired
+    private CityRepository cityRepository;
+
+    @Autowired
+    private OccupationRepository occupationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void tearDown()
+    {
+        cityRepository.deleteAll();
+        occupationRepository.deleteAll();
+    }
+
+    @Test
+    void entitiesMatchTheMigratedSchema()
+    {
+        // the context only starts if ddl-auto=validate found every table and column the entities map
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+        {
+            Occupation o = occupationRepository.save(new Occupation("Migrated Job"));
+            City c = new City("Migrated City");
+            c.getOccupations()
+                .add(new CityOccs(c, o, 20.0, 40000, 1.0, 1.0));
+            cityRepository.save(c);
+        });
+
+        assertEquals(1, cityRepository.findByName("Migrated City")
+            .getOccupations()
+            .size());
+    }
+
+    @Test
+    void citiesAreIndexedForLookupsAndFilters()
+    {
+        List<String> indexes = jdbcTemplate.queryForList(
+            "SELECT INDEX_NAME FROM INFORMATION_SCHEMA.INDEXES WHERE TABLE_NAME = 'CITIES'", String.class);
+        for (String column : new String[]{"NAME", "POPULATION", "STUDIO", "ONEBR", "TWOBR", "THREEBR", "FOURBR",
+            "HOURLY_WAGE", "ANNUAL_WAGE", "WALKSCORE"})
+        {
+            assertTrue(indexes.contains("IDX_CITIES_" + column), "no index on " + column);
+        }
+    }
+
+    @Test
+    void restartAppliesNothing()
+    {
+        Flyway flyway = Flyway.configure()
+            .dataSource("jdbc:h2:file:" + dir.resolve("citrics"), "sa", "")
+            .load();
+
+        assertEquals(2, flyway.migrate());
+        // a restart on the same file finds the schema up to date
+        assertEquals(0, flyway.migrate());
+    }
+}
@@ -0,0 +1,138 @@
+package com.lambdaschool.foundation.repository;
+
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.CityOccs;
+import com.lambdaschool.foundation.models.Occupation;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a warm city lookup is answered by the second-level and query caches without any SQL
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheTest
+{
+    @Autowired
+    private CityRepository cityRepository;
+
+    @Autowired
+    private OccupationRepository occupationRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+
+    private long cityid;
+
+    @BeforeEach
+    void setUp()
+    {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache()
+            .evictAllRegions();
+        statistics = sessionFactory.getStatistics();
+
+        cityid = inTransaction(() ->
+        {
+            City c = new City("Cached City");
+            for (int i = 0; i < 3; i++)
+            {
+                Occupation o = occupationRepository.save(new Occupation("Job " + i));
+                c.getOccupations()
+                    .add(new CityOccs(c, o, 20.0, 40000, 1.0, 1.0));
+            }
+            return cityRepository.save(c)
+                .getCityid();
+        });
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        cityRepository.deleteAll();
+        occupationRepository.deleteAll();
+    }
+
+    /**
+     * Each call runs in its own session, so only the second-level cache is shared between them
+     */
+    private <T> T inTransaction(Supplier<T> work)
+    {
+        return new TransactionTemplate(transactionManager).execute(status -> work.get());
+    }
+
+    /**
+     * Reads the city and everything its endpoints serialize, returning the number of statements it took
+     */
+    private long statementsToRead(Supplier<City> lookup)
+    {
+        statistics.clear();
+        int occupations = inTransaction(() ->
+        {
+            City city = lookup.get();
+            for (CityOccs co : city.getOccupations())
+            {
+                co.getOccupation()
+                    .getOcc_title();
+            }
+            return city.getOccupations()
+                .size();
+        });
+        assertEquals(3, occupations);
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Test
+    void findByName()
+    {
+        assertTrue(statementsToRead(() -> cityRepository.findByName("Cached City")) > 0);
+        assertEquals(0, statementsToRead(() -> cityRepository.findByName("Cached City")));
+        assertEquals(1, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    void findById()
+    {
+        assertTrue(statementsToRead(() -> cityRepository.findById(cityid)
+            .get()) > 0);
+        assertEquals(0, statementsToRead(() -> cityRepository.findById(cityid)
+            .get()));
+    }
+
+    @Test
+    void saveInvalidatesQueryCache()
+    {
+        statementsToRead(() -> cityRepository.findByName("Cached City"));
+        inTransaction(() ->
+        {
+            City city = cityRepository.findById(cityid)
+                .get();
+            city.setPopulation(1000);
+            return cityRepository.save(city);
+        });
+
+        assertTrue(statementsToRead(() -> cityRepository.findByName("Cached City")) > 0);
+        assertEquals(1000, inTransaction(() -> cityRepository.findByName("Cached City")
+            .getPopulation()));
+    }
+}
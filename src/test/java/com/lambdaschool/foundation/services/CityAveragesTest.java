@@ -0,0 +1,134 @@
+package com.lambdaschool.foundation.services;
+
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.repository.CityRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CityAveragesTest
+{
+    private CityRepository cityRepository;
+
+    private CityAverages averages;
+
+    private List<City> cities;
+
+    @BeforeEach
+    void setUp()
+    {
+        cities = new ArrayList<>();
+        cities.add(city(1, 1000, 20.0));
+        cities.add(city(2, 3000, 30.0));
+        cityRepository = mock(CityRepository.class);
+        when(cityRepository.findAll()).thenReturn(cities);
+        averages = new CityAverages(cityRepository);
+    }
+
+    private static City city(
+        long id,
+        int studio,
+        double hourlyWage)
+    {
+        City city = new City("City " + id, "ST", studio, 0, 0, 0, 0, null, hourlyWage, 0, null, null, 50, 100);
+        city.setCityid(id);
+        return city;
+    }
+
+    @Test
+    void averageOfLoadedCities()
+    {
+        City average = averages.average();
+
+        assertEquals(CityAverages.NAME, average.getName());
+        assertEquals(2000, average.getStudio());
+        assertEquals(25.0, average.getHourly_wage());
+        assertEquals(50.0, average.getWalkscore());
+        assertEquals(2, averages.count());
+    }
+
+    @Test
+    void savingACityTwiceCountsItOnce()
+    {
+        averages.average();
+        averages.saved(city(3, 5000, 40.0));
+        averages.saved(city(3, 2000, 40.0));
+
+        assertEquals(3, averages.count());
+        assertEquals(2000, averages.average()
+            .getStudio());
+        verify(cityRepository, times(1)).findAll();
+    }
+
+    @Test
+    void deletedCityLeavesTheAverage()
+    {
+        averages.average();
+        averages.deleted(2);
+
+        assertEquals(1, averages.count());
+        assertEquals(1000, averages.average()
+            .getStudio());
+    }
+
+    @Test
+    void changesBeforeLoadAreReadFromTheDatabase()
+    {
+        cities.add(city(3, 5000, 40.0));
+        averages.saved(cities.get(2));
+
+        assertEquals(3, averages.count());
+        assertEquals(3000, averages.average()
+            .getStudio());
+    }
+
+    @Test
+    void noCities()
+    {
+        cities.clear();
+
+        assertEquals(0, averages.average()
+            .getStudio());
+    }
+
+    @Test
+    void readsDoNotWaitOnAReload() throws Exception
+    {
+        averages.average();
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch database = new CountDownLatch(1);
+        when(cityRepository.findAll()).thenAnswer(invocation ->
+        {
+            reading.countDown();
+            database.await();
+            return List.of(city(1, 1000, 20.0), city(2, 5000, 30.0));
+        });
+        Thread reload = new Thread(averages::reload);
+        reload.start();
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+        // the sums from before, while the reload waits on the database
+        assertEquals(2000, averages.average()
+            .getStudio());
+        averages.saved(city(3, 3000, 40.0));
+        assertEquals(3, averages.count());
+
+        database.countDown();
+        reload.join(TimeUnit.SECONDS.toMillis(5));
+        // what the reload read, with the city saved meanwhile
+        assertEquals(3, averages.count());
+        assertEquals(3000, averages.average()
+            .getStudio());
+    }
+}
@@ -0,0 +1,143 @@
+package com.lambdaschool.foundation.services;
+
+import com.lambdaschool.foundation.models.City;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class CityCacheTest
+{
+    private MeterRegistry registry;
+
+    private CityCache cityCache;
+
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp()
+    {
+        registry = new SimpleMeterRegistry();
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("registry", registry);
+        cityCache = new CityCache(1000, beans.getBeanProvider(MeterRegistry.class));
+        loads = new AtomicInteger();
+    }
+
+    private City load(String name)
+    {
+        loads.incrementAndGet();
+        City city = new City(name);
+        city.setCityid(7);
+        return city;
+    }
+
+    @Test
+    void readThrough()
+    {
+        City first = cityCache.getByName("Tulsa", this::load);
+        City second = cityCache.getByName("Tulsa", this::load);
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1.0, registry.get("cache.gets")
+            .tag("cache", "cities.byName")
+            .tag("result", "hit")
+            .functionCounter()
+            .count());
+    }
+
+    @Test
+    void missingCityIsNotCached()
+    {
+        assertNull(cityCache.getByName("Atlantis", name -> null));
+        cityCache.getByName("Atlantis", this::load);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void invalidateByIdDropsName()
+    {
+        cityCache.getByName("Tulsa", this::load);
+        cityCache.getById(7, id -> load("Tulsa"));
+        cityCache.invalidate(7);
+
+        cityCache.getByName("Tulsa", this::load);
+        cityCache.getById(7, id -> load("Tulsa"));
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void invalidateLeavesOtherCities()
+    {
+        cityCache.getByName("Tulsa", this::load);
+        cityCache.getByName("Tampa", name ->
+        {
+            loads.incrementAndGet();
+            City city = new City(name);
+            city.setCityid(8);
+            return city;
+        });
+        cityCache.invalidate(7, "Tulsa");
+
+        cityCache.getByName("Tampa", this::load);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void concurrentReadersLoadOnce() throws Exception
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<City>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++)
+        {
+            results.add(pool.submit(() ->
+            {
+                start.await();
+                return cityCache.getByName("Tulsa", name ->
+                {
+                    sleep();
+                    return load(name);
+                });
+            }));
+        }
+        start.countDown();
+
+        City city = results.get(0)
+            .get();
+        for (Future<City> result : results)
+        {
+            assertSame(city, result.get());
+        }
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+        assertEquals(1, loads.get());
+    }
+
+    private static void sleep()
+    {
+        try
+        {
+            Thread.sleep(50);
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread()
+                .interrupt();
+        }
+    }
+}
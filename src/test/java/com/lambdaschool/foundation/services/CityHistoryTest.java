@@ -0,0 +1,119 @@
+package com.lambdaschool.foundation.services;
+
+import com.lambdaschool.foundation.models.HistoryMetric;
+import com.lambdaschool.foundation.models.HistoryPoint;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CityHistoryTest
+{
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void rangesAreInclusiveYearsOldestFirst(boolean compress)
+    {
+        CityHistory history = new CityHistory(compress);
+        CityHistory.Builder builder = new CityHistory.Builder();
+        for (int year = 2020; year >= 2010; year--)
+        {
+            for (int month = 12; month >= 1; month--)
+            {
+                builder.add(1, HistoryMetric.HOUSING, year, month, 0, year * 100 + month);
+            }
+        }
+        history.load(builder);
+
+        List<HistoryPoint> points = history.range(1, HistoryMetric.HOUSING, 2015, 2016);
+
+        assertEquals(24, points.size());
+        assertEquals(2015, points.get(0)
+            .getYear());
+        assertEquals(1, points.get(0)
+            .getMonth());
+        assertNull(points.get(0)
+            .getDay());
+        assertEquals(201501, points.get(0)
+            .getValue());
+        assertEquals(201612, points.get(23)
+            .getValue());
+        assertEquals(132, history.range(1, HistoryMetric.HOUSING, 0, 9999)
+            .size());
+        assertTrue(history.range(1, HistoryMetric.HOUSING, 2021, 2030)
+            .isEmpty());
+        assertTrue(history.range(1, HistoryMetric.HOUSING, 2016, 2015)
+            .isEmpty());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void yearlyAndDailyValues(boolean compress)
+    {
+        CityHistory history = new CityHistory(compress);
+        history.load(new CityHistory.Builder()
+            .add(1, HistoryMetric.POPULATION, 2019, 0, 0, 1000)
+            .add(1, HistoryMetric.POPULATION, 2018, 0, 0, 900)
+            .add(1, HistoryMetric.COVID, 2020, 3, 31, 12)
+            .add(1, HistoryMetric.COVID, 2020, 4, 1, 15));
+
+        List<HistoryPoint> population = history.range(1, HistoryMetric.POPULATION, 2018, 2019);
+        assertEquals(900, population.get(0)
+            .getValue());
+        assertNull(population.get(0)
+            .getMonth());
+        List<HistoryPoint> covid = history.range(1, HistoryMetric.COVID, 2020, 2020);
+        assertEquals(2, covid.size());
+        assertEquals(31, covid.get(0)
+            .getDay());
+        assertEquals(4, covid.get(1)
+            .getMonth());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void lastValueOfAPeriodWins(boolean compress)
+    {
+        CityHistory history = new CityHistory(compress);
+        history.load(new CityHistory.Builder()
+            .add(1, HistoryMetric.TEMPERATURE, 2019, 7, 0, 80)
+            .add(1, HistoryMetric.TEMPERATURE, 2019, 6, 0, 75)
+            .add(1, HistoryMetric.TEMPERATURE, 2019, 7, 0, 82));
+
+        List<HistoryPoint> points = history.range(1, HistoryMetric.TEMPERATURE, 2019, 2019);
+        assertEquals(2, points.size());
+        assertEquals(82, points.get(1)
+            .getValue());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void loadReplacesOnlyTheSeriesItHas(boolean compress)
+    {
+        CityHistory history = new CityHistory(compress);
+        history.load(new CityHistory.Builder()
+            .add(1, HistoryMetric.INCOME, 2018, 0, 0, 30000)
+            .add(1, HistoryMetric.HOUSING, 2018, 1, 0, 1200)
+            .add(2, HistoryMetric.INCOME, 2018, 0, 0, 40000));
+        history.load(new CityHistory.Builder()
+            .add(1, HistoryMetric.INCOME, 2019, 0, 0, 31000));
+
+        assertEquals(1, history.get(1, HistoryMetric.INCOME)
+            .size());
+        assertEquals(31000, history.range(1, HistoryMetric.INCOME, 2019, 2019)
+            .get(0)
+            .getValue());
+        assertEquals(1, history.get(1, HistoryMetric.HOUSING)
+            .size());
+        assertEquals(3, history.pointCount());
+
+        history.remove(1);
+        assertNull(history.get(1, HistoryMetric.HOUSING));
+        assertTrue(history.range(1, HistoryMetric.INCOME, 2018, 2019)
+            .isEmpty());
+        assertEquals(1, history.cityCount());
+    }
+}
@@ -0,0 +1,116 @@
+package com.lambdaschool.foundation.services;
+
+import com.lambdaschool.foundation.repository.CityRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CityNameFilterTest
+{
+    private CityRepository cityRepository;
+
+    private CityNameFilter filter;
+
+    private List<String> names;
+
+    @BeforeEach
+    void setUp()
+    {
+        names = new ArrayList<>();
+        for (int i = 0; i < 5000; i++)
+        {
+            names.add("City " + i + ", ST");
+        }
+        cityRepository = mock(CityRepository.class);
+        when(cityRepository.findAllNames()).thenReturn(names);
+        filter = new CityNameFilter(cityRepository, 0.01);
+    }
+
+    @Test
+    void everyLoadedNameIsKnown()
+    {
+        for (String name : names)
+        {
+            assertTrue(filter.mightContain(name));
+        }
+        verify(cityRepository, times(1)).findAllNames();
+    }
+
+    @Test
+    void unknownNamesAreMostlyRejected()
+    {
+        int passed = 0;
+        for (int i = 0; i < 10000; i++)
+        {
+            if (filter.mightContain("Nowhere " + i))
+            {
+                passed++;
+            }
+        }
+        // the filter is sized for twice the names loaded, so it stays well under its 1% rate
+        assertTrue(passed < 100, passed + " unknown names passed");
+        assertFalse(filter.mightContain(null));
+    }
+
+    @Test
+    void savedNameIsKnownWithoutRebuild()
+    {
+        filter.mightContain("warm up");
+        filter.add("New City, ST");
+
+        assertTrue(filter.mightContain("New City, ST"));
+        verify(cityRepository, times(1)).findAllNames();
+    }
+
+    @Test
+    void fullFilterIsRebuilt()
+    {
+        filter.mightContain("warm up");
+        // sized for twice the names loaded, at least
+        int room = names.size() * 2;
+        for (int i = 0; i <= room; i++)
+        {
+            String name = "Added " + i;
+            names.add(name);
+            filter.add(name);
+        }
+
+        assertTrue(filter.mightContain("Added 0"));
+        verify(cityRepository, times(2)).findAllNames();
+    }
+
+    @Test
+    void nameAddedAgainIsCountedOnce()
+    {
+        filter.mightContain("warm up");
+        // as when saved in a transaction, added then and again after commit, room for all of them once
+        for (int i = 0; i < names.size(); i++)
+        {
+            String name = "Added " + i;
+            filter.add(name);
+            filter.add(name);
+        }
+
+        assertTrue(filter.mightContain("Added 0"));
+        verify(cityRepository, times(1)).findAllNames();
+    }
+
+    @Test
+    void rebuildReadsCurrentNames()
+    {
+        filter.mightContain("warm up");
+        names.add("Loaded In Bulk, ST");
+        filter.rebuild();
+
+        assertTrue(filter.mightContain("Loaded In Bulk, ST"));
+    }
+}
@@ -0,0 +1,257 @@
+package com.lambdaschool.foundation.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.CityOccs;
+import com.lambdaschool.foundation.models.Occupation;
+import com.lambdaschool.foundation.repository.CityRepository;
+import com.lambdaschool.foundation.repository.OccupationRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writes the cities to a CitySnapshotFile and reads them back, then serves reads from what was read.
+ * The benchmark times reading a larger file against loading the same cities through JPA.
+ */
+@DataJpaTest(showSql = false, properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({CitySnapshotFile.class, CityServiceImpl.class, CityCache.class, CityNameFilter.class, CityAverages.class,
+    CitySnapshots.class, CityHistory.class})
+@ActiveProfiles(CitySnapshotFile.PROFILE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CitySnapshotFileTest
+{
+    private static final Logger logger = LoggerFactory.getLogger(CitySnapshotFileTest.class);
+
+    private static final int CITIES = 50;
+
+    private static final int OCCUPATIONS = 5;
+
+    private static final Path file = tempFile();
+
+    private static Path tempFile()
+    {
+        try
+        {
+            return Files.createTempDirectory("citrics")
+                .resolve("cities.snapshot");
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void snapshotProperties(DynamicPropertyRegistry registry)
+    {
+        registry.add("citrics.snapshot.enabled", () -> true);
+        registry.add("citrics.snapshot.file", file::toString);
+    }
+
+    @Autowired
+    private CitySnapshotFile citySnapshotFile;
+
+    @Autowired
+    private CityService cityService;
+
+    @Autowired
+    private CityCache cityCache;
+
+    @Autowired
+    private CitySnapshots citySnapshots;
+
+    @Autowired
+    private CityRepository cityRepository;
+
+    @Autowired
+    private OccupationRepository occupationRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper mapper = new ObjectMapper()
+        .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+
+    /**
+     * Saves cities with every one of the occupations, every other one in a state
+     */
+    private void save(
+        int cities,
+        int jobs)
+    {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+        {
+            List<Occupation> occupations = new ArrayList<>();
+            for (int j = 0; j < jobs; j++)
+            {
+                occupations.add(occupationRepository.save(new Occupation("Job " + j)));
+            }
+            for (int i = 0; i < cities; i++)
+            {
+                City c = new City("Snapshot City " + i, i % 2 == 0 ? "ST" : null, 700 + i, 800 + i, 900 + i,
+                    1000 + i, 1100 + i, "All Occupations", 20.5 + i, 40000 + i, "Hot-Humid", "Hot", 50.5,
+                    100000 + i);
+                for (Occupation o : occupations)
+                {
+                    c.getOccupations()
+                        .add(new CityOccs(c, o, 15.25 + i, 30000 + i, 1.5, 0.75));
+                }
+                cityRepository.save(c);
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        cityRepository.deleteAll();
+        occupationRepository.deleteAll();
+        cityCache.invalidateAll();
+    }
+
+    /**
+     * Writes the cities to the file and reads them back
+     *
+     * @return the cities as read through JPA
+     */
+    private List<City> writeAndRead() throws IOException
+    {
+        List<City> loaded = cityService.findAllWithOccupations();
+        CitySnapshotFile.write(loaded, file);
+        List<City> read = CitySnapshotFile.read(file);
+
+        assertNotNull(read);
+        assertEquals(loaded.size(), read.size());
+        for (int i = 0; i < loaded.size(); i++)
+        {
+            // every response built from the file is the same as one built from the database
+            assertEquals(mapper.writeValueAsString(loaded.get(i)), mapper.writeValueAsString(read.get(i)));
+        }
+        return loaded;
+    }
+
+    @Test
+    void readsBackWhatWasWritten() throws IOException
+    {
+        save(CITIES, OCCUPATIONS);
+
+        assertEquals(CITIES, writeAndRead().size());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void readsFasterThanJpa() throws IOException
+    {
+        int cities = 500;
+        int jobs = 20;
+        save(cities, jobs);
+
+        long start = System.nanoTime();
+        List<City> loaded = cityService.findAllWithOccupations();
+        long jpaMs = (System.nanoTime() - start) / 1_000_000;
+        CitySnapshotFile.write(loaded, file);
+        start = System.nanoTime();
+        CitySnapshotFile.read(file);
+        long readMs = (System.nanoTime() - start) / 1_000_000;
+
+        logger.info("{} cities with {} occupations each: {} bytes, read in {} ms, loaded through JPA in {} ms", cities,
+            jobs, Files.size(file), readMs, jpaMs);
+    }
+
+    @Test
+    void ignoresOtherFormatVersions() throws IOException
+    {
+        save(CITIES, OCCUPATIONS);
+        CitySnapshotFile.write(cityService.findAllWithOccupations(), file);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[7]++;
+        Files.write(file, bytes);
+
+        assertEquals(null, CitySnapshotFile.read(file));
+        assertTrue(!citySnapshotFile.warmStart());
+    }
+
+    @Test
+    void warmStartServesReadsWithoutQueries()
+    {
+        save(CITIES, OCCUPATIONS);
+        citySnapshotFile.save();
+        cityCache.invalidateAll();
+        // what is in memory is from before, as on a new instance
+        citySnapshots.changed();
+
+        assertTrue(citySnapshotFile.warmStart());
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class)
+            .getStatistics();
+        statistics.clear();
+        City city = cityService.findByName("Snapshot City 7");
+        assertEquals(OCCUPATIONS, cityService.findCityById(city.getCityid())
+            .getOccupations()
+            .size());
+        assertNotNull(cityService.findPercentileRanks(city.getCityid()));
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void reloadDropsWhatTheFileMissed()
+    {
+        save(CITIES, OCCUPATIONS);
+        citySnapshotFile.save();
+        // changed after the file was written, as through the API before a restart
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> cityRepository.findByName(
+            "Snapshot City 3")
+            .setPopulation(1));
+        cityCache.invalidateAll();
+        citySnapshots.changed();
+
+        assertTrue(citySnapshotFile.warmStart());
+        assertEquals(100003, cityService.findByName("Snapshot City 3")
+            .getPopulation());
+
+        cityService.reload();
+        assertEquals(1, cityService.findByName("Snapshot City 3")
+            .getPopulation());
+    }
+
+    @Test
+    void offOutsideOfThePersistentProfile()
+    {
+        save(CITIES, OCCUPATIONS);
+        citySnapshotFile.save();
+
+        assertTrue(Files.exists(file));
+        assertTrue(!new CitySnapshotFile(true, file.toString(), new MockEnvironment()).warmStart());
+    }
+}
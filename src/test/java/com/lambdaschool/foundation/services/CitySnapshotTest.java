@@ -0,0 +1,227 @@
+package com.lambdaschool.foundation.services;
+
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.CityAggregate;
+import com.lambdaschool.foundation.models.CityGroupBy;
+import com.lambdaschool.foundation.models.MetricStats;
+import com.lambdaschool.foundation.repository.CityRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CitySnapshotTest
+{
+    private List<City> cities;
+
+    @BeforeEach
+    void setUp()
+    {
+        cities = new ArrayList<>();
+        cities.add(city(1, "TX", "Hot", 800, 70));
+        cities.add(city(2, "TX", "Hot", 1200, 50));
+        cities.add(city(3, "CA", "Mild", 2000, 90));
+        cities.add(city(4, null, null, 500, 10));
+    }
+
+    private static City city(
+        long id,
+        String state,
+        String climate,
+        int studio,
+        double walkscore)
+    {
+        City city = new City("City " + id, state, studio, 0, 0, 0, 0, null, 20.0, 0, null, climate, walkscore, 1000);
+        city.setCityid(id);
+        return city;
+    }
+
+    @Test
+    void aggregateByState()
+    {
+        List<CityAggregate> aggregates = new CitySnapshot(1, cities, 200).aggregate(CityGroupBy.STATE);
+
+        assertEquals(3, aggregates.size());
+        assertEquals("CA", aggregates.get(0)
+            .getGroup());
+        assertNull(aggregates.get(2)
+            .getGroup());
+
+        CityAggregate texas = aggregates.get(1);
+        assertEquals(2, texas.getCount());
+        MetricStats studio = texas.getMetrics()
+            .get("studio");
+        assertEquals(1000, studio.getMean());
+        assertEquals(800, studio.getMin());
+        assertEquals(1200, studio.getMax());
+        assertEquals(60, texas.getMetrics()
+            .get("walkscore")
+            .getMean());
+    }
+
+    @Test
+    void aggregatesAreKeptWithTheSnapshot()
+    {
+        CitySnapshot snapshot = new CitySnapshot(1, cities, 200);
+
+        assertSame(snapshot.aggregate(CityGroupBy.SIMPLE_CLIMATE), snapshot.aggregate(CityGroupBy.SIMPLE_CLIMATE));
+    }
+
+    @Test
+    void newVersionRebuildsOnce()
+    {
+        CityRepository cityRepository = mock(CityRepository.class);
+        when(cityRepository.findAll()).thenReturn(cities);
+        CitySnapshots snapshots = new CitySnapshots(cityRepository, 200);
+
+        CitySnapshot first = snapshots.current();
+        assertSame(first, snapshots.current());
+
+        snapshots.changed();
+        snapshots.changed();
+        CitySnapshot second = snapshots.current();
+
+        assertNotSame(first, second);
+        assertSame(second, snapshots.current());
+        assertEquals(2, second.getVersion());
+        verify(cityRepository, times(2)).findAll();
+    }
+
+    @Test
+    void quantilesOfSmallGroupsAreExact()
+    {
+        CityAggregate texas = new CitySnapshot(1, cities, 200).aggregate(CityGroupBy.STATE)
+            .get(1);
+        MetricStats studio = texas.getMetrics()
+            .get("studio");
+
+        assertEquals(800, studio.getP10());
+        assertEquals(1200, studio.getP90());
+        assertEquals(0.0, studio.getRankError());
+        assertNull(texas.getMetrics()
+            .get("population")
+            .getMedian());
+    }
+
+    @Test
+    void nationalQuantilesAreMergedFromStates()
+    {
+        CityAggregate national = new CitySnapshot(1, cities, 200).national();
+
+        assertEquals(CityAverages.NAME, national.getGroup());
+        assertEquals(4, national.getCount());
+        // studios of 500, 800, 1200 and 2000: either middle value is a median
+        double median = national.getMetrics()
+            .get("studio")
+            .getMedian();
+        assertTrue(median == 800 || median == 1200, "median " + median);
+    }
+
+    @Test
+    void largeGroupsStayWithinTheRankError()
+    {
+        List<City> many = new ArrayList<>();
+        int n = 100000;
+        for (int i = 0; i < n; i++)
+        {
+            // shuffled so the sketch does not see the values in order
+            int studio = (int) ((i * 7919L) % n);
+            many.add(city(i, "ST", "Hot", studio, 0));
+        }
+        MetricStats studio = new CitySnapshot(1, many, 200).national()
+            .getMetrics()
+            .get("studio");
+
+        double error = studio.getRankError();
+        assertTrue(error > 0 && error < 0.02, "rank error " + error);
+        assertEquals(0.5, studio.getMedian() / n, error);
+        assertEquals(0.1, studio.getP10() / n, error);
+        assertEquals(0.9, studio.getP90() / n, error);
+    }
+
+    @Test
+    void insertedCityIsAddedToACopy()
+    {
+        CitySnapshot before = new CitySnapshot(1, cities, 200);
+        before.aggregate(CityGroupBy.STATE);
+        CitySnapshot after = before.withCity(2, city(5, "CA", "Mild", 3000, 80));
+
+        assertEquals(4, before.size());
+        assertEquals(5, after.size());
+        assertEquals(1, before.aggregate(CityGroupBy.STATE)
+            .get(0)
+            .getCount());
+        CityAggregate california = after.aggregate(CityGroupBy.STATE)
+            .get(0);
+        assertEquals(2, california.getCount());
+        assertEquals(3000, california.getMetrics()
+            .get("studio")
+            .getP90());
+        assertEquals(5, after.national()
+            .getCount());
+    }
+
+    @Test
+    void insertedCitiesLeaveEarlierSnapshotsAlone()
+    {
+        CitySnapshot first = new CitySnapshot(1, cities, 200).withCity(2, city(5, "CA", "Mild", 3000, 80));
+        CitySnapshot second = first.withCity(3, city(6, "CA", "Mild", 3100, 80));
+        // also from first, so the row second wrote is taken
+        CitySnapshot other = first.withCity(3, city(7, "WA", "Cold", 900, 60));
+
+        assertEquals(5, first.size());
+        assertNull(first.percentileRanks(6));
+        assertEquals("City 6", second.name(5));
+        assertEquals("City 7", other.name(5));
+        assertNull(other.percentileRanks(6));
+        assertEquals(3, second.aggregate(CityGroupBy.STATE)
+            .get(0)
+            .getCount());
+        assertEquals(2, first.aggregate(CityGroupBy.STATE)
+            .get(0)
+            .getCount());
+        assertEquals(6, second.national()
+            .getCount());
+        assertEquals(7, second.withCity(4, city(7, "WA", "Cold", 900, 60))
+            .size());
+    }
+
+    @Test
+    void insertedCityMovesTheSnapshotWithoutReading()
+    {
+        CityRepository cityRepository = mock(CityRepository.class);
+        when(cityRepository.findAll()).thenReturn(cities);
+        CitySnapshots snapshots = new CitySnapshots(cityRepository, 200);
+        snapshots.current();
+
+        snapshots.inserted(city(5, "CA", "Mild", 3000, 80));
+
+        assertEquals(5, snapshots.current()
+            .size());
+        verify(cityRepository, times(1)).findAll();
+    }
+
+    @Test
+    void percentileRanks()
+    {
+        CitySnapshot snapshot = new CitySnapshot(1, cities, 200);
+
+        // studios of 500, 800, 1200 and 2000
+        assertEquals(62.5, snapshot.percentileRanks(2)
+            .get("studio"));
+        assertEquals(87.5, snapshot.percentileRanks(3)
+            .get("studio"));
+        assertNull(snapshot.percentileRanks(99));
+    }
+}
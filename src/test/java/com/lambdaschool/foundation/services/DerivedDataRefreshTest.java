@@ -0,0 +1,158 @@
+package com.lambdaschool.foundation.services;
+
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.User;
+import com.lambdaschool.foundation.repository.CityRepository;
+import com.lambdaschool.foundation.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that a refresh repairs and recomputes everything derived from the cities
+ */
+@DataJpaTest
+@Import({CityServiceImpl.class, CityCache.class, CityNameFilter.class, CityAverages.class, CitySnapshots.class, CityHistory.class,
+    UserServiceImpl.class, HelperFunctionsImpl.class, DerivedDataRefresh.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DerivedDataRefreshTest
+{
+    /**
+     * Outside of the application nothing backs the global registry, so its timers would not count
+     */
+    private static final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Autowired
+    private DerivedDataRefresh refresh;
+
+    @Autowired
+    private CityService cityService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CityCache cityCache;
+
+    @Autowired
+    private CityRepository cityRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private City cheap;
+
+    private City pricey;
+
+    @BeforeAll
+    static void addRegistry()
+    {
+        Metrics.addRegistry(registry);
+    }
+
+    @AfterAll
+    static void removeRegistry()
+    {
+        Metrics.removeRegistry(registry);
+    }
+
+    @BeforeEach
+    void setUp()
+    {
+        cityCache.invalidateAll();
+        cheap = cityService.save(new City("Cheap", "TX", 500, 0, 0, 0, 0, null, 15.0, 30000, null, "Hot", 40, 1000));
+        pricey = cityService.save(new City("Pricey", "CA", 2500, 0, 0, 0, 0, null, 35.0, 90000, null, "Mild", 90, 5000));
+        User user = userRepository.save(new User("refresher"));
+        userService.addFav("Cheap", user);
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        userRepository.deleteAll();
+        cityRepository.deleteAll();
+    }
+
+    @Test
+    void favoriteCountDriftIsRepaired()
+    {
+        // a count that went wrong, say from an update that was lost
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+            cityRepository.adjustFavoriteCount(cheap.getCityid(), 5));
+        cityCache.invalidateAll();
+        assertEquals(6, cityService.findByName("Cheap")
+            .getFavoriteCount());
+
+        assertTrue(refresh.refresh());
+
+        assertEquals(1, cityService.findByName("Cheap")
+            .getFavoriteCount());
+        assertEquals(0, cityService.recountFavorites());
+    }
+
+    @Test
+    void derivedDataIsRecomputed()
+    {
+        double before = registry.get("citrics.refresh.duration")
+            .tag("result", "success")
+            .timer()
+            .count();
+
+        assertTrue(refresh.refresh());
+
+        assertEquals(1500, cityService.findAverageCity()
+            .getStudio());
+        assertEquals(2, cityService.findAverageStats()
+            .getCount());
+        Map<String, Double> ranks = cityService.findPercentileRanks(pricey.getCityid());
+        assertEquals(75.0, ranks.get("studio"));
+        assertEquals(before + 1, registry.get("citrics.refresh.duration")
+            .tag("result", "success")
+            .timer()
+            .count());
+    }
+
+    @Test
+    void failedRefreshIsReported()
+    {
+        DerivedDataRefresh broken = new DerivedDataRefresh(0, 300000, 0);
+        CityService failing = mock(CityService.class);
+        when(failing.recountFavorites()).thenThrow(new IllegalStateException("database gone"));
+        ReflectionTestUtils.setField(broken, "cityService", failing);
+        double before = registry.get("citrics.refresh.duration")
+            .tag("result", "failure")
+            .timer()
+            .count();
+
+        assertFalse(broken.refresh());
+
+        assertEquals(before + 1, registry.get("citrics.refresh.duration")
+            .tag("result", "failure")
+            .timer()
+            .count());
+    }
+}
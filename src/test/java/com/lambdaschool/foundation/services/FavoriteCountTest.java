@@ -0,0 +1,128 @@
+package com.lambdaschool.foundation.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.User;
+import com.lambdaschool.foundation.repository.CityRepository;
+import com.lambdaschool.foundation.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Checks that the favorite count of a city follows users adding and removing it
+ */
+@DataJpaTest
+@Import({CityServiceImpl.class, CityCache.class, CityNameFilter.class, CityAverages.class, CitySnapshots.class, CityHistory.class, UserServiceImpl.class, HelperFunctionsImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FavoriteCountTest
+{
+    @Autowired
+    private CityService cityService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CityCache cityCache;
+
+    @Autowired
+    private CityNameFilter cityNameFilter;
+
+    @Autowired
+    private CityRepository cityRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User arthur;
+
+    private User james;
+
+    @BeforeEach
+    void setUp()
+    {
+        cityCache.invalidateAll();
+        cityRepository.save(new City("Favorite City"));
+        arthur = userRepository.save(new User("arthur"));
+        james = userRepository.save(new User("james"));
+        cityNameFilter.rebuild();
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        userRepository.deleteAll();
+        cityRepository.deleteAll();
+    }
+
+    private int favoriteCount()
+    {
+        return cityService.findByName("Favorite City")
+            .getFavoriteCount();
+    }
+
+    @Test
+    void addAndRemoveFav()
+    {
+        userService.addFav("Favorite City", arthur);
+        userService.addFav("Favorite City", james);
+        assertEquals(2, favoriteCount());
+
+        userService.removeFav("Favorite City", arthur);
+        assertEquals(1, favoriteCount());
+        assertEquals(0, userService.findUserById(arthur.getUserid())
+            .getFavcities()
+            .size());
+    }
+
+    @Test
+    void addingAFavoriteTwiceCountsOnce()
+    {
+        userService.addFav("Favorite City", arthur);
+        userService.addFav("Favorite City", arthur);
+
+        assertEquals(1, favoriteCount());
+        assertEquals(1, userService.findUserById(arthur.getUserid())
+            .getFavcities()
+            .size());
+    }
+
+    @Test
+    void deleteUser()
+    {
+        userService.addFav("Favorite City", arthur);
+        userService.delete(arthur.getUserid());
+        assertEquals(0, favoriteCount());
+    }
+
+    @Test
+    void saveKeepsFavoriteCount()
+    {
+        userService.addFav("Favorite City", arthur);
+
+        City update = new City("Favorite City");
+        update.setCityid(cityService.findByName("Favorite City")
+            .getCityid());
+        assertEquals(1, cityService.save(update)
+            .getFavoriteCount());
+        assertEquals(1, favoriteCount());
+    }
+
+    @Test
+    void usersNotSerialized() throws Exception
+    {
+        userService.addFav("Favorite City", arthur);
+        String json = new ObjectMapper()
+            .writeValueAsString(cityService.findByName("Favorite City"));
+        assertFalse(json.contains("\"users\""));
+    }
+}
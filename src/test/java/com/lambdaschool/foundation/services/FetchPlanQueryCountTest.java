@@ -0,0 +1,196 @@
+package com.lambdaschool.foundation.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.CityOccs;
+import com.lambdaschool.foundation.models.Occupation;
+import com.lambdaschool.foundation.models.User;
+import com.lambdaschool.foundation.models.UserCities;
+import com.lambdaschool.foundation.repository.CityRepository;
+import com.lambdaschool.foundation.repository.OccupationRepository;
+import com.lambdaschool.foundation.repository.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks that every read use case loads what its endpoint serializes with a fixed number of queries,
+ * no matter how many occupations or favorites the data has.
+ * <p>
+ * Tests run outside of a transaction, the same way controllers call the services with open-in-view off,
+ * so serializing anything that was not fetched fails with a LazyInitializationException.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({CityServiceImpl.class, CityCache.class, CityNameFilter.class, CityAverages.class, CitySnapshots.class, CityHistory.class, UserServiceImpl.class, HelperFunctionsImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FetchPlanQueryCountTest
+{
+    @Autowired
+    private CityService cityService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CityCache cityCache;
+
+    @Autowired
+    private CityNameFilter cityNameFilter;
+
+    @Autowired
+    private CityRepository cityRepository;
+
+    @Autowired
+    private OccupationRepository occupationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper mapper = new ObjectMapper()
+        .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+
+    private Statistics statistics;
+
+    private List<City> cities;
+
+    private User user;
+
+    @BeforeEach
+    void setUp()
+    {
+        cityCache.invalidateAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class)
+            .getStatistics();
+
+        // seeded in one transaction, the same way SeedData does
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+        {
+            cities = new ArrayList<>();
+            for (int i = 0; i < 4; i++)
+            {
+                City c = new City("Test City " + i);
+                for (int j = 0; j < 5; j++)
+                {
+                    Occupation o = occupationRepository.save(new Occupation("Job " + i + "-" + j));
+                    c.getOccupations()
+                        .add(new CityOccs(c, o, 20.0, 40000, 1.0, 1.0));
+                }
+                cities.add(cityRepository.save(c));
+            }
+
+            user = new User("fetchplan");
+            for (int i = 0; i < 3; i++)
+            {
+                user.getFavcities()
+                    .add(new UserCities(user, cities.get(i)));
+            }
+            user = userRepository.save(user);
+        });
+        cityNameFilter.rebuild();
+
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        userRepository.deleteAll();
+        cityRepository.deleteAll();
+        occupationRepository.deleteAll();
+    }
+
+    /**
+     * Serializes the response the way the controller would and returns the number of statements it took
+     */
+    private long statementsFor(Object response) throws Exception
+    {
+        mapper.writeValueAsString(response);
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Test
+    void allCities() throws Exception
+    {
+        // /cities/all and /cities/filter only return the city names
+        List<String> names = new ArrayList<>();
+        for (City c : cityService.findAll())
+        {
+            names.add(c.getName());
+        }
+        assertEquals(1, statementsFor(names));
+    }
+
+    @Test
+    void allCitiesLong() throws Exception
+    {
+        // /cities/all-long
+        assertEquals(1, statementsFor(cityService.findAllWithOccupations()));
+    }
+
+    @Test
+    void cityById() throws Exception
+    {
+        // /cities/city/{id}
+        assertEquals(1, statementsFor(cityService.findCityById(cities.get(0)
+            .getCityid())));
+    }
+
+    @Test
+    void cityByName() throws Exception
+    {
+        // /cities/compare, once per city name
+        assertEquals(1, statementsFor(cityService.findByName("Test City 1")));
+    }
+
+    @Test
+    void cityByUnknownName() throws Exception
+    {
+        // /cities/compare with a name we do not have is rejected from memory
+        assertNull(cityService.findByNameOrNull("Atlantis"));
+        assertEquals(0, statementsFor(null));
+    }
+
+    @Test
+    void userById() throws Exception
+    {
+        // /users/{id}: user with favorites, then one batch for the occupations of those cities
+        assertEquals(2, statementsFor(userService.findUserById(user.getUserid())));
+    }
+
+    @Test
+    void userByName() throws Exception
+    {
+        // /users/getuserinfo, /users/favs and /cities/favcities
+        assertEquals(2, statementsFor(userService.findByName("fetchplan")));
+    }
+
+    @Test
+    void allUsers() throws Exception
+    {
+        // users, then one batch each for favorites and the occupations of those cities
+        assertEquals(3, statementsFor(userService.findAll()));
+    }
+}
@@ -0,0 +1,299 @@
+package com.lambdaschool.foundation.services;
+
+import com.lambdaschool.foundation.models.HistoryPoint;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GorillaSeriesTest
+{
+    private static final Logger logger = LoggerFactory.getLogger(GorillaSeriesTest.class);
+
+    private final SeriesBlocks blocks = new SeriesBlocks(4096);
+
+    private static void assertRoundTrip(
+        int[] periods,
+        double[] values,
+        SeriesBlocks blocks)
+    {
+        GorillaSeries series = GorillaSeries.encode(periods, values, blocks);
+        assertEquals(periods.length, series.size());
+        HistorySeries.Cursor cursor = series.cursor();
+        for (int i = 0; i < periods.length; i++)
+        {
+            int at = i;
+            assertTrue(cursor.next());
+            assertEquals(periods[i], cursor.period());
+            assertEquals(Double.doubleToRawLongBits(values[i]), Double.doubleToRawLongBits(cursor.value()),
+                () -> "value " + at + " of " + Arrays.toString(values));
+        }
+        assertFalse(cursor.next());
+    }
+
+    /**
+     * Every day of the years from first to last
+     */
+    private static int[] days(
+        int first,
+        int last)
+    {
+        int[] periods = new int[(last - first + 1) * 366];
+        int size = 0;
+        for (int year = first; year <= last; year++)
+        {
+            for (int month = 1; month <= 12; month++)
+            {
+                for (int day = 1; day <= YearMonth.of(year, month)
+                    .lengthOfMonth(); day++)
+                {
+                    periods[size++] = CitySeries.period(year, month, day);
+                }
+            }
+        }
+        return Arrays.copyOf(periods, size);
+    }
+
+    private static int[] months(
+        int first,
+        int last)
+    {
+        int[] periods = new int[(last - first + 1) * 12];
+        for (int i = 0; i < periods.length; i++)
+        {
+            periods[i] = CitySeries.period(first + i / 12, i % 12 + 1, 0);
+        }
+        return periods;
+    }
+
+    @Test
+    void roundTripsEveryResolution()
+    {
+        assertRoundTrip(new int[]{20100000, 20110000, 20120000, 20150000, 19000000},
+            new double[]{1, 2, 2, 3.5, -7}, blocks);
+        assertRoundTrip(months(2010, 2020), new Random(1).doubles(132)
+            .toArray(), blocks);
+        int[] days = days(1999, 2021);
+        assertRoundTrip(days, new Random(2).doubles(days.length)
+            .map(d -> Math.floor(d * 1000))
+            .toArray(), blocks);
+        // yearly, monthly and daily mixed, and a day that is not a date
+        assertRoundTrip(new int[]{20150000, 20150300, 20150301, 20150231, 20200000},
+            new double[]{5, 4, 3, 2, 1}, blocks);
+    }
+
+    @Test
+    void roundTripsAnyDouble()
+    {
+        double[] values = {0.0, -0.0, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+            Double.MIN_VALUE, Double.MAX_VALUE, 1.0, 1.0, 1.0000000001, -1e300, 42.5};
+        int[] periods = new int[values.length];
+        for (int i = 0; i < periods.length; i++)
+        {
+            periods[i] = CitySeries.period(2000 + i, 0, 0);
+        }
+        assertRoundTrip(periods, values, blocks);
+        assertRoundTrip(new int[0], new double[0], blocks);
+        assertRoundTrip(new int[]{20200101}, new double[]{3}, blocks);
+        // gaps too wide for the short forms
+        assertRoundTrip(new int[]{10000101, 20200101, 20200102, 99991231}, new double[]{1, 2, 3, 4}, blocks);
+    }
+
+    @Test
+    void rangesLikeArrays()
+    {
+        int[] periods = months(2010, 2020);
+        double[] values = new Random(3).doubles(periods.length)
+            .toArray();
+        CitySeries arrays = new CitySeries(periods, values);
+        GorillaSeries compressed = arrays.compress(blocks);
+
+        for (int[] range : new int[][]{{2015, 2016}, {2000, 2012}, {2020, 2030}, {2021, 2030}, {2016, 2015}})
+        {
+            List<HistoryPoint> expected = arrays.range(range[0], range[1]);
+            List<HistoryPoint> actual = compressed.range(range[0], range[1]);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++)
+            {
+                assertEquals(expected.get(i)
+                    .getMonth(), actual.get(i)
+                    .getMonth());
+                assertEquals(expected.get(i)
+                    .getValue(), actual.get(i)
+                    .getValue());
+            }
+        }
+        assertEquals(20100100, compressed.firstPeriod());
+        assertEquals(20201200, compressed.lastPeriod());
+    }
+
+    /**
+     * Monthly housing cost in whole dollars, drifting about half a percent a month
+     */
+    private static double[][] housing(
+        int[] months,
+        int cities,
+        Random random)
+    {
+        double[][] housing = new double[cities][months.length];
+        for (double[] city : housing)
+        {
+            double cost = 800 + random.nextInt(2000);
+            for (int m = 0; m < months.length; m++)
+            {
+                cost *= 1 + random.nextGaussian() * 0.005 + 0.002;
+                city[m] = Math.round(cost);
+            }
+        }
+        return housing;
+    }
+
+    /**
+     * Daily cumulative COVID cases of one year, no new cases on many days in smaller cities
+     */
+    private static double[][] covid(
+        int[] days,
+        int cities,
+        Random random)
+    {
+        double[][] covid = new double[cities][days.length];
+        for (double[] city : covid)
+        {
+            double cases = 0;
+            double rate = random.nextInt(50);
+            for (int d = 0; d < days.length; d++)
+            {
+                if (d > 60)
+                {
+                    cases += Math.max(0, Math.round(random.nextGaussian() * rate / 2 + rate / 4));
+                }
+                city[d] = cases;
+            }
+        }
+        return covid;
+    }
+
+    /**
+     * Monthly mean temperature to a tenth of a degree, which compresses poorly
+     */
+    private static double[][] temperature(
+        int[] months,
+        int cities,
+        Random random)
+    {
+        double[][] temperature = new double[cities][months.length];
+        for (double[] city : temperature)
+        {
+            double mean = 40 + random.nextInt(30);
+            for (int m = 0; m < months.length; m++)
+            {
+                double seasonal = mean + 20 * Math.sin(2 * Math.PI * (m % 12) / 12) + random.nextGaussian() * 2;
+                city[m] = Math.round(seasonal * 10) / 10.0;
+            }
+        }
+        return temperature;
+    }
+
+    /**
+     * Encodes one series per city
+     *
+     * @return the series, encoded
+     */
+    private static GorillaSeries[] encode(
+        int[] periods,
+        double[][] cities)
+    {
+        SeriesBlocks blocks = new SeriesBlocks(1 << 20);
+        GorillaSeries[] encoded = new GorillaSeries[cities.length];
+        for (int c = 0; c < cities.length; c++)
+        {
+            encoded[c] = GorillaSeries.encode(periods, cities[c], blocks);
+            assertEquals(periods.length, encoded[c].size());
+        }
+        return encoded;
+    }
+
+    /**
+     * @return the bytes of 12 a value in arrays over the bytes of the encoded series
+     */
+    private static double ratio(GorillaSeries[] encoded)
+    {
+        long bytes = 0;
+        long values = 0;
+        for (GorillaSeries series : encoded)
+        {
+            bytes += series.bytes();
+            values += series.size();
+        }
+        return values * (double) (Integer.BYTES + Double.BYTES) / bytes;
+    }
+
+    @Test
+    void compressesRealisticSeries()
+    {
+        Random random = new Random(50);
+        int[] months = months(2010, 2020);
+        int[] days = days(2020, 2020);
+
+        assertTrue(ratio(encode(months, housing(months, 50, random))) > 3);
+        assertTrue(ratio(encode(days, covid(days, 50, random))) > 4);
+        assertTrue(ratio(encode(months, temperature(months, 50, random))) > 1);
+    }
+
+    /**
+     * Encodes one series per city, logs the bytes against 12 a value in arrays and the time to read them back
+     */
+    private static void measure(
+        String name,
+        int[] periods,
+        double[][] cities)
+    {
+        GorillaSeries[] encoded = encode(periods, cities);
+        long values = (long) periods.length * cities.length;
+
+        long best = Long.MAX_VALUE;
+        double sum = 0;
+        for (int round = 0; round < 10; round++)
+        {
+            long start = System.nanoTime();
+            for (GorillaSeries series : encoded)
+            {
+                HistorySeries.Cursor cursor = series.cursor();
+                while (cursor.next())
+                {
+                    sum += cursor.value() + cursor.period();
+                }
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        assertTrue(sum != 0);
+
+        double ratio = ratio(encoded);
+        logger.info("{}: {} cities, {} values, {} bytes a value, {}x smaller than arrays, read in {} ns a value", name,
+            cities.length, values, String.format("%.2f", (Integer.BYTES + Double.BYTES) / ratio),
+            String.format("%.1f", ratio), String.format("%.1f", best / (double) values));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmarkReads()
+    {
+        Random random = new Random(50);
+        int cities = 2000;
+        int[] months = months(2010, 2020);
+        int[] days = days(2020, 2020);
+
+        measure("housing", months, housing(months, cities, random));
+        measure("covid", days, covid(days, cities, random));
+        measure("temperature", months, temperature(months, cities, random));
+    }
+}
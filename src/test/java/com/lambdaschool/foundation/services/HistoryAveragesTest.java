@@ -0,0 +1,247 @@
+package com.lambdaschool.foundation.services;
+
+import com.lambdaschool.foundation.models.City;
+import com.lambdaschool.foundation.models.HistoryMetric;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class HistoryAveragesTest
+{
+    private static final Logger logger = LoggerFactory.getLogger(HistoryAveragesTest.class);
+
+    private static final String[] STATES = {"WA", "OR", "CA", "TX", "NY", "FL", "OK", "CO", null};
+
+    private static CitySeries series(
+        int[] periods,
+        double[] values)
+    {
+        return new CitySeries(periods, values);
+    }
+
+    /**
+     * Daily values of a few years, with a share of the days left out of each city
+     */
+    private static CitySeries[] randomSeries(
+        int cities,
+        Random random)
+    {
+        CitySeries[] series = new CitySeries[cities];
+        for (int i = 0; i < cities; i++)
+        {
+            int[] periods = new int[3 * 12 * 28];
+            double[] values = new double[periods.length];
+            int size = 0;
+            for (int year = 2018; year <= 2020; year++)
+            {
+                for (int month = 1; month <= 12; month++)
+                {
+                    for (int day = 1; day <= 28; day++)
+                    {
+                        if (random.nextInt(10) > 0)
+                        {
+                            periods[size] = CitySeries.period(year, month, day);
+                            values[size] = random.nextInt(1000) + random.nextDouble();
+                            size++;
+                        }
+                    }
+                }
+            }
+            series[i] = series(Arrays.copyOf(periods, size), Arrays.copyOf(values, size));
+        }
+        return series;
+    }
+
+    private static String[] randomStates(
+        int cities,
+        Random random)
+    {
+        String[] states = new String[cities];
+        for (int i = 0; i < cities; i++)
+        {
+            states[i] = STATES[random.nextInt(STATES.length)];
+        }
+        return states;
+    }
+
+    private static void assertSameAverages(
+        Map<Integer, Double> expected,
+        CitySeries actual)
+    {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < actual.size(); i++)
+        {
+            assertEquals(expected.get(actual.periodAt(i)), actual.valueAt(i), 1e-6);
+        }
+    }
+
+    @Test
+    void averagesOverTheCitiesWithAValue()
+    {
+        CitySeries[] series = {
+            series(new int[]{20150000, 20160000}, new double[]{100, 200}),
+            series(new int[]{20150000}, new double[]{300}),
+            series(new int[]{20160000, 20170000}, new double[]{400, 500})};
+        String[] states = {"WA", "WA", null};
+
+        HistoryAverages averages = HistoryAverages.compute(series, states, 2, 1, 1);
+
+        CitySeries national = averages.national();
+        assertEquals(3, national.size());
+        assertEquals(200, national.valueAt(0));
+        assertEquals(300, national.valueAt(1));
+        assertEquals(500, national.valueAt(2));
+        CitySeries wa = averages.state("WA");
+        assertEquals(2, wa.size());
+        assertEquals(200, wa.valueAt(0));
+        assertEquals(200, wa.valueAt(1));
+        assertNull(averages.state("OR"));
+        assertEquals(0, HistoryAverages.compute(new CitySeries[0], new String[0], 4, 1, 1)
+            .national()
+            .size());
+    }
+
+    @Test
+    void parallelIsTheSameAsNaive()
+    {
+        Random random = new Random(48);
+        CitySeries[] series = randomSeries(300, random);
+        String[] states = randomStates(series.length, random);
+
+        HistoryAverages sequential = HistoryAverages.compute(series, states, 1, 1, 1);
+        HistoryAverages parallel = HistoryAverages.compute(series, states, 7, 1, 1);
+
+        assertSameAverages(LegacyHistoryAverages.averages(series, states, null), parallel.national());
+        assertSameAverages(LegacyHistoryAverages.averages(series, states, "TX"), parallel.state("TX"));
+        assertEquals(STATES.length - 1, parallel.states()
+            .size());
+        for (String state : parallel.states()
+            .keySet())
+        {
+            CitySeries one = sequential.state(state);
+            CitySeries many = parallel.state(state);
+            assertEquals(one.size(), many.size());
+            for (int i = 0; i < one.size(); i++)
+            {
+                assertEquals(one.periodAt(i), many.periodAt(i));
+                assertEquals(one.valueAt(i), many.valueAt(i), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    void keptUntilTheSeriesOrTheCitiesChange()
+    {
+        City city = new City("History City");
+        city.setCityid(1);
+        city.setState("WA");
+        CitySnapshot snapshot = new CitySnapshot(1, List.of(city), 200);
+        CityHistory history = new CityHistory(true);
+        history.load(new CityHistory.Builder()
+            .add(1, HistoryMetric.HOUSING, 2015, 1, 0, 1000));
+
+        HistoryAverages first = history.averages(HistoryMetric.HOUSING, snapshot);
+        assertSame(first, history.averages(HistoryMetric.HOUSING, snapshot));
+        assertEquals(1000, first.state("WA")
+            .valueAt(0));
+
+        history.load(new CityHistory.Builder()
+            .add(1, HistoryMetric.HOUSING, 2015, 1, 0, 1200));
+        HistoryAverages second = history.averages(HistoryMetric.HOUSING, snapshot);
+        assertNotSame(first, second);
+        assertEquals(1200, second.national()
+            .valueAt(0));
+        assertNotSame(second, history.averages(HistoryMetric.HOUSING,
+            new CitySnapshot(2, List.of(city), 200)));
+    }
+
+    @Test
+    void concurrentCallersComputeOnce() throws Exception
+    {
+        CityHistory.Builder builder = new CityHistory.Builder();
+        for (int id = 1; id <= 500; id++)
+        {
+            for (int day = 0; day < 336; day++)
+            {
+                builder.add(id, HistoryMetric.COVID, 2020, day / 28 + 1, day % 28 + 1, id + day);
+            }
+        }
+        CityHistory history = new CityHistory(true);
+        history.load(builder);
+        CitySnapshot snapshot = new CitySnapshot(1, List.of(), 200);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<HistoryAverages>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++)
+        {
+            results.add(pool.submit(() ->
+            {
+                start.await();
+                return history.averages(HistoryMetric.COVID, snapshot);
+            }));
+        }
+        start.countDown();
+
+        HistoryAverages averages = results.get(0)
+            .get();
+        for (Future<HistoryAverages> result : results)
+        {
+            assertSame(averages, result.get());
+        }
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmarkAgainstNaive()
+    {
+        // about 5 million daily values
+        Random random = new Random(49);
+        CitySeries[] series = randomSeries(5000, random);
+        String[] states = randomStates(series.length, random);
+        int threads = ForkJoinPool.getCommonPoolParallelism();
+
+        long naiveNanos = Long.MAX_VALUE;
+        long sequentialNanos = Long.MAX_VALUE;
+        long parallelNanos = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++)
+        {
+            long start = System.nanoTime();
+            // builds the national and every state table, like compute
+            LegacyHistoryAverages.averages(series, states, null);
+            naiveNanos = Math.min(naiveNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            HistoryAverages.compute(series, states, 1, 1, 1);
+            sequentialNanos = Math.min(sequentialNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            HistoryAverages.compute(series, states, threads, 1, 1);
+            parallelNanos = Math.min(parallelNanos, System.nanoTime() - start);
+        }
+        logger.info("{} cities, {} values: boxed tables {} ms, primitive sums {} ms, in {} chunks {} ms", series.length,
+            Arrays.stream(series)
+                .mapToInt(CitySeries::size)
+                .sum(), naiveNanos / 1_000_000, sequentialNanos / 1_000_000, threads, parallelNanos / 1_000_000);
+    }
+}
@@ -0,0 +1,61 @@
+package com.lambdaschool.foundation.services;
+
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How ArchivedData averaged the historical series, kept to benchmark HistoryAverages against it.
+ * <p>
+ * Every value is boxed into a list per period, one city after the other on the calling thread, and the lists are
+ * summed at the end. The states get a Hashtable of their own per state.
+ */
+final class LegacyHistoryAverages
+{
+    private LegacyHistoryAverages()
+    {
+    }
+
+    /**
+     * @return average of each period, over every city when state is null or over the cities of state
+     */
+    static Map<Integer, Double> averages(
+        CitySeries[] series,
+        String[] states,
+        String state)
+    {
+        Hashtable<Integer, List<Double>> national = new Hashtable<>();
+        Hashtable<String, Hashtable<Integer, List<Double>>> byState = new Hashtable<>();
+        for (int i = 0; i < series.length; i++)
+        {
+            for (int j = 0; j < series[i].size(); j++)
+            {
+                Integer period = series[i].periodAt(j);
+                Double value = series[i].valueAt(j);
+                national.computeIfAbsent(period, p -> new ArrayList<>())
+                    .add(value);
+                if (states[i] != null)
+                {
+                    byState.computeIfAbsent(states[i], s -> new Hashtable<>())
+                        .computeIfAbsent(period, p -> new ArrayList<>())
+                        .add(value);
+                }
+            }
+        }
+
+        Hashtable<Integer, List<Double>> values = state == null ? national : byState.get(state);
+        Hashtable<Integer, Double> averages = new Hashtable<>();
+        for (Integer period : values.keySet())
+        {
+            Double sum = 0.0;
+            for (Double value : values.get(period))
+            {
+                sum += value;
+            }
+            averages.put(period, sum / values.get(period)
+                .size());
+        }
+        return averages;
+    }
+}
@@ -0,0 +1,162 @@
+package com.lambdaschool.foundation.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTest
+{
+    private static final int CALLERS = 8;
+
+    private MeterRegistry registry;
+
+    private SingleFlight<String, Object> flight;
+
+    private AtomicInteger runs;
+
+    @BeforeEach
+    void setUp()
+    {
+        registry = new SimpleMeterRegistry();
+        flight = new SingleFlight<>("test", registry);
+        runs = new AtomicInteger();
+    }
+
+    private double calls(String result)
+    {
+        return registry.get("citrics.singleflight.calls")
+            .tag("flight", "test")
+            .tag("result", result)
+            .counter()
+            .count();
+    }
+
+    /**
+     * Starts CALLERS threads that all call the flight for key while release is held
+     */
+    private List<Future<Object>> callConcurrently(
+        ExecutorService pool,
+        String key,
+        CountDownLatch release,
+        RuntimeException failure)
+    {
+        List<Future<Object>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++)
+        {
+            results.add(pool.submit(() -> flight.execute(key, () ->
+            {
+                runs.incrementAndGet();
+                await(release);
+                if (failure != null)
+                {
+                    throw failure;
+                }
+                return new Object();
+            })));
+        }
+        return results;
+    }
+
+    @Test
+    void concurrentCallersShareOneComputation() throws Exception
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<Object>> results = callConcurrently(pool, "key", release, null);
+
+        waitForWaiters(CALLERS - 1);
+        release.countDown();
+
+        Object first = results.get(0)
+            .get();
+        for (Future<Object> result : results)
+        {
+            assertSame(first, result.get());
+        }
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertEquals(1, runs.get());
+        assertEquals(1.0, calls("computed"));
+        assertEquals(CALLERS - 1, calls("coalesced"));
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    void failureIsSharedAndNotKept() throws Exception
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("boom");
+        List<Future<Object>> results = callConcurrently(pool, "key", release, failure);
+
+        waitForWaiters(CALLERS - 1);
+        release.countDown();
+
+        for (Future<Object> result : results)
+        {
+            ExecutionException e = assertThrows(ExecutionException.class, result::get);
+            assertSame(failure, e.getCause());
+        }
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertEquals("ok", flight.execute("key", () -> "ok"));
+    }
+
+    @Test
+    void finishedComputationRunsAgain()
+    {
+        flight.execute("key", () -> runs.incrementAndGet());
+        flight.execute("key", () -> runs.incrementAndGet());
+
+        assertEquals(2, runs.get());
+        assertEquals(2.0, calls("computed"));
+        assertEquals(0.0, calls("coalesced"));
+    }
+
+    @Test
+    void differentKeysDoNotWait()
+    {
+        Object outer = flight.execute("a", () -> flight.execute("b", () -> "b"));
+
+        assertEquals("b", outer);
+        assertEquals(2.0, calls("computed"));
+    }
+
+    private void waitForWaiters(int waiters) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (calls("coalesced") < waiters && System.nanoTime() < deadline)
+        {
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread()
+                .interrupt();
+        }
+    }
+}